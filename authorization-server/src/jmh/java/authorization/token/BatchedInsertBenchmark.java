@@ -0,0 +1,96 @@
+package authorization.token;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Logins per second stored by {@link R2dbcTokenStore} one statement per token, against {@link BatchingReactiveTokenStore} in front of it. Every invocation
+ * is a burst of {@value #LOGINS} logins, {@code concurrency} of them in flight at a time, each storing an access token and its refresh token.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchedInsertBenchmark {
+
+  private static final int LOGINS = 1000;
+
+  @Param(BenchmarkTokens.DEFAULT_URL)
+  private String url;
+
+  @Param({"r2dbc", "batching"})
+  private String store;
+
+  @Param({"256"})
+  private int concurrency;
+
+  private final AtomicLong logins = new AtomicLong();
+
+  private ConnectionFactory connectionFactory;
+
+  private ReactiveTokenStore tokenStore;
+
+  @Setup
+  public void setUp() {
+    connectionFactory = ConnectionFactories.get(url);
+    R2dbcTokenStore r2dbcTokenStore = new R2dbcTokenStore(connectionFactory);
+    tokenStore = "batching".equals(store) ? new BatchingReactiveTokenStore(r2dbcTokenStore) : r2dbcTokenStore;
+  }
+
+  @Setup(Level.Iteration)
+  public void truncate() {
+    DatabaseClient.create(connectionFactory)
+        .sql("truncate oauth_access_token, oauth_refresh_token")
+        .then()
+        .block();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    if (tokenStore instanceof BatchingReactiveTokenStore) {
+      ((BatchingReactiveTokenStore) tokenStore).destroy();
+    }
+    if (connectionFactory instanceof Disposable) {
+      ((Disposable) connectionFactory).dispose();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOGINS)
+  public void storeTokens() {
+    Date expiration = new Date(System.currentTimeMillis() + 3_600_000);
+    Flux.range(0, LOGINS)
+        .flatMap(i -> {
+          long login = logins.incrementAndGet();
+          DefaultOAuth2AccessToken token = BenchmarkTokens.accessToken("login-" + login, expiration);
+          return tokenStore.storeTokens(token, token.getRefreshToken(), BenchmarkTokens.authentication("web-client", "user-" + login));
+        }, concurrency)
+        .blockLast();
+  }
+}
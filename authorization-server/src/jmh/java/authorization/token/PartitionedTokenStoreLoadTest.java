@@ -0,0 +1,134 @@
+package authorization.token;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes a month of access tokens to an {@code oauth_access_token} partitioned by expiration, see
+ * {@code db/migration/optional/partition_access_token_by_expiration.sql}, to show that write latency stays flat while {@link TokenPartitionManager} creates
+ * and drops the daily partitions. Every simulated day the manager runs with its clock on that day, then {@code tokensPerDay} tokens expiring within the day
+ * are stored, {@code concurrency} at a time, and the write latency percentiles of the day are printed with the rows left in the table.
+ * <p>
+ * Not a JMH benchmark, run it through the {@code jmh} profile with
+ * {@code -Djmh.main=authorization.token.PartitionedTokenStoreLoadTest -Djmh.args="[url] [days] [tokensPerDay] [concurrency]"}. Tokens already in the table
+ * are truncated.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public final class PartitionedTokenStoreLoadTest {
+
+  private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private final DatabaseClient databaseClient;
+
+  private final R2dbcTokenStore tokenStore;
+
+  private final TokenPartitionManager partitionManager;
+
+  private final int tokensPerDay;
+
+  private final int concurrency;
+
+  private PartitionedTokenStoreLoadTest(ConnectionFactory connectionFactory, int tokensPerDay, int concurrency) {
+    this.databaseClient = DatabaseClient.create(connectionFactory);
+    this.tokenStore = new R2dbcTokenStore(connectionFactory);
+    this.tokenStore.setPartitioned(true);
+    this.partitionManager = new TokenPartitionManager(connectionFactory);
+    this.tokensPerDay = tokensPerDay;
+    this.concurrency = concurrency;
+  }
+
+  public static void main(String[] args) {
+    String url = args.length > 0 ? args[0] : BenchmarkTokens.DEFAULT_URL;
+    int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    int tokensPerDay = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+    int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+    ConnectionFactory connectionFactory = ConnectionFactories.get(url);
+    try {
+      new PartitionedTokenStoreLoadTest(connectionFactory, tokensPerDay, concurrency).run(LocalDate.now(ZoneOffset.UTC), days);
+    } finally {
+      if (connectionFactory instanceof Disposable) {
+        ((Disposable) connectionFactory).dispose();
+      }
+    }
+  }
+
+  private void run(LocalDate start, int days) {
+    String relkind = databaseClient.sql("select relkind::text from pg_class where relname = 'oauth_access_token'")
+        .map((row, metadata) -> row.get(0, String.class))
+        .one()
+        .block();
+    if (!"p".equals(relkind)) {
+      throw new IllegalStateException("oauth_access_token is not partitioned, apply db/migration/optional/partition_access_token_by_expiration.sql first");
+    }
+    databaseClient.sql("truncate oauth_access_token, oauth_refresh_token").then().block();
+
+    // a day ahead of the month, for the JIT and the connection pool
+    simulateDay(start.minusDays(1), 0);
+    System.out.printf("%3s %-10s %9s %8s %8s %8s %8s %12s %10s %13s%n", "#", "day", "writes/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "partitions",
+        "rows", "default rows");
+    for (int day = 0; day < days; day++) {
+      simulateDay(start.plusDays(day), day + 1);
+    }
+  }
+
+  private void simulateDay(LocalDate day, int number) {
+    partitionManager.setClock(Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+    partitionManager.maintain().block();
+
+    long dayStart = day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    Histogram latencies = new ConcurrentHistogram(TimeUnit.SECONDS.toNanos(10), 3);
+    long started = System.nanoTime();
+    Flux.range(0, tokensPerDay)
+        .flatMap(i -> {
+          String value = day + "-" + i;
+          DefaultOAuth2AccessToken token = BenchmarkTokens.accessToken(value, new Date(dayStart + ThreadLocalRandom.current().nextLong(DAY_MILLIS)));
+          return timed(tokenStore.storeAccessToken(token, BenchmarkTokens.authentication("web-client", "user-" + i)), latencies);
+        }, concurrency)
+        .blockLast();
+    long elapsed = System.nanoTime() - started;
+    if (number == 0) {
+      return;
+    }
+
+    long partitions = count("select count(*) from pg_inherits where inhparent = 'oauth_access_token'::regclass");
+    long rows = count("select count(*) from oauth_access_token");
+    long defaultRows = count("select count(*) from oauth_access_token_default");
+    System.out.printf("%3d %s %9.0f %8.2f %8.2f %8.2f %8.2f %12d %10d %13d%n", number, day, tokensPerDay * 1e9 / elapsed,
+        millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+        millis(latencies.getMaxValue()), partitions, rows, defaultRows);
+  }
+
+  private static Mono<Void> timed(Mono<Void> write, Histogram latencies) {
+    return Mono.defer(() -> {
+      long started = System.nanoTime();
+      return write.doOnTerminate(() -> latencies.recordValue(Math.min(System.nanoTime() - started, latencies.getHighestTrackableValue())));
+    });
+  }
+
+  private long count(String sql) {
+    return databaseClient.sql(sql)
+        .map((row, metadata) -> row.get(0, Long.class))
+        .one()
+        .block();
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+}
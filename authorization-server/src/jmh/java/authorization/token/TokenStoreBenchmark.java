@@ -0,0 +1,118 @@
+package authorization.token;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Operations per second of {@link InMemoryReactiveTokenStore} against {@link R2dbcTokenStore}: logins storing an access and a refresh token, and resource
+ * requests reading a stored access token with its authentication. Every invocation runs {@value #OPERATIONS} operations, {@code concurrency} of them in
+ * flight at a time, over {@value #STORED} tokens stored at setup. The {@code url} parameter is only used by {@code r2dbc}.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TokenStoreBenchmark {
+
+  private static final int OPERATIONS = 1000;
+
+  private static final int STORED = 10_000;
+
+  @Param(BenchmarkTokens.DEFAULT_URL)
+  private String url;
+
+  @Param({"in-memory", "r2dbc"})
+  private String store;
+
+  @Param({"256"})
+  private int concurrency;
+
+  private final AtomicLong logins = new AtomicLong();
+
+  private final List<String> stored = new ArrayList<>(STORED);
+
+  private ConnectionFactory connectionFactory;
+
+  private ReactiveTokenStore tokenStore;
+
+  @Setup
+  public void setUp() {
+    if ("r2dbc".equals(store)) {
+      connectionFactory = ConnectionFactories.get(url);
+      DatabaseClient.create(connectionFactory)
+          .sql("truncate oauth_access_token, oauth_refresh_token")
+          .then()
+          .block();
+      tokenStore = new R2dbcTokenStore(connectionFactory);
+    } else {
+      tokenStore = new InMemoryReactiveTokenStore();
+    }
+    Date expiration = new Date(System.currentTimeMillis() + 86_400_000);
+    List<TokenWrite> writes = new ArrayList<>(STORED);
+    for (int i = 0; i < STORED; i++) {
+      DefaultOAuth2AccessToken token = BenchmarkTokens.accessToken("stored-" + i, expiration);
+      writes.add(new TokenWrite(token, token.getRefreshToken(), BenchmarkTokens.authentication("web-client", "stored-user-" + i)));
+      stored.add(token.getValue());
+    }
+    tokenStore.storeTokens(writes).block();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    if (tokenStore instanceof InMemoryReactiveTokenStore) {
+      ((InMemoryReactiveTokenStore) tokenStore).destroy();
+    }
+    if (connectionFactory instanceof Disposable) {
+      ((Disposable) connectionFactory).dispose();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public void storeTokens() {
+    Date expiration = new Date(System.currentTimeMillis() + 3_600_000);
+    Flux.range(0, OPERATIONS)
+        .flatMap(i -> {
+          long login = logins.incrementAndGet();
+          DefaultOAuth2AccessToken token = BenchmarkTokens.accessToken("login-" + login, expiration);
+          return tokenStore.storeTokens(token, token.getRefreshToken(), BenchmarkTokens.authentication("web-client", "user-" + login));
+        }, concurrency)
+        .blockLast();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public void readAccessTokenAndAuthentication() {
+    Flux.range(0, OPERATIONS)
+        .flatMap(i -> tokenStore.readAccessTokenAndAuthentication(stored.get(ThreadLocalRandom.current().nextInt(STORED))), concurrency)
+        .blockLast();
+  }
+}
@@ -0,0 +1,103 @@
+package authorization.token.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+/**
+ * Encodes and decodes a password grant token and its authentication with each {@link TokenCodec}, {@code jdk} being the Java serialization the token store
+ * used before. Run with {@code -prof gc} for the bytes allocated per operation; the size of each encoded blob is printed at setup.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCodecBenchmark {
+
+  @Param({"jdk", "compact"})
+  private String codec;
+
+  private TokenCodec tokenCodec;
+
+  private OAuth2AccessToken accessToken;
+
+  private OAuth2Authentication authentication;
+
+  private byte[] encodedAccessToken;
+
+  private byte[] encodedAuthentication;
+
+  @Setup
+  public void setUp() {
+    tokenCodec = "jdk".equals(codec) ? new JdkSerializationTokenCodec() : new CompactTokenCodec();
+
+    DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("5c3d1f0e-8d2b-4c8e-9a57-3e1f0b6d2a41");
+    token.setExpiration(new Date(System.currentTimeMillis() + 3_600_000));
+    token.setScope(new HashSet<>(Arrays.asList("read", "write")));
+    token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken("0a9e2b7c-41d6-4f03-b8e5-6c2d9f1a7b30",
+        new Date(System.currentTimeMillis() + 86_400_000)));
+    token.setAdditionalInformation(Collections.singletonMap("tenant", "acme"));
+    accessToken = token;
+
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("grant_type", "password");
+    parameters.put("username", "alice");
+    parameters.put("scope", "read write");
+    OAuth2Request request = new OAuth2Request(parameters, "web-client", AuthorityUtils.createAuthorityList("ROLE_CLIENT"), true,
+        new HashSet<>(Arrays.asList("read", "write")), Collections.singleton("api"), null, null, null);
+    authentication = new OAuth2Authentication(request,
+        new UsernamePasswordAuthenticationToken("alice", null, AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN")));
+
+    encodedAccessToken = tokenCodec.encodeAccessToken(accessToken);
+    encodedAuthentication = tokenCodec.encodeAuthentication(authentication);
+    System.out.println(codec + ": access token " + encodedAccessToken.length + " bytes, authentication " + encodedAuthentication.length + " bytes");
+  }
+
+  @Benchmark
+  public byte[] encodeAccessToken() {
+    return tokenCodec.encodeAccessToken(accessToken);
+  }
+
+  @Benchmark
+  public OAuth2AccessToken decodeAccessToken() {
+    return tokenCodec.decodeAccessToken(ByteBuffer.wrap(encodedAccessToken));
+  }
+
+  @Benchmark
+  public byte[] encodeAuthentication() {
+    return tokenCodec.encodeAuthentication(authentication);
+  }
+
+  @Benchmark
+  public OAuth2Authentication decodeAuthentication() {
+    return tokenCodec.decodeAuthentication(ByteBuffer.wrap(encodedAuthentication));
+  }
+}
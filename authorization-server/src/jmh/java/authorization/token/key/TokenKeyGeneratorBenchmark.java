@@ -0,0 +1,66 @@
+package authorization.token.key;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Keys a token value the way {@code R2dbcTokenStore#extractTokenKey} used to, looking up a new MD5 digest and formatting through {@link BigInteger}, against
+ * the {@link TokenKeyGenerator}s. Run with {@code -prof gc} for the bytes allocated per key.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TokenKeyGeneratorBenchmark {
+
+  private final String value = UUID.randomUUID().toString();
+
+  private final TokenKeyGenerator md5 = new Md5TokenKeyGenerator();
+
+  private final TokenKeyGenerator sha256 = new Sha256TokenKeyGenerator();
+
+  private final TokenKeyGenerator migrating = new MigratingTokenKeyGenerator(sha256, md5);
+
+  @Benchmark
+  public String legacyMd5() throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("MD5");
+    byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+    return String.format("%032x", new BigInteger(1, bytes));
+  }
+
+  @Benchmark
+  public String md5() {
+    return md5.extractKey(value);
+  }
+
+  @Benchmark
+  public String sha256() {
+    return sha256.extractKey(value);
+  }
+
+  @Benchmark
+  public List<String> migratingLookupKeys() {
+    return migrating.extractLookupKeys(value);
+  }
+}
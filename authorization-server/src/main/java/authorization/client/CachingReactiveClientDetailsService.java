@@ -0,0 +1,164 @@
+package authorization.client;
+
+import authorization.r2dbc.InvalidationListener;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import org.reactivestreams.Publisher;
+import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache in front of any {@link ReactiveClientDetailsService}. Concurrent misses for the same client share a single load, and a client read again
+ * after the refresh interval is reloaded in the background while the cached one is still served, so clients in use are never loaded on the request path.
+ * Clients not read for the time to live are dropped.
+ * <p>
+ * Changes made through this service invalidate the client both before the delegate is called and again once it has completed. Register it on an
+ * {@link authorization.r2dbc.InvalidationBus} to also drop clients changed on other nodes, otherwise those are picked up by the next refresh.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class CachingReactiveClientDetailsService implements ReactiveClientDetailsService, ReactiveClientRegistrationService, InvalidationListener {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+  public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+  @Getter
+  private final ReactiveClientDetailsService delegate;
+
+  private final AsyncLoadingCache<String, CachedClient> cache;
+
+  // bumped by every invalidation, which cannot see loads still in flight; a load that overlaps one is served once but not kept
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public CachingReactiveClientDetailsService(ReactiveClientDetailsService delegate) {
+    this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE, DEFAULT_REFRESH_INTERVAL);
+  }
+
+  public CachingReactiveClientDetailsService(ReactiveClientDetailsService delegate, long maximumSize, Duration timeToLive, Duration refreshInterval) {
+    Assert.notNull(delegate, "Delegate required");
+    Assert.isTrue(refreshInterval.compareTo(timeToLive) < 0, "Refresh interval must be shorter than the time to live");
+    this.delegate = delegate;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterAccess(timeToLive)
+        .refreshAfterWrite(refreshInterval)
+        .buildAsync((clientId, executor) -> load(clientId).toFuture());
+  }
+
+  @Override
+  public Mono<ClientDetails> loadClientByClientId(String clientId) throws ClientRegistrationException {
+    return Mono.fromFuture(() -> cache.get(clientId))
+        .doOnNext(client -> {
+          if (client.racedInvalidation) {
+            cache.synchronous().asMap().remove(clientId, client);
+          }
+        })
+        .map(client -> client.details);
+  }
+
+  @Override
+  public Mono<Void> addClientDetails(ClientDetails clientDetails) throws ClientAlreadyExistsException {
+    return invalidating(clientDetails.getClientId(), Mono.defer(() -> registrationService().addClientDetails(clientDetails)));
+  }
+
+  @Override
+  public Mono<Void> updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
+    return invalidating(clientDetails.getClientId(), Mono.defer(() -> registrationService().updateClientDetails(clientDetails)));
+  }
+
+  @Override
+  public Mono<Void> updateClientSecret(String clientId, String secret) throws NoSuchClientException {
+    return invalidating(clientId, Mono.defer(() -> registrationService().updateClientSecret(clientId, secret)));
+  }
+
+  @Override
+  public Mono<Void> removeClientDetails(String clientId) throws NoSuchClientException {
+    return invalidating(clientId, Mono.defer(() -> registrationService().removeClientDetails(clientId)));
+  }
+
+  /**
+   * Not cached, listings read every client once.
+   */
+  @Override
+  public Flux<ClientDetails> listClientDetails() {
+    return Flux.defer(() -> registrationService().listClientDetails());
+  }
+
+  /**
+   * Imported clients are invalidated once they are reported, in case they were looked up while missing.
+   */
+  @Override
+  public Flux<ClientImportResult> importClientDetails(Publisher<? extends ClientDetails> clients) {
+    return Flux.defer(() -> registrationService().importClientDetails(clients))
+        .doOnNext(result -> {
+          if (result.isImported()) {
+            invalidate(result.getClientId());
+          }
+        });
+  }
+
+  @Override
+  public Flux<ClientDetails> exportClientDetails(int pageSize) {
+    return Flux.defer(() -> registrationService().exportClientDetails(pageSize));
+  }
+
+  @Override
+  public void invalidate(String type, String key) {
+    if (R2dbcClientDetailsService.CLIENT_INVALIDATION.equals(type)) {
+      invalidate(key);
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    invalidations.incrementAndGet();
+    cache.synchronous().invalidateAll();
+  }
+
+  public void invalidate(String clientId) {
+    invalidations.incrementAndGet();
+    cache.synchronous().invalidate(clientId);
+  }
+
+  private Mono<CachedClient> load(String clientId) {
+    long started = invalidations.get();
+    return delegate.loadClientByClientId(clientId)
+        .map(details -> new CachedClient(details, invalidations.get() != started));
+  }
+
+  private Mono<Void> invalidating(String clientId, Mono<Void> operation) {
+    return Mono.fromRunnable(() -> invalidate(clientId))
+        .then(operation)
+        .doOnTerminate(() -> invalidate(clientId));
+  }
+
+  private ReactiveClientRegistrationService registrationService() {
+    if (!(delegate instanceof ReactiveClientRegistrationService)) {
+      throw new UnsupportedOperationException("Client details service does not support registration: " + delegate.getClass().getName());
+    }
+    return (ReactiveClientRegistrationService) delegate;
+  }
+
+  private static final class CachedClient {
+
+    private final ClientDetails details;
+    private final boolean racedInvalidation;
+
+    private CachedClient(ClientDetails details, boolean racedInvalidation) {
+      this.details = details;
+      this.racedInvalidation = racedInvalidation;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package authorization.client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Clients loaded while handling one request, memoized in the Reactor {@link Context}. The token endpoint, request factory, token granter and token services
+ * all load the client through {@link #loadClient(ReactiveClientDetailsService, String)}, so a token request looks its client up once however many of them
+ * need it. Outside of a request memoized with {@link #memoize()} every call goes to the client details service.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public final class ClientDetailsContext {
+
+  private static final Class<ClientDetailsContext> KEY = ClientDetailsContext.class;
+
+  private ClientDetailsContext() {
+  }
+
+  /**
+   * For {@link Mono#contextWrite(Function)} at the end of the request pipeline. A memo already in the context is kept.
+   */
+  public static Function<Context, Context> memoize() {
+    return context -> context.hasKey(KEY) ? context : context.put(KEY, new ConcurrentHashMap<String, Mono<ClientDetails>>());
+  }
+
+  /**
+   * Load the client, or reuse the result of an earlier load within the same memoized request, failures and unknown clients included.
+   */
+  public static Mono<ClientDetails> loadClient(ReactiveClientDetailsService clientDetailsService, String clientId) {
+    if (clientId == null) {
+      return clientDetailsService.loadClientByClientId(null);
+    }
+    return Mono.deferContextual(context -> context.<Map<String, Mono<ClientDetails>>>getOrEmpty(KEY)
+        .map(memo -> memo.computeIfAbsent(clientId, id -> clientDetailsService.loadClientByClientId(id).cache()))
+        .orElseGet(() -> clientDetailsService.loadClientByClientId(clientId)));
+  }
+}
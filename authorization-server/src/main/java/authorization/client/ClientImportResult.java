@@ -0,0 +1,42 @@
+package authorization.client;
+
+import lombok.Getter;
+
+/**
+ * What became of one client passed to {@link ReactiveClientRegistrationService#importClientDetails}.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@Getter
+public final class ClientImportResult {
+
+  private final String clientId;
+
+  /**
+   * Why the client was not imported, {@link org.springframework.security.oauth2.provider.ClientAlreadyExistsException} for an existing client id.
+   */
+  private final Throwable error;
+
+  private ClientImportResult(String clientId, Throwable error) {
+    this.clientId = clientId;
+    this.error = error;
+  }
+
+  public static ClientImportResult imported(String clientId) {
+    return new ClientImportResult(clientId, null);
+  }
+
+  public static ClientImportResult failed(String clientId, Throwable error) {
+    return new ClientImportResult(clientId, error);
+  }
+
+  public boolean isImported() {
+    return error == null;
+  }
+
+  @Override
+  public String toString() {
+    return isImported() ? clientId + ": imported" : clientId + ": " + error;
+  }
+}
@@ -0,0 +1,149 @@
+package authorization.client;
+
+import authorization.r2dbc.InvalidationListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Checks client secrets against the encoded secrets of their clients. A deliberately slow {@link PasswordEncoder} such as BCrypt runs on a bounded scheduler
+ * of its own rather than on the event loop, and once a secret has matched it is remembered for the time to live, so repeated calls of the same client skip
+ * the encoder. The plain secret is never kept: the client is mapped to an HMAC of its id, the secret and the encoded secret, under a key generated per
+ * instance. A new encoded secret therefore never matches an old entry. Without an encoder, secrets are stored as they are and compared directly.
+ * <p>
+ * Entries are dropped by {@link #invalidate(String)}, which {@link R2dbcClientDetailsService} calls for the clients it changes when given this verifier. Register
+ * it on an {@link authorization.r2dbc.InvalidationBus} to also drop clients changed on other nodes.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class ClientSecretVerifier implements InvalidationListener, DisposableBean {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+  public static final int DEFAULT_MAXIMUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private static final int MAXIMUM_QUEUED = 10_000;
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+
+  // null for plain secrets, whose comparisons are cheaper than the hash keying the cache
+  private final PasswordEncoder passwordEncoder;
+
+  private final Scheduler scheduler;
+
+  private final Cache<String, byte[]> verified;
+
+  private final ThreadLocal<Mac> mac;
+
+  /**
+   * Compare plain secrets, without a scheduler or cache.
+   */
+  public ClientSecretVerifier() {
+    this.passwordEncoder = null;
+    this.scheduler = Schedulers.immediate();
+    this.verified = null;
+    this.mac = null;
+  }
+
+  public ClientSecretVerifier(PasswordEncoder passwordEncoder) {
+    this(passwordEncoder, DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE, DEFAULT_MAXIMUM_THREADS);
+  }
+
+  public ClientSecretVerifier(PasswordEncoder passwordEncoder, long maximumSize, Duration timeToLive, int maximumThreads) {
+    Assert.notNull(passwordEncoder, "Password encoder required");
+    this.passwordEncoder = passwordEncoder;
+    this.scheduler = Schedulers.newBoundedElastic(maximumThreads, MAXIMUM_QUEUED, "client-secret", 60, true);
+    this.verified = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .build();
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    SecretKeySpec keySpec = new SecretKeySpec(key, MAC_ALGORITHM);
+    this.mac = ThreadLocal.withInitial(() -> {
+      try {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(keySpec);
+        return mac;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.dispose();
+  }
+
+  /**
+   * Whether {@code rawSecret} is the secret of the client. Fails when too many verifications are already waiting for the encoder.
+   */
+  public Mono<Boolean> matches(ClientDetails client, String rawSecret) {
+    String encodedSecret = client.getClientSecret();
+    if (encodedSecret == null || rawSecret == null) {
+      return Mono.just(false);
+    }
+    if (passwordEncoder == null) {
+      return Mono.just(MessageDigest.isEqual(rawSecret.getBytes(StandardCharsets.UTF_8), encodedSecret.getBytes(StandardCharsets.UTF_8)));
+    }
+    String clientId = client.getClientId();
+    byte[] digest = digest(clientId, rawSecret, encodedSecret);
+    byte[] known = verified.getIfPresent(clientId);
+    if (known != null && MessageDigest.isEqual(known, digest)) {
+      return Mono.just(true);
+    }
+    return Mono.fromCallable(() -> passwordEncoder.matches(rawSecret, encodedSecret))
+        .subscribeOn(scheduler)
+        .doOnNext(matches -> {
+          if (matches) {
+            verified.put(clientId, digest);
+          }
+        });
+  }
+
+  public void invalidate(String clientId) {
+    if (verified != null) {
+      verified.invalidate(clientId);
+    }
+  }
+
+  @Override
+  public void invalidate(String type, String key) {
+    if (R2dbcClientDetailsService.CLIENT_INVALIDATION.equals(type)) {
+      invalidate(key);
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    if (verified != null) {
+      verified.invalidateAll();
+    }
+  }
+
+  private byte[] digest(String clientId, String rawSecret, String encodedSecret) {
+    Mac mac = this.mac.get();
+    mac.update(clientId.getBytes(StandardCharsets.UTF_8));
+    mac.update((byte) 0);
+    mac.update(rawSecret.getBytes(StandardCharsets.UTF_8));
+    mac.update((byte) 0);
+    return mac.doFinal(encodedSecret.getBytes(StandardCharsets.UTF_8));
+  }
+}
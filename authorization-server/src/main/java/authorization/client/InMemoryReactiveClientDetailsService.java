@@ -0,0 +1,265 @@
+package authorization.client;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves clients from an immutable snapshot, so a lookup is a single map probe returning a prebuilt {@link Mono}. The clients in the snapshot are read-only
+ * copies whose scopes, grant types, authorities and additional information are parsed once, when the snapshot is taken.
+ * <p>
+ * Built on a {@link R2dbcClientDetailsService}, the snapshot is the whole client table. The table version from
+ * {@code db/migration/006_client_details_version.sql} is polled, and when it has moved the table is read again into a new snapshot that then replaces the
+ * old one. Until the first snapshot is loaded lookups go to the source. Client changes therefore show up within one poll interval, on every node.
+ * Registration, import and export go to the source, and their changes show up the same way. A fixed set of clients cannot be changed.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class InMemoryReactiveClientDetailsService implements ReactiveClientDetailsService, ReactiveClientRegistrationService, DisposableBean {
+
+  private static final Log LOG = LogFactory.getLog(InMemoryReactiveClientDetailsService.class);
+
+  public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(5);
+
+  private final R2dbcClientDetailsService source;
+
+  private final Disposable poller;
+
+  private volatile Map<String, Mono<ClientDetails>> clients;
+
+  // only touched by the poller
+  private Long version;
+
+  /**
+   * Serve a fixed set of clients, keyed by client id.
+   */
+  public InMemoryReactiveClientDetailsService(Map<String, ? extends ClientDetails> clients) {
+    this.source = null;
+    this.poller = null;
+    this.clients = snapshot(clients.values());
+  }
+
+  public InMemoryReactiveClientDetailsService(R2dbcClientDetailsService source) {
+    this(source, DEFAULT_POLL_INTERVAL);
+  }
+
+  public InMemoryReactiveClientDetailsService(R2dbcClientDetailsService source, Duration pollInterval) {
+    Assert.notNull(source, "Client details source required");
+    this.source = source;
+    this.poller = Flux.interval(Duration.ZERO, pollInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> poll()
+            .onErrorResume(e -> {
+              LOG.warn("Failed to reload client details", e);
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    if (poller != null) {
+      poller.dispose();
+    }
+  }
+
+  @Override
+  public Mono<ClientDetails> loadClientByClientId(String clientId) throws ClientRegistrationException {
+    Map<String, Mono<ClientDetails>> snapshot = clients;
+    if (snapshot == null) {
+      return source.loadClientByClientId(clientId);
+    }
+    Mono<ClientDetails> client = snapshot.get(clientId);
+    return client != null ? client : Mono.error(() -> new NoSuchClientException("No client with requested id: " + clientId));
+  }
+
+  @Override
+  public Mono<Void> addClientDetails(ClientDetails clientDetails) throws ClientAlreadyExistsException {
+    return Mono.defer(() -> source().addClientDetails(clientDetails));
+  }
+
+  @Override
+  public Mono<Void> updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
+    return Mono.defer(() -> source().updateClientDetails(clientDetails));
+  }
+
+  @Override
+  public Mono<Void> updateClientSecret(String clientId, String secret) throws NoSuchClientException {
+    return Mono.defer(() -> source().updateClientSecret(clientId, secret));
+  }
+
+  @Override
+  public Mono<Void> removeClientDetails(String clientId) throws NoSuchClientException {
+    return Mono.defer(() -> source().removeClientDetails(clientId));
+  }
+
+  /**
+   * From the source, or the fixed set of clients.
+   */
+  @Override
+  public Flux<ClientDetails> listClientDetails() {
+    if (source == null) {
+      return Flux.fromIterable(clients.values()).concatMap(client -> client);
+    }
+    return source.listClientDetails();
+  }
+
+  @Override
+  public Flux<ClientImportResult> importClientDetails(Publisher<? extends ClientDetails> clients) {
+    return Flux.defer(() -> source().importClientDetails(clients));
+  }
+
+  @Override
+  public Flux<ClientDetails> exportClientDetails(int pageSize) {
+    if (source == null) {
+      return listClientDetails();
+    }
+    return source.exportClientDetails(pageSize);
+  }
+
+  private R2dbcClientDetailsService source() {
+    if (source == null) {
+      throw new UnsupportedOperationException("A fixed set of clients cannot be changed");
+    }
+    return source;
+  }
+
+  private Mono<Void> poll() {
+    return source.clientsVersion()
+        .filter(current -> !current.equals(version))
+        .flatMap(current -> source.listClientDetails()
+            .collectList()
+            .doOnNext(list -> {
+              // the version is read first, so changes made during the listing are picked up by the next poll
+              clients = snapshot(list);
+              version = current;
+              LOG.debug("Loaded " + list.size() + " clients at version " + current);
+            }))
+        .then();
+  }
+
+  private static Map<String, Mono<ClientDetails>> snapshot(Collection<? extends ClientDetails> clients) {
+    Map<String, Mono<ClientDetails>> snapshot = new HashMap<>((int) (clients.size() / 0.75f) + 1);
+    for (ClientDetails client : clients) {
+      snapshot.put(client.getClientId(), Mono.just(new FrozenClientDetails(client)));
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+
+  private static final class FrozenClientDetails implements ClientDetails {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ClientDetails client;
+    private final Set<String> resourceIds;
+    private final Set<String> scope;
+    private final Set<String> authorizedGrantTypes;
+    private final Set<String> registeredRedirectUri;
+    private final Collection<GrantedAuthority> authorities;
+    private final Map<String, Object> additionalInformation;
+
+    private FrozenClientDetails(ClientDetails client) {
+      this.client = client;
+      this.resourceIds = freeze(client.getResourceIds());
+      this.scope = freeze(client.getScope());
+      this.authorizedGrantTypes = freeze(client.getAuthorizedGrantTypes());
+      this.registeredRedirectUri = freeze(client.getRegisteredRedirectUri());
+      this.authorities = client.getAuthorities() == null ? null : Collections.unmodifiableCollection(new LinkedHashSet<>(client.getAuthorities()));
+      this.additionalInformation =
+          client.getAdditionalInformation() == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(client.getAdditionalInformation()));
+    }
+
+    private static Set<String> freeze(Set<String> values) {
+      return values == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(values));
+    }
+
+    @Override
+    public String getClientId() {
+      return client.getClientId();
+    }
+
+    @Override
+    public Set<String> getResourceIds() {
+      return resourceIds;
+    }
+
+    @Override
+    public boolean isSecretRequired() {
+      return client.isSecretRequired();
+    }
+
+    @Override
+    public String getClientSecret() {
+      return client.getClientSecret();
+    }
+
+    @Override
+    public boolean isScoped() {
+      return client.isScoped();
+    }
+
+    @Override
+    public Set<String> getScope() {
+      return scope;
+    }
+
+    @Override
+    public Set<String> getAuthorizedGrantTypes() {
+      return authorizedGrantTypes;
+    }
+
+    @Override
+    public Set<String> getRegisteredRedirectUri() {
+      return registeredRedirectUri;
+    }
+
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+      return authorities;
+    }
+
+    @Override
+    public Integer getAccessTokenValiditySeconds() {
+      return client.getAccessTokenValiditySeconds();
+    }
+
+    @Override
+    public Integer getRefreshTokenValiditySeconds() {
+      return client.getRefreshTokenValiditySeconds();
+    }
+
+    @Override
+    public boolean isAutoApprove(String scope) {
+      return client.isAutoApprove(scope);
+    }
+
+    @Override
+    public Map<String, Object> getAdditionalInformation() {
+      return additionalInformation;
+    }
+
+    @Override
+    public String toString() {
+      return client.toString();
+    }
+  }
+}
@@ -1,15 +1,25 @@
 package authorization.client;
 
+import authorization.r2dbc.Bindings;
+import authorization.r2dbc.InvalidationBus;
+import authorization.r2dbc.ReadRouting;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.Row;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import lombok.Setter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
@@ -25,12 +35,28 @@ import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * @author VuDo
  * @since 2/11/2021
  */
-public class R2dbcClientDetailsService implements ReactiveClientDetailsService, ReactiveClientRegistrationService {
+public class R2dbcClientDetailsService implements ReactiveClientDetailsService, ReactiveClientRegistrationService, MeterBinder {
+
+  /**
+   * Type of the invalidations published when a client is changed or removed, keyed by client id.
+   */
+  public static final String CLIENT_INVALIDATION = "cd";
+
+  public static final int DEFAULT_IMPORT_BATCH_SIZE = 500;
+
+  private static final String[] CLIENT_PARAMETERS = {"clientSecret", "resourceIds", "scope", "authorizedGrantTypes", "webServerRedirectUri", "authorities",
+      "accessTokenValidity", "refreshTokenValidity", "additionalInformation", "autoapprove", "clientId"};
+  private static final Class<?>[] CLIENT_PARAMETER_TYPES = {String.class, String.class, String.class, String.class, String.class, String.class,
+      Integer.class, Integer.class, String.class, String.class, String.class};
+
+  // Postgres takes at most 32767 parameters per statement
+  private static final int MAXIMUM_IMPORT_BATCH_SIZE = Short.MAX_VALUE / CLIENT_PARAMETERS.length;
 
   private static final Log logger = LogFactory.getLog(R2dbcClientDetailsService.class);
   private static final String CLIENT_FIELDS_FOR_UPDATE = "resource_ids, scope, "
@@ -41,21 +67,64 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
   private static final String BASE_FIND_STATEMENT = "select client_id, " + CLIENT_FIELDS + " from oauth_client_details";
   private static final String DEFAULT_FIND_STATEMENT = BASE_FIND_STATEMENT + " order by client_id";
   private static final String DEFAULT_SELECT_STATEMENT = BASE_FIND_STATEMENT + " where client_id = :clientId";
+  private static final String DEFAULT_FIND_PAGE_STATEMENT = BASE_FIND_STATEMENT + " where client_id > :after order by client_id limit :limit";
   private static final String DEFAULT_INSERT_STATEMENT =
       "insert into oauth_client_details (" + CLIENT_FIELDS + ", client_id) values (?,?,?,?,?,?,?,?,?,?,?)";
+  private static final String BULK_INSERT = "insert into oauth_client_details (" + CLIENT_FIELDS + ", client_id) values ";
+  // existing clients are reported, not overwritten
+  private static final String BULK_INSERT_ON_CONFLICT = " on conflict (client_id) do nothing returning client_id";
   private static final String DEFAULT_UPDATE_STATEMENT = "update oauth_client_details " + "set "
       + CLIENT_FIELDS_FOR_UPDATE.replaceAll(", ", "=?, ") + "=? where client_id = ?";
   private static final String DEFAULT_UPDATE_SECRET_STATEMENT =
       "update oauth_client_details " + "set client_secret = :clientSecret where client_id = :clientId";
   private static final String DEFAULT_DELETE_STATEMENT = "delete from oauth_client_details where client_id = :clientId";
+  private static final String DEFAULT_VERSION_STATEMENT = "select version from oauth_client_details_version";
   private final R2dbcEntityTemplate template;
+  private final ReadRouting readRouting;
   private final ObjectMapper mapper = new ObjectMapper();
   @Setter
   private PasswordEncoder passwordEncoder = NoOpPasswordEncoder.getInstance();
+  /**
+   * Bus that client changes are published on, for the client caches of other nodes.
+   */
+  @Setter
+  private InvalidationBus invalidationBus;
+  /**
+   * Verifier whose remembered secrets are dropped for the clients changed here.
+   */
+  @Setter
+  private ClientSecretVerifier clientSecretVerifier;
 
   public R2dbcClientDetailsService(ConnectionFactory connectionFactory) {
+    this(connectionFactory, connectionFactory);
+  }
+
+  /**
+   * @param readConnectionFactory read replica that client lookups and listings go to, see {@link ReadRouting}
+   */
+  public R2dbcClientDetailsService(ConnectionFactory connectionFactory, ConnectionFactory readConnectionFactory) {
     Assert.notNull(connectionFactory, "Connection Factory required");
     template = new R2dbcEntityTemplate(connectionFactory);
+    readRouting = new ReadRouting("clients", connectionFactory, readConnectionFactory);
+  }
+
+  /**
+   * How long after being changed here a client is still read from the primary rather than the read replica.
+   */
+  public void setReplicaLagWindow(Duration lagWindow) {
+    readRouting.setLagWindow(lagWindow);
+  }
+
+  /**
+   * Whether a client not found on the read replica is looked up again on the primary.
+   */
+  public void setReplicaFallbackOnMiss(boolean fallbackOnMiss) {
+    readRouting.setFallbackOnMiss(fallbackOnMiss);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    readRouting.bindTo(registry);
   }
 
   @Override
@@ -77,17 +146,20 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
 
   @Override
   public Mono<Void> updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
-    return updateClientDetailsSql(clientDetails);
+    return updateClientDetailsSql(clientDetails)
+        .doOnSuccess(v -> publish(clientDetails.getClientId()));
   }
 
   @Override
   public Mono<Void> updateClientSecret(String clientId, String secret) throws NoSuchClientException {
-    return updateClientSecretSql(clientId, secret);
+    return updateClientSecretSql(clientId, secret)
+        .doOnSuccess(v -> publish(clientId));
   }
 
   @Override
   public Mono<Void> removeClientDetails(String clientId) throws NoSuchClientException {
-    return deleteClientDetailsSql(clientId);
+    return deleteClientDetailsSql(clientId)
+        .doOnSuccess(v -> publish(clientId));
   }
 
   @Override
@@ -95,22 +167,78 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
     return findClientDetailsSql();
   }
 
+  /**
+   * Insert clients {@value #DEFAULT_IMPORT_BATCH_SIZE} rows per statement, see {@link #importClientDetails(Publisher, int)}.
+   */
+  @Override
+  public Flux<ClientImportResult> importClientDetails(Publisher<? extends ClientDetails> clients) {
+    return importClientDetails(clients, DEFAULT_IMPORT_BATCH_SIZE);
+  }
+
+  /**
+   * Insert clients {@code batchSize} rows per statement, one statement at a time. Secrets are encoded off the event loop. A batch the database rejects is
+   * inserted again row by row, so that the failure is reported against the clients that caused it.
+   */
+  public Flux<ClientImportResult> importClientDetails(Publisher<? extends ClientDetails> clients, int batchSize) {
+    Assert.isTrue(batchSize > 0 && batchSize <= MAXIMUM_IMPORT_BATCH_SIZE, "Batch size must be between 1 and " + MAXIMUM_IMPORT_BATCH_SIZE);
+    return Flux.from(clients)
+        .buffer(batchSize)
+        .concatMap(batch -> Mono.fromCallable(() -> prepareImport(batch))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(this::importClients), 1);
+  }
+
+  /**
+   * Clients in client id order, read by keyset {@code pageSize} rows at a time. The next page is only queried once downstream has requested past the
+   * current one.
+   */
+  @Override
+  public Flux<ClientDetails> exportClientDetails(int pageSize) {
+    Assert.isTrue(pageSize > 0, "Page size must be positive");
+    return selectClientDetailsPageSql("", pageSize)
+        .expand(clients -> clients.size() < pageSize ? Mono.empty() : selectClientDetailsPageSql(clients.get(clients.size() - 1).getClientId(), pageSize))
+        .flatMapIterable(clients -> clients, 1);
+  }
+
+  /**
+   * Version of the client table, moved by every change to it once {@code db/migration/006_client_details_version.sql} is applied. Read from the same
+   * connection factory as {@link #listClientDetails()}.
+   */
+  public Mono<Long> clientsVersion() {
+    return readRouting.readAll(client -> client
+        .sql(DEFAULT_VERSION_STATEMENT)
+        .map(row -> row.get(0, Long.class))
+        .all())
+        .next();
+  }
+
   private Flux<ClientDetails> findClientDetailsSql() {
-    return template.getDatabaseClient()
+    return readRouting.readAll(client -> client
         .sql(DEFAULT_FIND_STATEMENT)
         .map(this::mapRow)
-        .all();
+        .all());
+  }
+
+  private Mono<List<ClientDetails>> selectClientDetailsPageSql(String after, int limit) {
+    return readRouting.readAll(client -> client
+        .sql(DEFAULT_FIND_PAGE_STATEMENT)
+        .bind("after", after)
+        .bind("limit", limit)
+        .map(this::mapRow)
+        .all())
+        .collectList();
   }
 
   private Mono<ClientDetails> selectClientDetailsSql(String clientId) {
-    return template.getDatabaseClient()
+    return readRouting.read(clientId, client -> client
         .sql(DEFAULT_SELECT_STATEMENT)
         .bind("clientId", clientId)
         .map(this::mapRow)
-        .one();
+        .one());
   }
 
   private Mono<Void> insertClientDetailsSql(ClientDetails clientDetails) {
+    readRouting.written(clientDetails.getClientId());
     GenericExecuteSpec sql = template.getDatabaseClient().sql(DEFAULT_INSERT_STATEMENT);
     Object[] fields = getFields(clientDetails);
     for (int i = 0; i < fields.length; i++) {
@@ -119,7 +247,74 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
     return sql.then();
   }
 
+  private List<ImportRow> prepareImport(List<? extends ClientDetails> clients) {
+    List<ImportRow> rows = new ArrayList<>(clients.size());
+    for (ClientDetails client : clients) {
+      try {
+        Assert.notNull(client.getClientId(), "Client id required");
+        rows.add(new ImportRow(client.getClientId(), getFields(client), null));
+      } catch (RuntimeException e) {
+        rows.add(new ImportRow(client.getClientId(), null, e));
+      }
+    }
+    return rows;
+  }
+
+  private Flux<ClientImportResult> importClients(List<ImportRow> rows) {
+    List<ImportRow> insertable = new ArrayList<>(rows.size());
+    for (ImportRow row : rows) {
+      if (row.error == null) {
+        insertable.add(row);
+      }
+    }
+    Mono<Set<String>> inserted = insertable.isEmpty() ? Mono.just(new HashSet<>()) : insertClientDetailsSql(insertable);
+    return inserted
+        .flatMapIterable(clientIds -> importResults(rows, clientIds))
+        .onErrorResume(e -> rows.size() == 1 ? Flux.just(ClientImportResult.failed(rows.get(0).clientId, e))
+            : Flux.fromIterable(rows).concatMap(row -> importClients(Collections.singletonList(row))));
+  }
+
+  private List<ClientImportResult> importResults(List<ImportRow> rows, Set<String> inserted) {
+    List<ClientImportResult> results = new ArrayList<>(rows.size());
+    for (ImportRow row : rows) {
+      if (row.error != null) {
+        results.add(ClientImportResult.failed(row.clientId, row.error));
+      } else if (inserted.remove(row.clientId)) {
+        results.add(ClientImportResult.imported(row.clientId));
+      } else {
+        // taken before the import, or earlier in the same batch
+        results.add(ClientImportResult.failed(row.clientId, new ClientAlreadyExistsException("Client already exists: " + row.clientId)));
+      }
+    }
+    return results;
+  }
+
+  private Mono<Set<String>> insertClientDetailsSql(List<ImportRow> rows) {
+    StringBuilder statement = new StringBuilder(BULK_INSERT);
+    for (int i = 0; i < rows.size(); i++) {
+      statement.append(i == 0 ? "(" : ", (");
+      for (int field = 0; field < CLIENT_PARAMETERS.length; field++) {
+        statement.append(field == 0 ? ":" : ", :").append(CLIENT_PARAMETERS[field]).append(i);
+      }
+      statement.append(')');
+    }
+    statement.append(BULK_INSERT_ON_CONFLICT);
+    Bindings sql = new Bindings();
+    for (int i = 0; i < rows.size(); i++) {
+      Object[] fields = rows.get(i).fields;
+      for (int field = 0; field < fields.length; field++) {
+        sql.bindNullable(CLIENT_PARAMETERS[field] + i, fields[field], CLIENT_PARAMETER_TYPES[field]);
+      }
+    }
+    return sql.positional(template.getDatabaseClient(), statement.toString())
+        .map(row -> row.get(0, String.class))
+        .all()
+        .doOnNext(readRouting::written)
+        .collect(HashSet::new, Set::add);
+  }
+
   private Mono<Void> updateClientDetailsSql(ClientDetails clientDetails) {
+    readRouting.written(clientDetails.getClientId());
     GenericExecuteSpec sql = template.getDatabaseClient().sql(DEFAULT_UPDATE_STATEMENT);
     Object[] fields = getFieldsForUpdate(clientDetails);
     for (int i = 0; i < fields.length; i++) {
@@ -129,6 +324,7 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
   }
 
   private Mono<Void> updateClientSecretSql(String clientId, String secret) {
+    readRouting.written(clientId);
     return template.getDatabaseClient().sql(DEFAULT_UPDATE_SECRET_STATEMENT)
         .bind("clientSecret", passwordEncoder.encode(secret))
         .bind("clientId", clientId)
@@ -136,11 +332,21 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
   }
 
   private Mono<Void> deleteClientDetailsSql(String clientId) {
+    readRouting.written(clientId);
     return template.getDatabaseClient().sql(DEFAULT_DELETE_STATEMENT)
         .bind("clientId", clientId)
         .then();
   }
 
+  private void publish(String clientId) {
+    if (clientSecretVerifier != null) {
+      clientSecretVerifier.invalidate(clientId);
+    }
+    if (invalidationBus != null) {
+      invalidationBus.publish(CLIENT_INVALIDATION, clientId);
+    }
+  }
+
   private Object[] getFields(ClientDetails clientDetails) {
     Object[] fieldsForUpdate = getFieldsForUpdate(clientDetails);
     Object[] fields = new Object[fieldsForUpdate.length + 1];
@@ -212,4 +418,18 @@ public class R2dbcClientDetailsService implements ReactiveClientDetailsService,
     }
     return StringUtils.collectionToCommaDelimitedString(scopes);
   }
+
+  private static final class ImportRow {
+
+    private final String clientId;
+    // as bound by the insert statement, client id last
+    private final Object[] fields;
+    private final RuntimeException error;
+
+    private ImportRow(String clientId, Object[] fields, RuntimeException error) {
+      this.clientId = clientId;
+      this.fields = fields;
+      this.error = error;
+    }
+  }
 }
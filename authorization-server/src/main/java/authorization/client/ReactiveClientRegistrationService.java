@@ -1,5 +1,6 @@
 package authorization.client;
 
+import org.reactivestreams.Publisher;
 import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
 import org.springframework.security.oauth2.provider.ClientDetails;
 import org.springframework.security.oauth2.provider.NoSuchClientException;
@@ -21,4 +22,22 @@ public interface ReactiveClientRegistrationService {
   Mono<Void> removeClientDetails(String clientId) throws NoSuchClientException;
 
   Flux<ClientDetails> listClientDetails();
+
+  /**
+   * Add many clients, reporting the outcome of each in order. Clients that already exist are left as they are and reported as failed. Clients are only
+   * requested from the publisher as results are consumed.
+   */
+  default Flux<ClientImportResult> importClientDetails(Publisher<? extends ClientDetails> clients) {
+    return Flux.from(clients)
+        .concatMap(client -> addClientDetails(client)
+            .thenReturn(ClientImportResult.imported(client.getClientId()))
+            .onErrorResume(e -> Mono.just(ClientImportResult.failed(client.getClientId(), e))));
+  }
+
+  /**
+   * Every client, read at most {@code pageSize} at a time as they are consumed.
+   */
+  default Flux<ClientDetails> exportClientDetails(int pageSize) {
+    return listClientDetails();
+  }
 }
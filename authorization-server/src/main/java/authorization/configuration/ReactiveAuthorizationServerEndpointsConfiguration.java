@@ -18,6 +18,7 @@ import javax.annotation.PostConstruct;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
@@ -47,7 +48,7 @@ import org.springframework.web.reactive.function.server.ServerResponse;
  */
 @Configuration(proxyBeanMethods = false)
 @Import(TokenKeyEndpointRegistrar.class)
-public class ReactiveAuthorizationServerEndpointsConfiguration {
+public class ReactiveAuthorizationServerEndpointsConfiguration implements DisposableBean {
 
   private final ReactiveAuthorizationServerEndpointsConfigurer endpoints = new ReactiveAuthorizationServerEndpointsConfigurer();
 
@@ -73,6 +74,11 @@ public class ReactiveAuthorizationServerEndpointsConfiguration {
     endpoints.setClientDetailsService(clientDetailsService);
   }
 
+  @Override
+  public void destroy() throws Exception {
+    endpoints.destroy();
+  }
+
   /* TODO uncomment after reactive endpoint is created
 
     @Bean
@@ -8,6 +8,7 @@ import authorization.endpoint.FrameworkEndpointReactiveHandlerMapping;
 import authorization.token.ReactiveTokenStore;
 import java.util.Collections;
 import java.util.List;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,10 +29,12 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 @EnableReactiveMethodSecurity
 @Configuration(proxyBeanMethods = false)
 @Import(ReactiveAuthorizationServerEndpointsConfiguration.class)
-public class ReactiveAuthorizationServerSecurityConfiguration {
+public class ReactiveAuthorizationServerSecurityConfiguration implements DisposableBean {
 
   private final List<ReactiveAuthorizationServerConfigurer> configurers;
 
+  private final ReactiveAuthorizationServerSecurityConfigurer securityConfigurer = new ReactiveAuthorizationServerSecurityConfigurer();
+
   @Autowired
   public ReactiveAuthorizationServerSecurityConfiguration(List<ReactiveAuthorizationServerConfigurer> configurers) {
     this.configurers = configurers != null ? configurers : Collections.emptyList();
@@ -40,22 +43,26 @@ public class ReactiveAuthorizationServerSecurityConfiguration {
   @Bean
   public SecurityWebFilterChain authorizationServerSecurityFilterChain(ReactiveAuthorizationServerEndpointsConfiguration endpoints,
       ReactiveTokenStore tokenStore, ReactiveClientDetailsService clientDetailsService, ServerHttpSecurity security) {
-    ReactiveAuthorizationServerSecurityConfigurer configurer = new ReactiveAuthorizationServerSecurityConfigurer();
     FrameworkEndpointReactiveHandlerMapping handlerMapping = endpoints.oauth2EndpointHandlerMapping();
-    configure(configurer);
+    configure(securityConfigurer);
     String tokenEndpointPath = handlerMapping.getServerPath("/oauth/token");
     String tokenKeyPath = handlerMapping.getServerPath("/oauth/token_key");
     String checkTokenPath = handlerMapping.getServerPath("/oauth/check_token");
     security = security.authorizeExchange(exchange -> {
       exchange.pathMatchers(tokenEndpointPath).authenticated();
-      setPathMatcher(exchange, tokenKeyPath, configurer.getTokenKeyAccess());
-      setPathMatcher(exchange, checkTokenPath, configurer.getCheckTokenAccess());
+      setPathMatcher(exchange, tokenKeyPath, securityConfigurer.getTokenKeyAccess());
+      setPathMatcher(exchange, checkTokenPath, securityConfigurer.getCheckTokenAccess());
     })
-        .securityContextRepository(new R2dbcSecurityContextRepository(tokenStore, clientDetailsService));
+        .securityContextRepository(new R2dbcSecurityContextRepository(tokenStore, clientDetailsService, securityConfigurer.getClientSecretVerifier()));
     configureServerHttpSecurity(security);
     return security.build();
   }
 
+  @Override
+  public void destroy() {
+    securityConfigurer.destroy();
+  }
+
   private void setPathMatcher(AuthorizeExchangeSpec exchange, String path, SecurityAccess access) {
     switch (access) {
       case AUTHENTICATED:
@@ -0,0 +1,27 @@
+package authorization.configuration.builder;
+
+import authorization.client.InMemoryReactiveClientDetailsService;
+import authorization.client.ReactiveClientDetailsService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.security.oauth2.provider.ClientDetails;
+
+/**
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class InMemoryClientDetailsServiceBuilder extends ReactiveClientDetailsServiceBuilder<InMemoryClientDetailsServiceBuilder> {
+
+  private final Map<String, ClientDetails> clientDetails = new LinkedHashMap<>();
+
+  @Override
+  protected void addClient(String clientId, ClientDetails value) {
+    clientDetails.put(clientId, value);
+  }
+
+  @Override
+  protected ReactiveClientDetailsService performBuild() {
+    return new InMemoryReactiveClientDetailsService(clientDetails);
+  }
+
+}
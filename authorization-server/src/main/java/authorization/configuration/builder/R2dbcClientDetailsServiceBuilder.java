@@ -1,13 +1,30 @@
 package authorization.configuration.builder;
 
+import authorization.client.ClientImportResult;
+import authorization.client.ClientSecretVerifier;
+import authorization.client.InMemoryReactiveClientDetailsService;
 import authorization.client.R2dbcClientDetailsService;
 import authorization.client.ReactiveClientDetailsService;
+import authorization.client.ReactiveClientRegistrationService;
 import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
 import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
 import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * @author VuDo
@@ -15,12 +32,18 @@ import org.springframework.util.Assert;
  */
 public class R2dbcClientDetailsServiceBuilder extends ReactiveClientDetailsServiceBuilder<R2dbcClientDetailsServiceBuilder> {
 
+  private static final Log LOG = LogFactory.getLog(R2dbcClientDetailsServiceBuilder.class);
+
   private final Set<ClientDetails> clientDetails = new HashSet<>();
 
   private ConnectionFactory connectionFactory;
 
   private PasswordEncoder passwordEncoder; // for writing client secrets
 
+  private ClientSecretVerifier clientSecretVerifier;
+
+  private Duration snapshotPollInterval;
+
   public R2dbcClientDetailsServiceBuilder connectionFactory(ConnectionFactory connectionFactory) {
     this.connectionFactory = connectionFactory;
     return this;
@@ -31,6 +54,23 @@ public class R2dbcClientDetailsServiceBuilder extends ReactiveClientDetailsServi
     return this;
   }
 
+  /**
+   * The verifier also given to {@link authorization.configuration.configurers.ReactiveAuthorizationServerSecurityConfigurer#clientSecretVerifier}, so that it
+   * forgets the secrets of clients changed through the built service.
+   */
+  public R2dbcClientDetailsServiceBuilder clientSecretVerifier(ClientSecretVerifier clientSecretVerifier) {
+    this.clientSecretVerifier = clientSecretVerifier;
+    return this;
+  }
+
+  /**
+   * Serve clients from an in-memory snapshot of the table, reloaded when its version has moved, see {@link InMemoryReactiveClientDetailsService}.
+   */
+  public R2dbcClientDetailsServiceBuilder snapshot(Duration pollInterval) {
+    this.snapshotPollInterval = pollInterval;
+    return this;
+  }
+
   @Override
   protected void addClient(String clientId, ClientDetails value) {
     clientDetails.add(value);
@@ -45,10 +85,118 @@ public class R2dbcClientDetailsServiceBuilder extends ReactiveClientDetailsServi
       // pass in pre-encoded secrets)
       clientDetailsService.setPasswordEncoder(passwordEncoder);
     }
-    for (ClientDetails client : clientDetails) {
-      clientDetailsService.addClientDetails(client);
+    clientDetailsService.setClientSecretVerifier(clientSecretVerifier);
+    if (clientDetails.isEmpty()) {
+      return service(clientDetailsService);
+    }
+    // not blocking, the service may be built lazily on the event loop, so the import is sequenced before every call instead
+    Mono<ReactiveClientDetailsService> imported = importClients(clientDetailsService)
+        .then(Mono.fromCallable(() -> service(clientDetailsService)));
+    return new ImportingClientDetailsService(clientDetailsService, imported);
+  }
+
+  private ReactiveClientDetailsService service(R2dbcClientDetailsService clientDetailsService) {
+    if (snapshotPollInterval != null) {
+      return new InMemoryReactiveClientDetailsService(clientDetailsService, snapshotPollInterval);
     }
     return clientDetailsService;
   }
 
+  /**
+   * Fails with the first error once every client has been tried. Clients that already exist are left as they are.
+   */
+  private Mono<Void> importClients(R2dbcClientDetailsService clientDetailsService) {
+    List<ClientDetails> clients = new ArrayList<>(clientDetails);
+    return clientDetailsService.importClientDetails(Flux.fromIterable(clients))
+        .filter(result -> {
+          if (result.getError() instanceof ClientAlreadyExistsException) {
+            LOG.debug(result);
+            return false;
+          }
+          return !result.isImported();
+        })
+        .collectList()
+        .flatMap(failed -> {
+          if (failed.isEmpty()) {
+            return Mono.empty();
+          }
+          String clientIds = failed.stream().map(ClientImportResult::getClientId).collect(Collectors.joining(", "));
+          return Mono.error(new ClientRegistrationException("Failed to add clients " + clientIds, failed.get(0).getError()));
+        });
+  }
+
+  /**
+   * Waits for the clients configured on the builder to be imported before every call. A failed import fails the calls waiting on it and is tried again by
+   * the next call, which then finds the clients added by the failed attempt already there.
+   */
+  private static final class ImportingClientDetailsService implements ReactiveClientDetailsService, ReactiveClientRegistrationService, DisposableBean {
+
+    private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final R2dbcClientDetailsService source;
+
+    private final Mono<ReactiveClientDetailsService> imported;
+
+    // set once the import has completed, so later calls skip the cached mono
+    private volatile ReactiveClientDetailsService service;
+
+    private ImportingClientDetailsService(R2dbcClientDetailsService source, Mono<ReactiveClientDetailsService> imported) {
+      this.source = source;
+      this.imported = imported
+          .doOnNext(service -> this.service = service)
+          .cache(service -> FOREVER, e -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+      if (service instanceof DisposableBean) {
+        ((DisposableBean) service).destroy();
+      }
+    }
+
+    @Override
+    public Mono<ClientDetails> loadClientByClientId(String clientId) throws ClientRegistrationException {
+      ReactiveClientDetailsService service = this.service;
+      if (service != null) {
+        return service.loadClientByClientId(clientId);
+      }
+      return imported.flatMap(imported -> imported.loadClientByClientId(clientId));
+    }
+
+    @Override
+    public Mono<Void> addClientDetails(ClientDetails clientDetails) throws ClientAlreadyExistsException {
+      return imported.then(Mono.defer(() -> source.addClientDetails(clientDetails)));
+    }
+
+    @Override
+    public Mono<Void> updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
+      return imported.then(Mono.defer(() -> source.updateClientDetails(clientDetails)));
+    }
+
+    @Override
+    public Mono<Void> updateClientSecret(String clientId, String secret) throws NoSuchClientException {
+      return imported.then(Mono.defer(() -> source.updateClientSecret(clientId, secret)));
+    }
+
+    @Override
+    public Mono<Void> removeClientDetails(String clientId) throws NoSuchClientException {
+      return imported.then(Mono.defer(() -> source.removeClientDetails(clientId)));
+    }
+
+    @Override
+    public Flux<ClientDetails> listClientDetails() {
+      return imported.thenMany(Flux.defer(source::listClientDetails));
+    }
+
+    @Override
+    public Flux<ClientImportResult> importClientDetails(Publisher<? extends ClientDetails> clients) {
+      return imported.thenMany(Flux.defer(() -> source.importClientDetails(clients)));
+    }
+
+    @Override
+    public Flux<ClientDetails> exportClientDetails(int pageSize) {
+      return imported.thenMany(Flux.defer(() -> source.exportClientDetails(pageSize)));
+    }
+  }
+
 }
@@ -50,6 +50,10 @@ public class ReactiveClientDetailsServiceBuilder<B extends ReactiveClientDetails
 //        .build());
 //  }
 
+  public InMemoryClientDetailsServiceBuilder inMemory() {
+    return new InMemoryClientDetailsServiceBuilder();
+  }
+
   public R2dbcClientDetailsServiceBuilder r2dbc() {
     return new R2dbcClientDetailsServiceBuilder();
   }
@@ -7,8 +7,10 @@ import authorization.client.ReactiveClientDetailsService;
 import authorization.endpoint.FrameworkEndpointReactiveHandlerMapping;
 import authorization.endpoint.WebfluxResponseExceptionTranslator;
 import authorization.impl.DefaultReactiveOAuth2RequestFactory;
+import authorization.token.InMemoryReactiveTokenStore;
 import authorization.token.ReactiveAuthorizationServerTokenServices;
 import authorization.token.ReactiveConsumerTokenServices;
+import authorization.token.ReactiveJwtTokenStore;
 import authorization.token.ReactiveResourceServerTokenServices;
 import authorization.token.ReactiveTokenServices;
 import authorization.token.ReactiveTokenStore;
@@ -20,8 +22,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.http.HttpMethod;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
@@ -39,6 +43,7 @@ import org.springframework.security.oauth2.provider.error.WebResponseExceptionTr
 import org.springframework.security.oauth2.provider.request.DefaultOAuth2RequestValidator;
 import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
 import org.springframework.web.context.request.WebRequestInterceptor;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -63,6 +68,11 @@ public class ReactiveAuthorizationServerEndpointsConfigurer {
 
   private ReactiveTokenStore tokenStore;
 
+  // made by this configurer rather than passed in, so disposed by it
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private boolean ownsTokenStore;
+
   private AccessTokenConverter accessTokenConverter;
 
   private ReactiveTokenGranter tokenGranter;
@@ -133,6 +143,9 @@ public class ReactiveAuthorizationServerEndpointsConfigurer {
     return requestValidator();
   }
 
+  /**
+   * A store passed in here is left to its owner to dispose, e.g. as a bean. Otherwise one is made and disposed by {@link #destroy()}.
+   */
   public ReactiveAuthorizationServerEndpointsConfigurer tokenStore(ReactiveTokenStore tokenStore) {
     this.tokenStore = tokenStore;
     return this;
@@ -316,6 +329,9 @@ public class ReactiveAuthorizationServerEndpointsConfigurer {
     tokenServices.setSupportRefreshToken(true);
     tokenServices.setReuseRefreshToken(reuseRefreshToken);
     tokenServices.setClientDetailsService(clientDetailsService());
+    if (accessTokenConverter() instanceof JwtAccessTokenConverter) {
+      tokenServices.setAccessTokenEnhancer((JwtAccessTokenConverter) accessTokenConverter());
+    }
 //    addUserDetailsService(tokenServices, this.userDetailsService);
     return tokenServices;
   }
@@ -329,9 +345,26 @@ public class ReactiveAuthorizationServerEndpointsConfigurer {
   }
 
   private ReactiveTokenStore tokenStore() {
+    if (this.tokenStore == null) {
+      if (accessTokenConverter() instanceof JwtAccessTokenConverter) {
+        this.tokenStore = new ReactiveJwtTokenStore((JwtAccessTokenConverter) accessTokenConverter(), connectionFactory);
+      } else {
+        this.tokenStore = new InMemoryReactiveTokenStore();
+      }
+      ownsTokenStore = true;
+    }
     return this.tokenStore;
   }
 
+  /**
+   * Dispose the token store made by this configurer, if any, which stops its expiry ticker or revocation poller.
+   */
+  public void destroy() throws Exception {
+    if (ownsTokenStore && tokenStore instanceof DisposableBean) {
+      ((DisposableBean) tokenStore).destroy();
+    }
+  }
+
   @NonNull
   private ReactiveClientDetailsService clientDetailsService() {
     if (clientDetailsService == null) {
@@ -1,5 +1,6 @@
 package authorization.configuration.configurers;
 
+import authorization.client.ClientSecretVerifier;
 import lombok.Getter;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -11,6 +12,11 @@ public class ReactiveAuthorizationServerSecurityConfigurer {
 
   private PasswordEncoder passwordEncoder; // for client secrets
 
+  private ClientSecretVerifier clientSecretVerifier;
+
+  // made by this configurer rather than passed in, so disposed by it
+  private boolean ownsClientSecretVerifier;
+
   private SecurityAccess tokenKeyAccess = SecurityAccess.DENY_ALL;
 
   private SecurityAccess checkTokenAccess = SecurityAccess.DENY_ALL;
@@ -21,6 +27,15 @@ public class ReactiveAuthorizationServerSecurityConfigurer {
     return this;
   }
 
+  /**
+   * Verifier to share with {@link authorization.client.R2dbcClientDetailsService#setClientSecretVerifier}, otherwise one is made from the password encoder.
+   * A verifier passed in here is left to its owner to dispose, e.g. as a bean.
+   */
+  public ReactiveAuthorizationServerSecurityConfigurer clientSecretVerifier(ClientSecretVerifier clientSecretVerifier) {
+    this.clientSecretVerifier = clientSecretVerifier;
+    return this;
+  }
+
   public ReactiveAuthorizationServerSecurityConfigurer tokenKeyAccess(SecurityAccess tokenKeyAccess) {
     this.tokenKeyAccess = tokenKeyAccess;
     return this;
@@ -31,6 +46,26 @@ public class ReactiveAuthorizationServerSecurityConfigurer {
     return this;
   }
 
+  /**
+   * The verifier passed in, or the one made from the password encoder on the first call and returned by every later one.
+   */
+  public ClientSecretVerifier getClientSecretVerifier() {
+    if (clientSecretVerifier == null) {
+      clientSecretVerifier = passwordEncoder != null ? new ClientSecretVerifier(passwordEncoder) : new ClientSecretVerifier();
+      ownsClientSecretVerifier = true;
+    }
+    return clientSecretVerifier;
+  }
+
+  /**
+   * Dispose the verifier made by {@link #getClientSecretVerifier()}, if any.
+   */
+  public void destroy() {
+    if (ownsClientSecretVerifier) {
+      clientSecretVerifier.destroy();
+    }
+  }
+
   public SecurityAccess getTokenKeyAccess() {
     return tokenKeyAccess;
   }
@@ -1,6 +1,7 @@
 package authorization.configuration.configurers;
 
 import authorization.client.ReactiveClientDetailsService;
+import authorization.configuration.builder.InMemoryClientDetailsServiceBuilder;
 import authorization.configuration.builder.R2dbcClientDetailsServiceBuilder;
 import authorization.configuration.builder.ReactiveClientDetailsServiceBuilder;
 import io.r2dbc.spi.ConnectionFactory;
@@ -21,6 +22,12 @@ public class ReactiveClientDetailsServiceConfigurer extends SecurityConfigurerAd
     return this.and();
   }
 
+  public InMemoryClientDetailsServiceBuilder inMemory() {
+    InMemoryClientDetailsServiceBuilder next = getBuilder().inMemory();
+    setBuilder(next);
+    return next;
+  }
+
   public R2dbcClientDetailsServiceBuilder r2dbc(ConnectionFactory connectionFactory) {
     R2dbcClientDetailsServiceBuilder next = getBuilder().r2dbc().connectionFactory(connectionFactory);
     setBuilder(next);
@@ -1,9 +1,9 @@
 package authorization.context;
 
+import authorization.client.ClientSecretVerifier;
 import authorization.client.ReactiveClientDetailsService;
 import authorization.token.ReactiveTokenStore;
 import java.security.Principal;
-import java.util.Objects;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.context.SecurityContext;
@@ -22,14 +22,21 @@ public class R2dbcSecurityContextRepository implements ServerSecurityContextRepo
 
   private final ReactiveTokenStore tokenStore;
   private final ReactiveClientDetailsService clientDetailsService;
+  private final ClientSecretVerifier clientSecretVerifier;
   private final String GRANT_TYPE = "grant_type";
   private final String CLIENT_CREDENTIALS = "client_credentials";
   private final String CLIENT_ID = "client_id";
   private final String CLIENT_SECRET = "client_secret";
 
   public R2dbcSecurityContextRepository(ReactiveTokenStore tokenStore, ReactiveClientDetailsService clientDetailsService) {
+    this(tokenStore, clientDetailsService, new ClientSecretVerifier());
+  }
+
+  public R2dbcSecurityContextRepository(ReactiveTokenStore tokenStore, ReactiveClientDetailsService clientDetailsService,
+      ClientSecretVerifier clientSecretVerifier) {
     this.tokenStore = tokenStore;
     this.clientDetailsService = clientDetailsService;
+    this.clientSecretVerifier = clientSecretVerifier;
   }
 
   @Override
@@ -61,12 +68,13 @@ public class R2dbcSecurityContextRepository implements ServerSecurityContextRepo
       String clientSecret = data.getFirst(CLIENT_SECRET);
       if (grantType != null && grantType.equalsIgnoreCase(CLIENT_CREDENTIALS) && clientId != null && clientSecret != null) {
         return clientDetailsService.loadClientByClientId(clientId)
-            .doOnNext(clientDetails -> {
-              if (!Objects.equals(clientDetails.getClientSecret(), clientSecret)) {
-                throw new BadCredentialsException("wrong credentials");
-              }
-            })
-            .map(clientDetails -> new SecurityContextImpl(new PreAuthenticatedAuthenticationToken(null, null, clientDetails.getAuthorities())));
+            .flatMap(clientDetails -> clientSecretVerifier.matches(clientDetails, clientSecret)
+                .map(matches -> {
+                  if (!matches) {
+                    throw new BadCredentialsException("wrong credentials");
+                  }
+                  return new SecurityContextImpl(new PreAuthenticatedAuthenticationToken(null, null, clientDetails.getAuthorities()));
+                }));
       }
     }
     return Mono.empty();
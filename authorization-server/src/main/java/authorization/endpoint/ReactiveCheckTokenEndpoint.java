@@ -1,18 +1,16 @@
 package authorization.endpoint;
 
+import authorization.token.AccessTokenAuthentication;
 import authorization.token.ReactiveResourceServerTokenServices;
 import java.util.Map;
-import lombok.Data;
 import lombok.SneakyThrows;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
-import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
-import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.endpoint.FrameworkEndpoint;
 import org.springframework.security.oauth2.provider.error.WebResponseExceptionTranslator;
 import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
@@ -56,27 +54,28 @@ public class ReactiveCheckTokenEndpoint {
   @SuppressWarnings("unchecked")
   public Mono<ServerResponse> checkToken(ServerRequest request) {
     String token = request.queryParam(TOKEN_PARAM).orElseThrow(() -> new InvalidTokenException("Token was not recognised"));
-    return resourceServerTokenServices.readAccessToken(token)
-        .switchIfEmpty(Mono.error(new InvalidTokenException("Token was not recognised")))
+    return readAccessTokenAndAuthentication(token)
+        .switchIfEmpty(Mono.error(() -> new InvalidTokenException("Token was not recognised")))
         .doOnNext(tk -> {
-          if (tk.isExpired()) {
+          if (tk.getAccessToken().isExpired()) {
             throw new InvalidTokenException("Token has expired");
           }
         })
-        .map(Container::new)
-        .flatMap(this::loadAuthentication)
-        .map(container -> (Map<String, Object>) accessTokenConverter.convertAccessToken(container.accessToken, container.authentication))
+        .map(tk -> (Map<String, Object>) accessTokenConverter.convertAccessToken(tk.getAccessToken(), tk.getAuthentication()))
         .doOnNext(response -> response.put("active", true))
         .flatMap(this::getResponse)
         .onErrorResume(InvalidTokenException.class, this::handleException);
   }
 
-  private Mono<Container> loadAuthentication(Container container) {
-    return Mono.just(container)
-        .map(Container::getAccessToken)
-        .map(OAuth2AccessToken::getValue)
-        .flatMap(resourceServerTokenServices::loadAuthentication)
-        .map(container::setAuthentication);
+  /**
+   * A {@link DefaultAccessTokenConverter} only reads what the token services return for introspection, which a store can read without deserializing the
+   * token and its authentication, see {@link authorization.token.R2dbcTokenStore#setIntrospectionColumns(boolean)}.
+   */
+  private Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String token) {
+    if (accessTokenConverter.getClass() == DefaultAccessTokenConverter.class) {
+      return resourceServerTokenServices.readAccessTokenForIntrospection(token);
+    }
+    return resourceServerTokenServices.readAccessTokenAndAuthentication(token);
   }
 
   private Mono<ServerResponse> getResponse(Map<String, ?> response) {
@@ -108,20 +107,4 @@ public class ReactiveCheckTokenEndpoint {
     };
     return renderErrorResponseEntity(exceptionTranslator.translate(e400));
   }
-
-  @Data
-  private static class Container {
-
-    private OAuth2AccessToken accessToken;
-    private OAuth2Authentication authentication;
-
-    public Container(OAuth2AccessToken accessToken) {
-      this.accessToken = accessToken;
-    }
-
-    public Container setAuthentication(OAuth2Authentication authentication) {
-      this.authentication = authentication;
-      return this;
-    }
-  }
 }
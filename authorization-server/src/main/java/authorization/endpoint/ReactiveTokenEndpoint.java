@@ -1,5 +1,6 @@
 package authorization.endpoint;
 
+import authorization.client.ClientDetailsContext;
 import java.security.Principal;
 import java.util.Collections;
 import java.util.Map;
@@ -60,7 +61,9 @@ public class ReactiveTokenEndpoint extends AbstractReactiveEndpoint {
         .flatMap(this::getResponse)
         .onErrorResume(OAuth2Exception.class, this::handleException)
         .onErrorResume(ClientRegistrationException.class, this::handleClientRegistrationException)
-        .onErrorResume(Exception.class, this::handleException);
+        .onErrorResume(Exception.class, this::handleException)
+        // the request factory, token granter and token services reuse the client loaded here
+        .contextWrite(ClientDetailsContext.memoize());
   }
 
   protected void getClientId(RequestContainer container) {
@@ -80,7 +83,7 @@ public class ReactiveTokenEndpoint extends AbstractReactiveEndpoint {
   }
 
   protected Mono<RequestContainer> getClientDetails(RequestContainer container) {
-    return getClientDetailsService().loadClientByClientId(container.clientId)
+    return ClientDetailsContext.loadClient(getClientDetailsService(), container.clientId)
         .map(container::setClientDetails);
   }
 
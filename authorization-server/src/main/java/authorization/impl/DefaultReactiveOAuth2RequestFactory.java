@@ -4,6 +4,7 @@ import static io.r2dbc.postgresql.util.PredicateUtils.not;
 
 import authorization.ReactiveOAuth2RequestFactory;
 import authorization.ReactiveSecurityContextAccessor;
+import authorization.client.ClientDetailsContext;
 import authorization.client.ReactiveClientDetailsService;
 import java.util.Arrays;
 import java.util.Collections;
@@ -60,15 +61,17 @@ public class DefaultReactiveOAuth2RequestFactory implements ReactiveOAuth2Reques
     String redirectUri = authorizationParameters.get(OAuth2Utils.REDIRECT_URI);
     Set<String> responseTypes = OAuth2Utils.parseParameterList(authorizationParameters.get(OAuth2Utils.RESPONSE_TYPE));
 
-    return extractScopes(authorizationParameters, clientId)
+    Mono<ClientDetails> client = ClientDetailsContext.loadClient(clientDetailsService, clientId);
+    return extractScopes(authorizationParameters, client)
         .map(scopes -> new AuthorizationRequest(authorizationParameters, Collections.emptyMap(), clientId, scopes,
             null, null, false, state, redirectUri, responseTypes))
-        .zipWith(clientDetailsService.loadClientByClientId(clientId))
+        .zipWith(client)
         .map(tuple -> {
           AuthorizationRequest request = tuple.getT1();
           request.setResourceIdsAndAuthoritiesFromClientDetails(tuple.getT2());
           return request;
-        });
+        })
+        .contextWrite(ClientDetailsContext.memoize());
 
   }
 
@@ -91,7 +94,8 @@ public class DefaultReactiveOAuth2RequestFactory implements ReactiveOAuth2Reques
     String grantType = requestParameters.get(OAuth2Utils.GRANT_TYPE);
 
     String finalClientId = clientId;
-    return extractScopes(requestParameters, clientId)
+    // the client is already at hand, no need to load it for its scopes
+    return extractScopes(requestParameters, Mono.just(authenticatedClient))
         .map(scopes -> new TokenRequest(requestParameters, finalClientId, scopes, grantType))
         .switchIfEmpty(Mono.just(new TokenRequest(requestParameters, finalClientId, null, grantType)));
   }
@@ -106,18 +110,13 @@ public class DefaultReactiveOAuth2RequestFactory implements ReactiveOAuth2Reques
   }
 
 
-  private Mono<Set<String>> extractScopes(Map<String, String> requestParameters, String clientId) {
+  private Mono<Set<String>> extractScopes(Map<String, String> requestParameters, Mono<ClientDetails> client) {
     return Mono.just(OAuth2Utils.parseParameterList(requestParameters.get(OAuth2Utils.SCOPE)))
         .filter(not(CollectionUtils::isEmpty))
-        .switchIfEmpty(getScopesFromClient(clientId))
+        .switchIfEmpty(client.map(ClientDetails::getScope))
         .flatMap(scopes -> checkUserScopes ? checkUserScopes(scopes) : Mono.just(scopes));
   }
 
-  private Mono<Set<String>> getScopesFromClient(String clientId) {
-    return clientDetailsService.loadClientByClientId(clientId)
-        .map(ClientDetails::getScope);
-  }
-
   private Mono<Set<String>> checkUserScopes(Set<String> scopes) {
     return securityContextAccessor.isUser()
         .flatMap(isUser -> isUser ? Mono.empty() : Mono.just(scopes))
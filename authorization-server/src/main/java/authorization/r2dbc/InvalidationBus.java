@@ -0,0 +1,296 @@
+package authorization.r2dbc;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Wrapped;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Setter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Sinks.EmitResult;
+import reactor.util.retry.Retry;
+
+/**
+ * Spreads cache invalidations between nodes over Postgres {@code LISTEN}/{@code NOTIFY}. Invalidations published within the batch window go out together,
+ * as few notifications as fit the 8000 byte payload limit, and every other node listening on the channel passes them to its {@link InvalidationListener}s.
+ * <p>
+ * Listening holds one connection for as long as the bus runs, so give it a connection factory outside of the pool if the pool is small. The listening
+ * connection is reopened when it is lost, and since invalidations sent in the meantime are gone the listeners are then told to drop everything. Publishing is
+ * best effort as well: a batch that cannot be sent is logged, and other nodes keep their entries until they expire.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class InvalidationBus implements SmartLifecycle, MeterBinder {
+
+  private static final Log LOG = LogFactory.getLog(InvalidationBus.class);
+
+  public static final String DEFAULT_CHANNEL = "oauth_invalidation";
+
+  public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(20);
+
+  // what a whole payload is replaced with when a single key does not fit
+  private static final String ALL = "*";
+
+  // Postgres rejects payloads of 8000 bytes and more
+  private static final int MAXIMUM_PAYLOAD = 7900;
+
+  private static final int MAXIMUM_BATCH = 1_000;
+
+  private static final int MAXIMUM_PENDING = 100_000;
+
+  private static final String NOTIFY_STATEMENT = "select pg_notify(:channel, :payload)";
+
+  private static final String LISTEN_STATEMENT = "listen %s";
+
+  private static final String UNLISTEN_STATEMENT = "unlisten *";
+
+  private final ConnectionFactory connectionFactory;
+
+  private final DatabaseClient client;
+
+  private final String channel;
+
+  // notifications come back to the node that sent them too
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+  // buffers what is published before the bus starts
+  private final Sinks.Many<String> outbound = Sinks.many().multicast().onBackpressureBuffer(MAXIMUM_PENDING, false);
+
+  private final AtomicLong published = new AtomicLong();
+
+  private final AtomicLong received = new AtomicLong();
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final AtomicLong resyncs = new AtomicLong();
+
+  @Setter
+  private Duration batchWindow = DEFAULT_BATCH_WINDOW;
+
+  private volatile Disposable publisher;
+
+  private volatile Disposable subscriber;
+
+  public InvalidationBus(ConnectionFactory connectionFactory) {
+    this(connectionFactory, DEFAULT_CHANNEL);
+  }
+
+  public InvalidationBus(ConnectionFactory connectionFactory, String channel) {
+    Assert.notNull(connectionFactory, "Connection Factory required");
+    Assert.isTrue(channel != null && channel.matches("[a-z_][a-z0-9_]*"), "Channel must be a lower case identifier");
+    this.connectionFactory = connectionFactory;
+    this.client = DatabaseClient.create(connectionFactory);
+    this.channel = channel;
+  }
+
+  public void addListener(InvalidationListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(InvalidationListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Tell the other nodes to invalidate {@code key}. Keys must not contain line breaks.
+   */
+  public void publish(String type, String key) {
+    String entry = type + ' ' + key;
+    EmitResult result;
+    do {
+      result = outbound.tryEmitNext(entry);
+    } while (result == EmitResult.FAIL_NON_SERIALIZED);
+    if (result.isFailure()) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void start() {
+    publisher = outbound.asFlux()
+        .bufferTimeout(MAXIMUM_BATCH, batchWindow)
+        .concatMap(this::send)
+        .subscribe();
+    subscriber = Flux.defer(this::listen)
+        // the stream only ends with the connection
+        .concatWith(Mono.error(() -> new IllegalStateException("Invalidation listener connection closed")))
+        .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+            .maxBackoff(Duration.ofSeconds(30))
+            .transientErrors(true)
+            .doBeforeRetry(signal -> LOG.warn("Lost invalidation listener connection, reconnecting", signal.failure())))
+        .subscribe(this::receive);
+  }
+
+  @Override
+  public void stop() {
+    dispose(subscriber);
+    subscriber = null;
+    dispose(publisher);
+    publisher = null;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return subscriber != null;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    register(registry, published, "published");
+    register(registry, received, "received");
+    register(registry, dropped, "dropped");
+    FunctionCounter.builder("oauth.invalidations.resyncs", resyncs, AtomicLong::doubleValue)
+        .description("Full invalidations after the listener connection was reopened")
+        .register(registry);
+  }
+
+  private Flux<Notification> listen() {
+    return Flux.usingWhen(connectionFactory.create(), connection -> {
+      PostgresqlConnection postgresql = unwrap(connection);
+      // subscribed first, notifications arriving before anyone listens are not kept
+      return Flux.merge(postgresql.getNotifications(), execute(postgresql, String.format(LISTEN_STATEMENT, channel))
+          .then(Mono.<Notification>fromRunnable(this::resync)));
+    }, this::close);
+  }
+
+  private Mono<Void> send(List<String> entries) {
+    return Flux.fromIterable(payloads(entries))
+        .concatMap(payload -> client.sql(NOTIFY_STATEMENT)
+            .bind("channel", channel)
+            .bind("payload", payload)
+            .then())
+        .doOnComplete(() -> published.addAndGet(entries.size()))
+        .onErrorResume(e -> {
+          LOG.warn("Failed to publish " + entries.size() + " invalidations", e);
+          dropped.addAndGet(entries.size());
+          return Mono.empty();
+        })
+        .then();
+  }
+
+  /**
+   * The node id, then one entry per line.
+   */
+  private List<String> payloads(List<String> entries) {
+    List<String> payloads = new ArrayList<>();
+    StringBuilder payload = new StringBuilder(nodeId);
+    int size = nodeId.length();
+    for (String entry : new LinkedHashSet<>(entries)) {
+      int entrySize = entry.getBytes(StandardCharsets.UTF_8).length + 1;
+      if (nodeId.length() + entrySize > MAXIMUM_PAYLOAD) {
+        entry = ALL;
+        entrySize = 2;
+      }
+      if (size + entrySize > MAXIMUM_PAYLOAD) {
+        payloads.add(payload.toString());
+        payload = new StringBuilder(nodeId);
+        size = nodeId.length();
+      }
+      payload.append('\n').append(entry);
+      size += entrySize;
+    }
+    payloads.add(payload.toString());
+    return payloads;
+  }
+
+  private void receive(Notification notification) {
+    String payload = notification.getParameter();
+    if (!channel.equals(notification.getName()) || payload == null || payload.startsWith(nodeId)) {
+      return;
+    }
+    String[] entries = payload.split("\n");
+    for (int i = 1; i < entries.length; i++) {
+      received.incrementAndGet();
+      if (ALL.equals(entries[i])) {
+        resync();
+        continue;
+      }
+      int separator = entries[i].indexOf(' ');
+      if (separator > 0) {
+        dispatch(entries[i].substring(0, separator), entries[i].substring(separator + 1));
+      }
+    }
+  }
+
+  private void dispatch(String type, String key) {
+    for (InvalidationListener listener : listeners) {
+      try {
+        listener.invalidate(type, key);
+      } catch (RuntimeException e) {
+        LOG.warn("Invalidation listener failed", e);
+      }
+    }
+  }
+
+  private void resync() {
+    resyncs.incrementAndGet();
+    for (InvalidationListener listener : listeners) {
+      try {
+        listener.invalidateAll();
+      } catch (RuntimeException e) {
+        LOG.warn("Invalidation listener failed", e);
+      }
+    }
+  }
+
+  /**
+   * A pooled connection goes back to the pool, so stop listening on it first.
+   */
+  private Mono<Void> close(Connection connection) {
+    return execute(connection, UNLISTEN_STATEMENT)
+        .onErrorResume(e -> Mono.empty())
+        .then(Mono.from(connection.close()));
+  }
+
+  private static Mono<Void> execute(Connection connection, String sql) {
+    return Flux.from(connection.createStatement(sql).execute())
+        .flatMap(Result::getRowsUpdated)
+        .then();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PostgresqlConnection unwrap(Connection connection) {
+    Object current = connection;
+    while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped) {
+      current = ((Wrapped<Object>) current).unwrap();
+    }
+    Assert.isInstanceOf(PostgresqlConnection.class, current, "Invalidations need a Postgres connection");
+    return (PostgresqlConnection) current;
+  }
+
+  private static void dispose(Disposable disposable) {
+    if (disposable != null) {
+      disposable.dispose();
+    }
+  }
+
+  private void register(MeterRegistry registry, AtomicLong invalidations, String direction) {
+    FunctionCounter.builder("oauth.invalidations", invalidations, AtomicLong::doubleValue)
+        .description("Cache invalidations sent to or received from other nodes, and those that could not be sent")
+        .tag("direction", direction)
+        .register(registry);
+  }
+}
@@ -0,0 +1,20 @@
+package authorization.r2dbc;
+
+/**
+ * Receives the invalidations that other nodes publish on an {@link InvalidationBus}.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public interface InvalidationListener {
+
+  /**
+   * @param type what {@code key} identifies, listeners ignore the types they do not know
+   */
+  void invalidate(String type, String key);
+
+  /**
+   * Drop everything, invalidations may have been missed.
+   */
+  void invalidateAll();
+}
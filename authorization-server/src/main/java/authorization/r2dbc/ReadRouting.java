@@ -0,0 +1,136 @@
+package authorization.r2dbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.Setter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Routes the read queries of an R2DBC store to a read replica, and everything else to the primary.
+ * <p>
+ * Replicas lag behind. A key written through this instance within the lag window is read from the primary, so that a token is readable as soon as it has been
+ * issued. Keys written by other nodes are not known here, so with {@code fallbackOnMiss} a read that finds nothing on the replica is retried on the primary.
+ * Deletes are not retried that way: a row deleted by another node may still be read from the replica until it catches up.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class ReadRouting implements MeterBinder {
+
+  public static final Duration DEFAULT_LAG_WINDOW = Duration.ofSeconds(5);
+
+  private static final long MAXIMUM_RECENT_WRITES = 100_000;
+
+  private final String name;
+
+  private final DatabaseClient primary;
+
+  private final DatabaseClient replica;
+
+  private final Cache<String, Boolean> recentWrites;
+
+  private final AtomicLong primaryReads = new AtomicLong();
+
+  private final AtomicLong replicaReads = new AtomicLong();
+
+  private final AtomicLong fallbackReads = new AtomicLong();
+
+  /**
+   * Retry reads that find nothing on the replica on the primary.
+   */
+  @Setter
+  private boolean fallbackOnMiss = true;
+
+  /**
+   * @param name                  tag of the query counters
+   * @param connectionFactory     the primary
+   * @param readConnectionFactory the replica, or the primary itself to not route at all
+   */
+  public ReadRouting(String name, ConnectionFactory connectionFactory, ConnectionFactory readConnectionFactory) {
+    Assert.notNull(connectionFactory, "Connection Factory required");
+    Assert.notNull(readConnectionFactory, "Read Connection Factory required");
+    this.name = name;
+    this.primary = DatabaseClient.create(connectionFactory);
+    this.replica = readConnectionFactory != connectionFactory ? DatabaseClient.create(readConnectionFactory) : null;
+    this.recentWrites = Caffeine.newBuilder()
+        .maximumSize(MAXIMUM_RECENT_WRITES)
+        .expireAfterWrite(DEFAULT_LAG_WINDOW)
+        .build();
+  }
+
+  /**
+   * How long after a write its key is still read from the primary.
+   */
+  public void setLagWindow(Duration lagWindow) {
+    recentWrites.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(lagWindow));
+  }
+
+  /**
+   * Record a write of {@code key}, reads of it go to the primary for the lag window.
+   */
+  public void written(String key) {
+    if (replica != null) {
+      recentWrites.put(key, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Run a read of {@code key} on the replica, unless it was written recently.
+   */
+  public <T> Mono<T> read(String key, Function<DatabaseClient, Mono<T>> query) {
+    return Mono.defer(() -> {
+      if (replica == null || recentWrites.getIfPresent(key) != null) {
+        primaryReads.incrementAndGet();
+        return query.apply(primary);
+      }
+      replicaReads.incrementAndGet();
+      Mono<T> read = query.apply(replica);
+      if (!fallbackOnMiss) {
+        return read;
+      }
+      return read.switchIfEmpty(Mono.defer(() -> {
+        fallbackReads.incrementAndGet();
+        return query.apply(primary);
+      }));
+    });
+  }
+
+  /**
+   * Run a read that is not tied to a key, such as a listing, on the replica.
+   */
+  public <T> Flux<T> readAll(Function<DatabaseClient, Flux<T>> query) {
+    return Flux.defer(() -> {
+      if (replica == null) {
+        primaryReads.incrementAndGet();
+        return query.apply(primary);
+      }
+      replicaReads.incrementAndGet();
+      return query.apply(replica);
+    });
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    register(registry, primaryReads, "primary");
+    register(registry, replicaReads, "replica");
+    register(registry, fallbackReads, "fallback");
+  }
+
+  private void register(MeterRegistry registry, AtomicLong reads, String route) {
+    FunctionCounter.builder("oauth.r2dbc.reads", reads, AtomicLong::doubleValue)
+        .description("Read queries by route, fallback reads are retried on the primary after missing on the replica")
+        .tag("store", name)
+        .tag("route", route)
+        .register(registry);
+  }
+}
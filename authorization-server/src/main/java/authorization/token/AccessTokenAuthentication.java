@@ -0,0 +1,19 @@
+package authorization.token;
+
+import lombok.Value;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * An access token together with the authentication it was issued for, as read from a token store in one lookup.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@Value
+public class AccessTokenAuthentication {
+
+  OAuth2AccessToken accessToken;
+
+  OAuth2Authentication authentication;
+}
@@ -0,0 +1,154 @@
+package authorization.token;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Collects token writes for up to {@code window} or {@code batchSize} writes, whichever comes first, and hands each batch to
+ * {@link ReactiveTokenStore#storeTokens(List)} of the wrapped store, which the R2DBC store turns into one multi-row upsert. Batches are flushed one at a time,
+ * so a burst of logins uses a single connection instead of one per token.
+ * <p>
+ * The Mono returned for each write completes when it is persisted. When a batch fails, e.g. on one bad row, its writes are retried one by one, so each fails
+ * only with its own error. At most {@code maxPending} writes are queued; beyond
+ * that writes are rejected straight away instead of piling up behind a slow database.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class BatchingReactiveTokenStore extends DelegatingReactiveTokenStore implements DisposableBean {
+
+  private static final Log LOG = LogFactory.getLog(BatchingReactiveTokenStore.class);
+
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  public static final Duration DEFAULT_WINDOW = Duration.ofMillis(5);
+
+  public static final int DEFAULT_MAX_PENDING = 10_000;
+
+  private final int maxPending;
+
+  private final AtomicInteger pending = new AtomicInteger();
+
+  private volatile FluxSink<PendingWrite> sink;
+
+  private final Disposable pipeline;
+
+  // a completed sink drops further writes without a word, so they are refused before they reach it
+  private volatile boolean closed;
+
+  public BatchingReactiveTokenStore(ReactiveTokenStore delegate) {
+    this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_WINDOW, DEFAULT_MAX_PENDING);
+  }
+
+  public BatchingReactiveTokenStore(ReactiveTokenStore delegate, int batchSize, Duration window, int maxPending) {
+    super(delegate);
+    Assert.isTrue(batchSize > 0, "Batch size must be positive");
+    Assert.isTrue(maxPending >= batchSize, "Max pending must be at least the batch size");
+    this.maxPending = maxPending;
+    // FluxSink is serialized, so writes may be submitted from any thread
+    pipeline = Flux.<PendingWrite>create(s -> sink = s)
+        .bufferTimeout(batchSize, window)
+        .onBackpressureBuffer()
+        .concatMap(this::flush)
+        .subscribe();
+  }
+
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return enqueue(new TokenWrite(token, null, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return enqueue(new TokenWrite(accessToken, refreshToken, authentication));
+  }
+
+  /**
+   * Stops accepting writes and flushes what is already queued.
+   */
+  @Override
+  public void destroy() {
+    closed = true;
+    FluxSink<PendingWrite> current = sink;
+    if (current != null) {
+      current.complete();
+    }
+  }
+
+  private Mono<Void> enqueue(TokenWrite write) {
+    return Mono.defer(() -> {
+      if (closed || pipeline.isDisposed() || sink == null || sink.isCancelled()) {
+        return Mono.error(new IllegalStateException("Token write pipeline is closed"));
+      }
+      if (pending.incrementAndGet() > maxPending) {
+        pending.decrementAndGet();
+        return Mono.error(new IllegalStateException("Too many pending token writes"));
+      }
+      Sinks.One<Void> done = Sinks.one();
+      sink.next(new PendingWrite(write, done));
+      return done.asMono();
+    });
+  }
+
+  private Mono<Void> flush(List<PendingWrite> batch) {
+    List<TokenWrite> writes = new ArrayList<>(batch.size());
+    for (PendingWrite write : batch) {
+      writes.add(write.write);
+    }
+    return getDelegate().storeTokens(writes)
+        .doOnSuccess(ignored -> {
+          pending.addAndGet(-batch.size());
+          batch.forEach(write -> write.done.tryEmitEmpty());
+        })
+        .onErrorResume(e -> {
+          if (batch.size() == 1) {
+            return fail(batch.get(0), e);
+          }
+          LOG.warn("Failed to store batch of " + batch.size() + " tokens, storing them one by one", e);
+          return Flux.fromIterable(batch)
+              .concatMap(this::flushOne)
+              .then();
+        });
+  }
+
+  private Mono<Void> flushOne(PendingWrite write) {
+    return getDelegate().storeTokens(write.write.getAccessToken(), write.write.getRefreshToken(), write.write.getAuthentication())
+        .doOnSuccess(ignored -> {
+          pending.decrementAndGet();
+          write.done.tryEmitEmpty();
+        })
+        .onErrorResume(e -> fail(write, e));
+  }
+
+  private Mono<Void> fail(PendingWrite write, Throwable e) {
+    LOG.warn("Failed to store token", e);
+    pending.decrementAndGet();
+    write.done.tryEmitError(e);
+    return Mono.empty();
+  }
+
+  private static final class PendingWrite {
+
+    private final TokenWrite write;
+    private final Sinks.One<Void> done;
+
+    private PendingWrite(TokenWrite write, Sinks.One<Void> done) {
+      this.write = write;
+      this.done = done;
+    }
+  }
+}
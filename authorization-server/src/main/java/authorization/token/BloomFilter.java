@@ -0,0 +1,93 @@
+package authorization.token;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over a bit set, lock free, bits are set with compare and set. Keys cannot be removed: the filter is rebuilt instead.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+class BloomFilter {
+
+  private final AtomicLongArray bits;
+
+  private final long bitCount;
+
+  private final int hashCount;
+
+  BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+    if (expectedInsertions <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException("Expected insertions must be positive and false positive probability between 0 and 1");
+    }
+    long optimal = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+    int words = Math.toIntExact((optimal + 63) / 64);
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = words * 64L;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+  }
+
+  void add(String key) {
+    long hash = hash(key);
+    long step = step(hash);
+    for (int i = 0; i < hashCount; i++) {
+      set(index(hash, step, i));
+    }
+  }
+
+  boolean mightContain(String key) {
+    long hash = hash(key);
+    long step = step(hash);
+    for (int i = 0; i < hashCount; i++) {
+      long index = index(hash, step, i);
+      if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  long getSizeInBytes() {
+    return bits.length() * 8L;
+  }
+
+  private void set(long index) {
+    int word = (int) (index >>> 6);
+    long bit = 1L << index;
+    while (true) {
+      long current = bits.get(word);
+      if ((current & bit) != 0 || bits.compareAndSet(word, current, current | bit)) {
+        return;
+      }
+    }
+  }
+
+  private long index(long hash, long step, int i) {
+    return Long.remainderUnsigned(hash + i * step, bitCount);
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-8 bytes of the key, token keys being short hex strings.
+   */
+  private static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Second hash for double hashing, odd so that it never degenerates to a single bit.
+   */
+  private static long step(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash | 1;
+  }
+}
@@ -0,0 +1,331 @@
+package authorization.token;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache in front of any {@link ReactiveTokenStore}. Access tokens and their authentication are cached together until the token expires, in a
+ * bounded cache with W-TinyLFU eviction. Concurrent misses for the same token share a single load.
+ * <p>
+ * Every removal invalidates the cache both before the delegate is called and again once it has completed, so a read racing with a revocation can never put the
+ * revoked token back. Register the store on an {@link authorization.r2dbc.InvalidationBus} to also drop tokens removed on other nodes.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class CachingReactiveTokenStore extends DelegatingReactiveTokenStore implements TokenInvalidationListener {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+
+  private final AsyncCache<String, CachedToken> cache;
+
+  // refresh token value -> cached access tokens issued with it, so revoking by refresh token can find them
+  private final ConcurrentMap<String, Set<CachedToken>> refreshTokenIndex = new ConcurrentHashMap<>();
+
+  // client id, and client id plus user name -> cached access tokens, for bulk revocation
+  private final ConcurrentMap<String, Set<CachedToken>> clientIndex = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Set<CachedToken>> userIndex = new ConcurrentHashMap<>();
+
+  // bumped by bulk and remote revocations, which cannot see loads still in flight; a load that overlaps one is served once but not kept
+  private final AtomicLong revocations = new AtomicLong();
+
+  public CachingReactiveTokenStore(ReactiveTokenStore delegate) {
+    this(delegate, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  public CachingReactiveTokenStore(ReactiveTokenStore delegate, long maximumSize) {
+    super(delegate);
+    cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new TokenExpiry())
+        .removalListener(this::onRemoval)
+        .buildAsync();
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return readAuthentication(token.getValue());
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    return get(token).map(CachedToken::getAuthentication);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    return get(tokenValue).map(CachedToken::getAccessToken);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return get(tokenValue).map(CachedToken::getValue);
+  }
+
+  /**
+   * Cached tokens are complete, so introspection goes through the cache too.
+   */
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return readAccessTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return invalidating(token.getValue(), super.storeAccessToken(token, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return invalidating(accessToken.getValue(), super.storeTokens(accessToken, refreshToken, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Mono.fromRunnable(() -> writes.forEach(this::invalidate))
+        .then(super.storeTokens(writes))
+        .doOnTerminate(() -> writes.forEach(this::invalidate));
+  }
+
+  @Override
+  public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
+    return invalidating(token.getValue(), super.removeAccessToken(token));
+  }
+
+  /**
+   * The delegate may rewrite the authentication stored with the token it returns, so the cached one is dropped.
+   */
+  @Override
+  public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+    return super.getAccessToken(authentication).doOnNext(token -> invalidate(token.getValue()));
+  }
+
+  @Override
+  public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
+    return invalidatingRefreshToken(token.getValue(), super.removeRefreshToken(token));
+  }
+
+  @Override
+  public Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+    return invalidatingRefreshToken(refreshToken.getValue(), super.removeAccessTokenUsingRefreshToken(refreshToken));
+  }
+
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    String value = previousRefreshToken.getValue();
+    return invalidatingAll(() -> invalidateRefreshToken(value), super.refreshTokens(previousRefreshToken, accessToken, authentication));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    String key = userKey(clientId, userName);
+    return invalidatingAll(() -> invalidateIndexed(userIndex, key), super.revokeAllForUser(clientId, userName));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return invalidatingAll(() -> invalidateIndexed(clientIndex, clientId), super.revokeAllForClient(clientId));
+  }
+
+  /**
+   * Drop every cached token, e.g. when invalidations may have been missed.
+   */
+  @Override
+  public void invalidateAll() {
+    revocations.incrementAndGet();
+    cache.synchronous().invalidateAll();
+  }
+
+  @Override
+  public void invalidateAccessToken(String tokenValue) {
+    revocations.incrementAndGet();
+    invalidate(tokenValue);
+  }
+
+  @Override
+  public void invalidateRefreshToken(String refreshTokenValue) {
+    revocations.incrementAndGet();
+    invalidateIndexed(refreshTokenIndex, refreshTokenValue);
+  }
+
+  @Override
+  public void invalidateUser(String clientId, String userName) {
+    revocations.incrementAndGet();
+    invalidateIndexed(userIndex, userKey(clientId, userName));
+  }
+
+  @Override
+  public void invalidateClient(String clientId) {
+    revocations.incrementAndGet();
+    invalidateIndexed(clientIndex, clientId);
+  }
+
+  private Mono<CachedToken> get(String tokenValue) {
+    return Mono.fromFuture(cache.get(tokenValue, (key, executor) -> load(key).toFuture()))
+        .doOnNext(token -> {
+          if (token.racedRevocation) {
+            cache.synchronous().asMap().remove(tokenValue, token);
+          }
+        });
+  }
+
+  private Mono<CachedToken> load(String tokenValue) {
+    long started = revocations.get();
+    return getDelegate().readAccessTokenAndAuthentication(tokenValue)
+        .map(value -> new CachedToken(tokenValue, value, revocations.get() != started))
+        .doOnNext(this::index);
+  }
+
+  private Mono<Void> invalidating(String tokenValue, Mono<Void> operation) {
+    return Mono.fromRunnable(() -> invalidate(tokenValue))
+        .then(operation)
+        .doOnTerminate(() -> invalidate(tokenValue));
+  }
+
+  private Mono<Void> invalidatingRefreshToken(String refreshTokenValue, Mono<Void> operation) {
+    return Mono.fromRunnable(() -> invalidateRefreshToken(refreshTokenValue))
+        .then(operation)
+        .doOnTerminate(() -> invalidateRefreshToken(refreshTokenValue));
+  }
+
+  private <T> Mono<T> invalidatingAll(Runnable invalidation, Mono<T> operation) {
+    return Mono.fromRunnable(() -> {
+          revocations.incrementAndGet();
+          invalidation.run();
+        })
+        .then(operation)
+        .doOnTerminate(() -> {
+          revocations.incrementAndGet();
+          invalidation.run();
+        });
+  }
+
+  private void invalidate(String tokenValue) {
+    cache.synchronous().invalidate(tokenValue);
+  }
+
+  private void invalidate(TokenWrite write) {
+    invalidate(write.getAccessToken().getValue());
+  }
+
+  private void invalidateIndexed(ConcurrentMap<String, Set<CachedToken>> index, String key) {
+    Set<CachedToken> tokens = index.getOrDefault(key, Collections.emptySet());
+    for (CachedToken token : tokens) {
+      invalidate(token.tokenValue);
+    }
+  }
+
+  private void index(CachedToken token) {
+    index(refreshTokenIndex, token.refreshTokenValue, token);
+    index(clientIndex, token.clientId, token);
+    index(userIndex, token.userKey, token);
+  }
+
+  private void onRemoval(String key, CachedToken token, RemovalCause cause) {
+    if (token != null) {
+      unindex(refreshTokenIndex, token.refreshTokenValue, token);
+      unindex(clientIndex, token.clientId, token);
+      unindex(userIndex, token.userKey, token);
+    }
+  }
+
+  private static void index(ConcurrentMap<String, Set<CachedToken>> index, String key, CachedToken token) {
+    if (key != null) {
+      index.compute(key, (k, tokens) -> {
+        Set<CachedToken> indexed = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+        indexed.add(token);
+        return indexed;
+      });
+    }
+  }
+
+  private static void unindex(ConcurrentMap<String, Set<CachedToken>> index, String key, CachedToken token) {
+    if (key != null) {
+      index.computeIfPresent(key, (k, tokens) -> {
+        tokens.remove(token);
+        return tokens.isEmpty() ? null : tokens;
+      });
+    }
+  }
+
+  private static String userKey(String clientId, String userName) {
+    return clientId + '\u0000' + userName;
+  }
+
+  /**
+   * Identity matters here: a reloaded token is a new instance, so late removal notifications for the old entry never unindex the new one.
+   */
+  private static final class CachedToken {
+
+    private final String tokenValue;
+    private final String refreshTokenValue;
+    private final String clientId;
+    private final String userKey;
+    private final AccessTokenAuthentication value;
+    private final boolean racedRevocation;
+
+    private CachedToken(String tokenValue, AccessTokenAuthentication value, boolean racedRevocation) {
+      OAuth2AccessToken accessToken = value.getAccessToken();
+      OAuth2Authentication authentication = value.getAuthentication();
+      this.tokenValue = tokenValue;
+      this.refreshTokenValue = accessToken.getRefreshToken() != null ? accessToken.getRefreshToken().getValue() : null;
+      this.clientId = authentication.getOAuth2Request().getClientId();
+      this.userKey = authentication.isClientOnly() ? null : userKey(clientId, authentication.getName());
+      this.value = value;
+      this.racedRevocation = racedRevocation;
+    }
+
+    private AccessTokenAuthentication getValue() {
+      return value;
+    }
+
+    private OAuth2AccessToken getAccessToken() {
+      return value.getAccessToken();
+    }
+
+    private OAuth2Authentication getAuthentication() {
+      return value.getAuthentication();
+    }
+
+    private long timeToLiveNanos() {
+      OAuth2AccessToken accessToken = value.getAccessToken();
+      if (accessToken.getExpiration() == null) {
+        return Long.MAX_VALUE;
+      }
+      long millis = accessToken.getExpiration().getTime() - System.currentTimeMillis();
+      return millis > 0 ? TimeUnit.MILLISECONDS.toNanos(millis) : 0;
+    }
+  }
+
+  private static final class TokenExpiry implements Expiry<String, CachedToken> {
+
+    @Override
+    public long expireAfterCreate(String key, CachedToken value, long currentTime) {
+      return value.timeToLiveNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, CachedToken value, long currentTime, long currentDuration) {
+      return value.timeToLiveNanos();
+    }
+
+    @Override
+    public long expireAfterRead(String key, CachedToken value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
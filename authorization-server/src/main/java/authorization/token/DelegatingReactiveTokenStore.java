@@ -0,0 +1,144 @@
+package authorization.token;
+
+import java.util.List;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Base class for {@link ReactiveTokenStore} decorators. Every operation is forwarded to the wrapped store, so subclasses only override what they change.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public abstract class DelegatingReactiveTokenStore implements ReactiveTokenStore {
+
+  private final ReactiveTokenStore delegate;
+
+  protected DelegatingReactiveTokenStore(ReactiveTokenStore delegate) {
+    Assert.notNull(delegate, "Token store required");
+    this.delegate = delegate;
+  }
+
+  protected ReactiveTokenStore getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return delegate.readAuthentication(token);
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    return delegate.readAuthentication(token);
+  }
+
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return delegate.storeAccessToken(token, authentication);
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return delegate.storeTokens(accessToken, refreshToken, authentication);
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return delegate.storeTokens(writes);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    return delegate.readAccessToken(tokenValue);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return delegate.readAccessTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return delegate.readAccessTokenForIntrospection(tokenValue);
+  }
+
+  @Override
+  public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
+    return delegate.removeAccessToken(token);
+  }
+
+  @Override
+  public Mono<Void> storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return delegate.storeRefreshToken(refreshToken, authentication);
+  }
+
+  @Override
+  public Mono<OAuth2RefreshToken> readRefreshToken(String tokenValue) {
+    return delegate.readRefreshToken(tokenValue);
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+    return delegate.readAuthenticationForRefreshToken(token);
+  }
+
+  @Override
+  public Mono<RefreshTokenAuthentication> readRefreshTokenAndAuthentication(String tokenValue) {
+    return delegate.readRefreshTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    return delegate.refreshTokens(previousRefreshToken, accessToken, authentication);
+  }
+
+  @Override
+  public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
+    return delegate.removeRefreshToken(token);
+  }
+
+  @Override
+  public Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+    return delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+    return delegate.getAccessToken(authentication);
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+    return delegate.findTokensByClientIdAndUserName(clientId, userName);
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId) {
+    return delegate.findTokensByClientId(clientId);
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName, int pageSize) {
+    return delegate.findTokensByClientIdAndUserName(clientId, userName, pageSize);
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId, int pageSize) {
+    return delegate.findTokensByClientId(clientId, pageSize);
+  }
+
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return delegate.revokeAllForUser(clientId, userName);
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return delegate.revokeAllForClient(clientId);
+  }
+}
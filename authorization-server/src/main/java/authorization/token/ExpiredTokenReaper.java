@@ -0,0 +1,194 @@
+package authorization.token;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Setter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Periodically deletes expired rows from {@code oauth_access_token} and {@code oauth_refresh_token}, which are otherwise only removed when a lookup happens to
+ * touch them, and expired revocations from {@code oauth_revoked_token}.
+ * <p>
+ * Rows are deleted in chunks of {@code chunkSize}, picked through the index on {@code expiration}, with a pause between chunks so a large backlog does not
+ * monopolize the database. Only the node holding the Postgres advisory lock {@code lockKey} reaps on a given run; the others skip it.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class ExpiredTokenReaper implements SmartLifecycle, MeterBinder {
+
+  private static final Log LOG = LogFactory.getLog(ExpiredTokenReaper.class);
+
+  public static final long DEFAULT_LOCK_KEY = 0x6f61757468L;
+
+  private static final String ACCESS_TOKEN_TABLE = "oauth_access_token";
+
+  private static final String REFRESH_TOKEN_TABLE = "oauth_refresh_token";
+
+  private static final String REVOKED_TOKEN_TABLE = "oauth_revoked_token";
+
+  private static final String DEFAULT_DELETE_EXPIRED_STATEMENT = "delete from %1$s where token_id in (select token_id from %1$s where expiration < now() order by expiration limit $1)";
+
+  private static final String TRY_LOCK_STATEMENT = "select pg_try_advisory_lock($1)";
+
+  private static final String UNLOCK_STATEMENT = "select pg_advisory_unlock($1)";
+
+  private final ConnectionFactory connectionFactory;
+
+  @Setter
+  private int chunkSize = 1000;
+
+  @Setter
+  private Duration interval = Duration.ofMinutes(5);
+
+  @Setter
+  private Duration pauseBetweenChunks = Duration.ofMillis(100);
+
+  @Setter
+  private long lockKey = DEFAULT_LOCK_KEY;
+
+  /**
+   * Table expired access tokens are deleted from. When {@code oauth_access_token} is partitioned, set it to {@code oauth_access_token_default}: the daily
+   * partitions are dropped whole by {@link TokenPartitionManager}.
+   */
+  @Setter
+  private String accessTokenTable = ACCESS_TOKEN_TABLE;
+
+  private final AtomicLong reapedAccessTokens = new AtomicLong();
+
+  private final AtomicLong reapedRefreshTokens = new AtomicLong();
+
+  private final AtomicLong reapedRevokedTokens = new AtomicLong();
+
+  private final AtomicLong runs = new AtomicLong();
+
+  private final AtomicLong runNanos = new AtomicLong();
+
+  private volatile Disposable schedule;
+
+  public ExpiredTokenReaper(ConnectionFactory connectionFactory) {
+    Assert.notNull(connectionFactory, "Connection Factory required");
+    this.connectionFactory = connectionFactory;
+  }
+
+  /**
+   * Reap all currently expired tokens, if no other node is doing so.
+   *
+   * @return the number of rows deleted, 0 if another node holds the lock.
+   */
+  public Mono<Long> reap() {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return Mono.usingWhen(connectionFactory.create(), this::reapIfLeader, Connection::close)
+          .doOnSuccess(ignored -> {
+            runs.incrementAndGet();
+            runNanos.addAndGet(System.nanoTime() - start);
+          });
+    });
+  }
+
+  @Override
+  public void start() {
+    Assert.isTrue(chunkSize > 0, "Chunk size must be positive");
+    schedule = Flux.interval(interval, interval)
+        .onBackpressureDrop()
+        .concatMap(tick -> reap()
+            .doOnNext(count -> {
+              if (count > 0 && LOG.isInfoEnabled()) {
+                LOG.info("Reaped " + count + " expired tokens");
+              }
+            })
+            .onErrorResume(e -> {
+              LOG.warn("Failed to reap expired tokens", e);
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+
+  @Override
+  public void stop() {
+    Disposable current = schedule;
+    if (current != null) {
+      current.dispose();
+      schedule = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return schedule != null;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("oauth.tokens.reaped", reapedAccessTokens, AtomicLong::doubleValue)
+        .description("Expired tokens deleted by the reaper")
+        .tag("table", ACCESS_TOKEN_TABLE)
+        .register(registry);
+    FunctionCounter.builder("oauth.tokens.reaped", reapedRefreshTokens, AtomicLong::doubleValue)
+        .description("Expired tokens deleted by the reaper")
+        .tag("table", REFRESH_TOKEN_TABLE)
+        .register(registry);
+    FunctionCounter.builder("oauth.tokens.reaped", reapedRevokedTokens, AtomicLong::doubleValue)
+        .description("Expired tokens deleted by the reaper")
+        .tag("table", REVOKED_TOKEN_TABLE)
+        .register(registry);
+    FunctionTimer.builder("oauth.tokens.reaper", this, reaper -> reaper.runs.get(), reaper -> reaper.runNanos.get(), TimeUnit.NANOSECONDS)
+        .description("Time spent reaping expired tokens")
+        .register(registry);
+  }
+
+  private Mono<Long> reapIfLeader(Connection connection) {
+    return Mono.from(connection.createStatement(TRY_LOCK_STATEMENT).bind("$1", lockKey).execute())
+        .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Boolean.class))))
+        .flatMap(locked -> {
+          if (!Boolean.TRUE.equals(locked)) {
+            return Mono.just(0L);
+          }
+          // the lock belongs to the session, so release it explicitly before a pooled connection is handed out again
+          return Mono.usingWhen(Mono.just(connection), this::reapAll, this::unlock, (c, e) -> unlock(c), this::unlock);
+        });
+  }
+
+  private Mono<Long> reapAll(Connection connection) {
+    return reapTable(connection, accessTokenTable, reapedAccessTokens)
+        .flatMap(accessTokens -> reapTable(connection, REFRESH_TOKEN_TABLE, reapedRefreshTokens).map(refreshTokens -> accessTokens + refreshTokens))
+        .flatMap(tokens -> reapTable(connection, REVOKED_TOKEN_TABLE, reapedRevokedTokens).map(revokedTokens -> tokens + revokedTokens));
+  }
+
+  private Mono<Long> reapTable(Connection connection, String table, AtomicLong reaped) {
+    String sql = String.format(DEFAULT_DELETE_EXPIRED_STATEMENT, table);
+    return deleteChunk(connection, sql)
+        .expand(count -> count < chunkSize ? Mono.empty() : Mono.delay(pauseBetweenChunks).then(deleteChunk(connection, sql)))
+        .doOnNext(reaped::addAndGet)
+        .reduce(0L, Long::sum);
+  }
+
+  /**
+   * Expired tokens are never read again, so reaped keys need no reads from the primary.
+   */
+  private Mono<Long> deleteChunk(Connection connection, String sql) {
+    return Flux.from(connection.createStatement(sql).bind("$1", chunkSize).execute())
+        .flatMap(result -> result.getRowsUpdated())
+        .reduce(0L, (total, count) -> total + count);
+  }
+
+  private Mono<Void> unlock(Connection connection) {
+    return Flux.from(connection.createStatement(UNLOCK_STATEMENT).bind("$1", lockKey).execute())
+        .flatMap(result -> result.map((row, metadata) -> row.get(0)))
+        .then();
+  }
+}
@@ -0,0 +1,89 @@
+package authorization.token;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Hashed timing wheel: scheduling is O(1), and each tick only looks at the one bucket it lands on. A task is run on the first tick after its deadline and
+ * whatever it expires is expected to re-check that it is still current, since nothing is ever unscheduled.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+class ExpiryWheel {
+
+  private static final Log LOG = LogFactory.getLog(ExpiryWheel.class);
+
+  private final long tickMillis;
+
+  private final Queue<Timeout>[] buckets;
+
+  private final int mask;
+
+  private final long startMillis = System.currentTimeMillis();
+
+  // next tick to process, only advanced by the ticking thread
+  private volatile long tick;
+
+  @SuppressWarnings("unchecked")
+  ExpiryWheel(long tickMillis, int size) {
+    if (tickMillis <= 0 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Tick must be positive and size a power of two");
+    }
+    this.tickMillis = tickMillis;
+    this.buckets = new Queue[size];
+    for (int i = 0; i < size; i++) {
+      buckets[i] = new ConcurrentLinkedQueue<>();
+    }
+    this.mask = size - 1;
+  }
+
+  void schedule(long deadlineMillis, Runnable task) {
+    // round up so the deadline has passed by the time its bucket is processed, and never into a bucket that may already have been processed
+    long ticks = Math.max((deadlineMillis - startMillis + tickMillis - 1) / tickMillis, tick + 1);
+    buckets[(int) (ticks & mask)].add(new Timeout(deadlineMillis, task));
+  }
+
+  /**
+   * Process every tick up to now. Must only be called from one thread at a time.
+   */
+  void advance() {
+    long now = System.currentTimeMillis();
+    long target = (now - startMillis) / tickMillis;
+    long current = tick;
+    // after a long pause, one full turn visits every bucket
+    long last = Math.min(target, current + buckets.length - 1);
+    for (; current <= last; current++) {
+      expire(buckets[(int) (current & mask)], now);
+    }
+    tick = Math.max(current, target + 1);
+  }
+
+  private void expire(Queue<Timeout> bucket, long now) {
+    for (Iterator<Timeout> it = bucket.iterator(); it.hasNext(); ) {
+      Timeout timeout = it.next();
+      if (timeout.deadlineMillis <= now) {
+        it.remove();
+        try {
+          timeout.task.run();
+        } catch (RuntimeException e) {
+          LOG.warn("Failed to expire token", e);
+        }
+      }
+    }
+  }
+
+  private static final class Timeout {
+
+    private final long deadlineMillis;
+    private final Runnable task;
+
+    private Timeout(long deadlineMillis, Runnable task) {
+      this.deadlineMillis = deadlineMillis;
+      this.task = task;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package authorization.token;
+
+import authorization.token.key.TokenKeyGenerator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps a {@link BloomFilter} of the keys of issued access tokens in front of a {@link R2dbcTokenStore}, so that reads of tokens that were never
+ * issued, such as forged or garbage tokens, complete empty without a query.
+ * <p>
+ * The filter is built from the table at startup, and until then every read goes to the delegate. Tokens stored through this instance are added. Removed
+ * tokens are only dropped by the periodic rebuild, which scans the table into a new filter and then swaps it in, as keys cannot be taken out of a Bloom
+ * filter. The filter it replaces is still consulted until the next rebuild, so tokens stored while a scan was running are never missed.
+ * <p>
+ * Tokens stored by another node are unknown here until the next rebuild and would be rejected meanwhile, so in a cluster only use this where all token
+ * writes go through the same instance.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class FilteringReactiveTokenStore extends DelegatingReactiveTokenStore implements MeterBinder, DisposableBean {
+
+  private static final Log LOG = LogFactory.getLog(FilteringReactiveTokenStore.class);
+
+  public static final long DEFAULT_EXPECTED_INSERTIONS = 1_000_000;
+
+  public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+  public static final Duration DEFAULT_REBUILD_INTERVAL = Duration.ofHours(1);
+
+  private static final int REBUILD_PAGE_SIZE = 10_000;
+
+  private final R2dbcTokenStore tokenKeys;
+
+  private final TokenKeyGenerator tokenKeyGenerator;
+
+  private final long expectedInsertions;
+
+  private final double falsePositiveProbability;
+
+  private final Disposable rebuilder;
+
+  private final AtomicLong rejections = new AtomicLong();
+
+  // takes the writes made before the first build, which then keeps it as its previous filter
+  private volatile Filters filters;
+
+  private volatile boolean built;
+
+  // the filter being rebuilt, if any
+  private volatile BloomFilter building;
+
+  public FilteringReactiveTokenStore(R2dbcTokenStore delegate) {
+    this(delegate, delegate);
+  }
+
+  /**
+   * @param delegate  the store to filter reads for, usually a decorated {@code tokenKeys}
+   * @param tokenKeys the store the filter is built from
+   */
+  public FilteringReactiveTokenStore(ReactiveTokenStore delegate, R2dbcTokenStore tokenKeys) {
+    this(delegate, tokenKeys, DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FALSE_POSITIVE_PROBABILITY, DEFAULT_REBUILD_INTERVAL);
+  }
+
+  public FilteringReactiveTokenStore(ReactiveTokenStore delegate, R2dbcTokenStore tokenKeys, long expectedInsertions, double falsePositiveProbability,
+      Duration rebuildInterval) {
+    super(delegate);
+    Assert.notNull(tokenKeys, "Token key source required");
+    this.tokenKeys = tokenKeys;
+    this.tokenKeyGenerator = tokenKeys.getTokenKeyGenerator();
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveProbability = falsePositiveProbability;
+    this.filters = new Filters(new BloomFilter(expectedInsertions, falsePositiveProbability), null);
+    this.rebuilder = Flux.interval(Duration.ZERO, rebuildInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> rebuild()
+            .onErrorResume(e -> {
+              LOG.warn("Failed to rebuild token filter", e);
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+
+  @Override
+  public void destroy() {
+    rebuilder.dispose();
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return readAuthentication(token.getValue());
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    return mightContain(token) ? super.readAuthentication(token) : Mono.empty();
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    return mightContain(tokenValue) ? super.readAccessToken(tokenValue) : Mono.empty();
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return mightContain(tokenValue) ? super.readAccessTokenAndAuthentication(tokenValue) : Mono.empty();
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return mightContain(tokenValue) ? super.readAccessTokenForIntrospection(tokenValue) : Mono.empty();
+  }
+
+  /**
+   * Keys are added before the write, so a token is never readable while missing from the filter.
+   */
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return Mono.fromRunnable(() -> add(token.getValue()))
+        .then(super.storeAccessToken(token, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return Mono.fromRunnable(() -> add(accessToken.getValue()))
+        .then(super.storeTokens(accessToken, refreshToken, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Mono.fromRunnable(() -> writes.forEach(write -> add(write.getAccessToken().getValue())))
+        .then(super.storeTokens(writes));
+  }
+
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    return Mono.fromRunnable(() -> add(accessToken.getValue()))
+        .then(super.refreshTokens(previousRefreshToken, accessToken, authentication));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("oauth.tokens.filter.rejections", rejections, AtomicLong::doubleValue).register(registry);
+    Gauge.builder("oauth.tokens.filter.size", this, FilteringReactiveTokenStore::getSizeInBytes).baseUnit("bytes").register(registry);
+  }
+
+  private boolean mightContain(String tokenValue) {
+    if (!built) {
+      return true;
+    }
+    Filters current = filters;
+    for (String key : tokenKeyGenerator.extractLookupKeys(tokenValue)) {
+      if (current.mightContain(key)) {
+        return true;
+      }
+    }
+    rejections.incrementAndGet();
+    return false;
+  }
+
+  private void add(String tokenValue) {
+    String key = tokenKeyGenerator.extractKey(tokenValue);
+    filters.current.add(key);
+    BloomFilter next = building;
+    if (next != null) {
+      next.add(key);
+    }
+  }
+
+  private Mono<Void> rebuild() {
+    return Mono.defer(() -> {
+      BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveProbability);
+      building = next;
+      long started = System.currentTimeMillis();
+      return tokenKeys.findAccessTokenKeys(REBUILD_PAGE_SIZE)
+          .doOnNext(next::add)
+          .then(Mono.fromRunnable(() -> {
+            filters = new Filters(next, filters.current);
+            built = true;
+            if (LOG.isDebugEnabled()) {
+              LOG.debug("Rebuilt token filter in " + (System.currentTimeMillis() - started) + "ms");
+            }
+          }))
+          .doFinally(signal -> building = null)
+          .then();
+    });
+  }
+
+  private long getSizeInBytes() {
+    Filters current = filters;
+    return current.current.getSizeInBytes() + (current.previous != null ? current.previous.getSizeInBytes() : 0);
+  }
+
+  private static final class Filters {
+
+    private final BloomFilter current;
+    private final BloomFilter previous;
+
+    private Filters(BloomFilter current, BloomFilter previous) {
+      this.current = current;
+      this.previous = previous;
+    }
+
+    private boolean mightContain(String key) {
+      return current.mightContain(key) || previous != null && previous.mightContain(key);
+    }
+  }
+}
@@ -0,0 +1,416 @@
+package authorization.token;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveTokenStore} keeping everything on the heap, for single node deployments and load tests.
+ * <p>
+ * Tokens are held in {@link ConcurrentHashMap}s keyed by token value, which lock per bin, with secondary indexes by authentication key, client, user and
+ * refresh token. Every change to an access token and its index entries happens inside {@code compute} for that token, so the indexes never point at a token
+ * that has gone. Expired tokens are dropped by a hashed timing wheel.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class InMemoryReactiveTokenStore implements ReactiveTokenStore, DisposableBean {
+
+  public static final Duration DEFAULT_EXPIRY_TICK = Duration.ofSeconds(1);
+
+  private static final int WHEEL_SIZE = 512;
+
+  private final ConcurrentMap<String, AccessEntry> accessTokenStore = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, RefreshEntry> refreshTokenStore = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, String> authenticationToAccessTokenStore = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Set<String>> refreshTokenToAccessTokenStore = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Set<String>> clientIdToAccessTokenStore = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Set<String>> userNameToAccessTokenStore = new ConcurrentHashMap<>();
+
+  private final AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+
+  private final ExpiryWheel expiryWheel;
+
+  private final Disposable ticker;
+
+  public InMemoryReactiveTokenStore() {
+    this(DEFAULT_EXPIRY_TICK);
+  }
+
+  public InMemoryReactiveTokenStore(Duration expiryTick) {
+    expiryWheel = new ExpiryWheel(expiryTick.toMillis(), WHEEL_SIZE);
+    ticker = Flux.interval(expiryTick)
+        .onBackpressureDrop()
+        .subscribe(tick -> expiryWheel.advance());
+  }
+
+  @Override
+  public void destroy() {
+    ticker.dispose();
+  }
+
+  /**
+   * @return the number of access tokens held
+   */
+  public int getAccessTokenCount() {
+    return accessTokenStore.size();
+  }
+
+  /**
+   * @return the number of refresh tokens held
+   */
+  public int getRefreshTokenCount() {
+    return refreshTokenStore.size();
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return readAuthentication(token.getValue());
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    return Mono.fromSupplier(() -> {
+      AccessEntry entry = accessTokenStore.get(token);
+      return entry != null ? entry.authentication : null;
+    });
+  }
+
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return Mono.fromRunnable(() -> store(token, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return Mono.fromRunnable(() -> {
+      if (refreshToken != null) {
+        store(refreshToken, authentication);
+      }
+      store(accessToken, authentication);
+    });
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Mono.fromRunnable(() -> {
+      for (TokenWrite write : writes) {
+        if (write.getRefreshToken() != null) {
+          store(write.getRefreshToken(), write.getAuthentication());
+        }
+        store(write.getAccessToken(), write.getAuthentication());
+      }
+    });
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    return Mono.fromSupplier(() -> {
+      AccessEntry entry = accessTokenStore.get(tokenValue);
+      return entry != null ? entry.token : null;
+    });
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return Mono.fromSupplier(() -> {
+      AccessEntry entry = accessTokenStore.get(tokenValue);
+      return entry != null ? new AccessTokenAuthentication(entry.token, entry.authentication) : null;
+    });
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return readAccessTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
+    return Mono.fromRunnable(() -> removeAccessToken(token.getValue()));
+  }
+
+  @Override
+  public Mono<Void> storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return Mono.fromRunnable(() -> store(refreshToken, authentication));
+  }
+
+  @Override
+  public Mono<OAuth2RefreshToken> readRefreshToken(String tokenValue) {
+    return Mono.fromSupplier(() -> {
+      RefreshEntry entry = refreshTokenStore.get(tokenValue);
+      return entry != null ? entry.token : null;
+    });
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+    return Mono.fromSupplier(() -> {
+      RefreshEntry entry = refreshTokenStore.get(token.getValue());
+      return entry != null ? entry.authentication : null;
+    });
+  }
+
+  @Override
+  public Mono<RefreshTokenAuthentication> readRefreshTokenAndAuthentication(String tokenValue) {
+    return Mono.fromSupplier(() -> {
+      RefreshEntry entry = refreshTokenStore.get(tokenValue);
+      return entry != null ? new RefreshTokenAuthentication(entry.token, entry.authentication) : null;
+    });
+  }
+
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    return Mono.fromSupplier(() -> {
+      String previous = previousRefreshToken.getValue();
+      OAuth2RefreshToken refreshToken = accessToken.getRefreshToken();
+      boolean rotated = refreshToken != null && !refreshToken.getValue().equals(previous);
+      // removed right away when rotated, so that a concurrent refresh with the same refresh token fails
+      if (rotated ? refreshTokenStore.remove(previous) == null : !refreshTokenStore.containsKey(previous)) {
+        return false;
+      }
+      Set<String> accessTokens = refreshTokenToAccessTokenStore.get(previous);
+      if (accessTokens != null) {
+        for (String previousAccessToken : new ArrayList<>(accessTokens)) {
+          removeAccessToken(previousAccessToken);
+        }
+      }
+      if (rotated) {
+        store(refreshToken, authentication);
+      }
+      store(accessToken, authentication);
+      return true;
+    });
+  }
+
+  @Override
+  public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
+    return Mono.fromRunnable(() -> refreshTokenStore.remove(token.getValue()));
+  }
+
+  @Override
+  public Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+    return Mono.fromRunnable(() -> {
+      Set<String> accessTokens = refreshTokenToAccessTokenStore.get(refreshToken.getValue());
+      if (accessTokens != null) {
+        for (String accessToken : new ArrayList<>(accessTokens)) {
+          removeAccessToken(accessToken);
+        }
+      }
+    });
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+    return Mono.fromSupplier(() -> {
+      String key = authenticationKeyGenerator.extractKey(authentication);
+      String tokenValue = authenticationToAccessTokenStore.get(key);
+      AccessEntry entry = tokenValue != null ? accessTokenStore.get(tokenValue) : null;
+      if (entry == null) {
+        return null;
+      }
+      if (!key.equals(authenticationKeyGenerator.extractKey(entry.authentication))) {
+        // Keep the store consistent (maybe the same user is represented by this authentication but the details have changed)
+        store(entry.token, authentication);
+      }
+      return entry.token;
+    });
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+    return findTokens(userNameToAccessTokenStore, userKey(clientId, userName));
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId) {
+    return findTokens(clientIdToAccessTokenStore, clientId);
+  }
+
+  /**
+   * Tokens are already in memory, so the page size does not matter here.
+   */
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName, int pageSize) {
+    return findTokensByClientIdAndUserName(clientId, userName);
+  }
+
+  /**
+   * Tokens are already in memory, so the page size does not matter here.
+   */
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId, int pageSize) {
+    return findTokensByClientId(clientId);
+  }
+
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return Mono.fromSupplier(() -> revokeAll(userNameToAccessTokenStore, userKey(clientId, userName)));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return Mono.fromSupplier(() -> revokeAll(clientIdToAccessTokenStore, clientId));
+  }
+
+  private void store(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    AccessEntry entry = new AccessEntry(token, authentication, authenticationKeyGenerator.extractKey(authentication));
+    accessTokenStore.compute(token.getValue(), (key, previous) -> {
+      if (previous != null) {
+        unindex(previous);
+      }
+      index(entry);
+      return entry;
+    });
+    if (token.getExpiration() != null) {
+      expiryWheel.schedule(token.getExpiration().getTime(), () -> accessTokenStore.computeIfPresent(token.getValue(), (key, current) -> {
+        if (current != entry) {
+          return current;
+        }
+        unindex(current);
+        return null;
+      }));
+    }
+  }
+
+  private void store(OAuth2RefreshToken token, OAuth2Authentication authentication) {
+    RefreshEntry entry = new RefreshEntry(token, authentication);
+    refreshTokenStore.put(token.getValue(), entry);
+    if (token instanceof ExpiringOAuth2RefreshToken) {
+      Date expiration = ((ExpiringOAuth2RefreshToken) token).getExpiration();
+      if (expiration != null) {
+        expiryWheel.schedule(expiration.getTime(), () -> refreshTokenStore.remove(token.getValue(), entry));
+      }
+    }
+  }
+
+  private AccessEntry removeAccessToken(String tokenValue) {
+    AccessEntry[] removed = new AccessEntry[1];
+    accessTokenStore.computeIfPresent(tokenValue, (key, entry) -> {
+      unindex(entry);
+      removed[0] = entry;
+      return null;
+    });
+    return removed[0];
+  }
+
+  private long revokeAll(ConcurrentMap<String, Set<String>> index, String key) {
+    Set<String> accessTokens = index.get(key);
+    if (accessTokens == null) {
+      return 0;
+    }
+    long revoked = 0;
+    for (String accessToken : new ArrayList<>(accessTokens)) {
+      AccessEntry entry = removeAccessToken(accessToken);
+      if (entry != null) {
+        revoked++;
+        if (entry.refreshTokenValue != null) {
+          refreshTokenStore.remove(entry.refreshTokenValue);
+        }
+      }
+    }
+    return revoked;
+  }
+
+  private Flux<OAuth2AccessToken> findTokens(ConcurrentMap<String, Set<String>> index, String key) {
+    return Flux.defer(() -> {
+      Set<String> accessTokens = index.getOrDefault(key, Collections.emptySet());
+      List<OAuth2AccessToken> tokens = new ArrayList<>(accessTokens.size());
+      for (String accessToken : accessTokens) {
+        AccessEntry entry = accessTokenStore.get(accessToken);
+        if (entry != null) {
+          tokens.add(entry.token);
+        }
+      }
+      return Flux.fromIterable(tokens);
+    });
+  }
+
+  private void index(AccessEntry entry) {
+    authenticationToAccessTokenStore.put(entry.authenticationKey, entry.tokenValue);
+    index(refreshTokenToAccessTokenStore, entry.refreshTokenValue, entry.tokenValue);
+    index(clientIdToAccessTokenStore, entry.clientId, entry.tokenValue);
+    index(userNameToAccessTokenStore, entry.userKey, entry.tokenValue);
+  }
+
+  private void unindex(AccessEntry entry) {
+    authenticationToAccessTokenStore.remove(entry.authenticationKey, entry.tokenValue);
+    unindex(refreshTokenToAccessTokenStore, entry.refreshTokenValue, entry.tokenValue);
+    unindex(clientIdToAccessTokenStore, entry.clientId, entry.tokenValue);
+    unindex(userNameToAccessTokenStore, entry.userKey, entry.tokenValue);
+  }
+
+  private static void index(ConcurrentMap<String, Set<String>> index, String key, String tokenValue) {
+    if (key != null) {
+      index.compute(key, (k, tokens) -> {
+        Set<String> indexed = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+        indexed.add(tokenValue);
+        return indexed;
+      });
+    }
+  }
+
+  private static void unindex(ConcurrentMap<String, Set<String>> index, String key, String tokenValue) {
+    if (key != null) {
+      index.computeIfPresent(key, (k, tokens) -> {
+        tokens.remove(tokenValue);
+        return tokens.isEmpty() ? null : tokens;
+      });
+    }
+  }
+
+  private static String userKey(String clientId, String userName) {
+    return clientId + '\u0000' + userName;
+  }
+
+  private static final class AccessEntry {
+
+    private final String tokenValue;
+    private final OAuth2AccessToken token;
+    private final OAuth2Authentication authentication;
+    private final String authenticationKey;
+    private final String refreshTokenValue;
+    private final String clientId;
+    private final String userKey;
+
+    private AccessEntry(OAuth2AccessToken token, OAuth2Authentication authentication, String authenticationKey) {
+      this.tokenValue = token.getValue();
+      this.token = token;
+      this.authentication = authentication;
+      this.authenticationKey = authenticationKey;
+      this.refreshTokenValue = token.getRefreshToken() != null ? token.getRefreshToken().getValue() : null;
+      this.clientId = authentication.getOAuth2Request().getClientId();
+      this.userKey = authentication.isClientOnly() ? null : userKey(clientId, authentication.getName());
+    }
+  }
+
+  private static final class RefreshEntry {
+
+    private final OAuth2RefreshToken token;
+    private final OAuth2Authentication authentication;
+
+    private RefreshEntry(OAuth2RefreshToken token, OAuth2Authentication authentication) {
+      this.token = token;
+      this.authentication = authentication;
+    }
+  }
+}
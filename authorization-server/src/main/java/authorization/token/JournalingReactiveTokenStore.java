@@ -0,0 +1,578 @@
+package authorization.token;
+
+import authorization.token.TokenJournal.Record;
+import authorization.token.codec.CompactTokenCodec;
+import authorization.token.codec.TokenCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Write-behind {@link ReactiveTokenStore}: token writes complete as soon as they are appended to a local {@link TokenJournal}, and are replayed to the
+ * delegate in batches in the background, so issuing tokens does not wait on the database nor fails while it is down. Whatever was not replayed yet is read
+ * back from the journal on startup and replayed again.
+ * <p>
+ * Until they are replayed, tokens are served from memory to this instance's reads; other nodes only see them once replayed. Removals of pending tokens are
+ * journaled too, so that they do not come back after a crash, and wait for the batch in flight so that it cannot write them back after they were deleted.
+ * Refresh tokens stored on their own are written through, and so are refreshes, once the presented refresh token has been replayed. When the journal is
+ * full, writes are written through once what it holds has been replayed, so that they land after the writes journaled before them.
+ * <p>
+ * The journal survives the process crashing as soon as a write completes. With {@code force}, every write is also flushed to disk before completing, which
+ * covers the machine crashing too. Flushes run on the bounded elastic scheduler, one at a time, and each covers every write journaled before it started.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class JournalingReactiveTokenStore extends DelegatingReactiveTokenStore implements DisposableBean {
+
+  private static final Log LOG = LogFactory.getLog(JournalingReactiveTokenStore.class);
+
+  public static final int DEFAULT_CAPACITY = 64 * 1024 * 1024;
+
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  public static final Duration DEFAULT_REPLAY_INTERVAL = Duration.ofMillis(50);
+
+  private static final byte WRITE = 1;
+
+  private static final byte REMOVE_ACCESS_TOKEN = 2;
+
+  private static final byte REMOVE_REFRESH_TOKEN = 3;
+
+  private static final byte REMOVE_ACCESS_TOKEN_USING_REFRESH_TOKEN = 4;
+
+  private static final byte REVOKE = 5;
+
+  // left free by writes so that removals can always be journaled
+  private static final int REMOVAL_RESERVE = 1024 * 1024;
+
+  private static final Duration REPLAY_TIMEOUT = Duration.ofSeconds(10);
+
+  private final TokenJournal journal;
+
+  private final TokenCodec tokenCodec = new CompactTokenCodec();
+
+  private final AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+
+  private final boolean force;
+
+  private final int batchSize;
+
+  private final Duration replayInterval;
+
+  // journaled records in order, with the access token they wrote if any
+  private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+  private final ConcurrentMap<String, Pending> pendingByAccessToken = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Pending> pendingByRefreshToken = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Pending> pendingByAuthentication = new ConcurrentHashMap<>();
+
+  private final Disposable replayer;
+
+  // completes once the batch being replayed is written
+  private volatile Mono<Void> replaying = Mono.empty();
+
+  // journal marks of the last record journaled and of the last one replayed
+  private volatile long journaledMark;
+
+  private volatile long replayedMark;
+
+  // journal mark of the last record flushed to disk, guarded by the lock itself
+  private final Object forceLock = new Object();
+
+  private long forcedMark;
+
+  public JournalingReactiveTokenStore(ReactiveTokenStore delegate, Path journalFile) {
+    this(delegate, journalFile, DEFAULT_CAPACITY, false, DEFAULT_BATCH_SIZE, DEFAULT_REPLAY_INTERVAL);
+  }
+
+  public JournalingReactiveTokenStore(ReactiveTokenStore delegate, Path journalFile, int capacity, boolean force, int batchSize, Duration replayInterval) {
+    super(delegate);
+    Assert.notNull(journalFile, "Journal file required");
+    Assert.isTrue(capacity > 2 * REMOVAL_RESERVE, "Capacity must be more than " + 2 * REMOVAL_RESERVE);
+    Assert.isTrue(batchSize > 0, "Batch size must be positive");
+    this.force = force;
+    this.batchSize = batchSize;
+    this.replayInterval = replayInterval;
+    try {
+      this.journal = new TokenJournal(journalFile, capacity);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open token journal " + journalFile, e);
+    }
+    recover();
+    this.replayer = Flux.interval(replayInterval, replayInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> replay()
+            .onErrorResume(e -> {
+              LOG.warn("Failed to replay token journal, will retry", e);
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+
+  /**
+   * Stop replaying, after a last attempt at replaying everything. What is left is replayed on the next start.
+   */
+  @Override
+  public void destroy() throws IOException {
+    replayer.dispose();
+    try {
+      replay().block(Duration.ofSeconds(10));
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to replay token journal before shutdown", e);
+    }
+    journal.close();
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return readAuthentication(token.getValue());
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    Pending pending = pendingByAccessToken.get(token);
+    return pending != null ? Mono.just(pending.write.getAuthentication()) : super.readAuthentication(token);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    Pending pending = pendingByAccessToken.get(tokenValue);
+    return pending != null ? Mono.just(pending.write.getAccessToken()) : super.readAccessToken(tokenValue);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    Pending pending = pendingByAccessToken.get(tokenValue);
+    return pending != null ? Mono.just(new AccessTokenAuthentication(pending.write.getAccessToken(), pending.write.getAuthentication()))
+        : super.readAccessTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    Pending pending = pendingByAccessToken.get(tokenValue);
+    return pending != null ? Mono.just(new AccessTokenAuthentication(pending.write.getAccessToken(), pending.write.getAuthentication()))
+        : super.readAccessTokenForIntrospection(tokenValue);
+  }
+
+  @Override
+  public Mono<OAuth2RefreshToken> readRefreshToken(String tokenValue) {
+    Pending pending = pendingByRefreshToken.get(tokenValue);
+    return pending != null ? Mono.just(pending.write.getRefreshToken()) : super.readRefreshToken(tokenValue);
+  }
+
+  @Override
+  public Mono<RefreshTokenAuthentication> readRefreshTokenAndAuthentication(String tokenValue) {
+    Pending pending = pendingByRefreshToken.get(tokenValue);
+    return pending != null ? Mono.just(new RefreshTokenAuthentication(pending.write.getRefreshToken(), pending.write.getAuthentication()))
+        : super.readRefreshTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+    Pending pending = pendingByRefreshToken.get(token.getValue());
+    return pending != null ? Mono.just(pending.write.getAuthentication()) : super.readAuthenticationForRefreshToken(token);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+    return Mono.defer(() -> {
+      Pending pending = pendingByAuthentication.get(authenticationKeyGenerator.extractKey(authentication));
+      if (pending == null) {
+        return super.getAccessToken(authentication);
+      }
+      OAuth2AccessToken accessToken = pending.write.getAccessToken();
+      return pending.write.getAuthentication().equals(authentication) ? Mono.just(accessToken)
+          : storeAccessToken(accessToken, authentication).thenReturn(accessToken);
+    });
+  }
+
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return storeTokens(token, null, authentication);
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return Mono.defer(() -> {
+      long mark = journal(new TokenWrite(accessToken, refreshToken, authentication));
+      return mark >= 0 ? forced(mark) : replayed().then(super.storeTokens(accessToken, refreshToken, authentication));
+    });
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Mono.defer(() -> {
+      List<TokenWrite> overflow = new ArrayList<>();
+      long journaled = 0;
+      for (TokenWrite write : writes) {
+        long mark = journal(write);
+        if (mark < 0) {
+          overflow.add(write);
+        } else {
+          journaled = mark;
+        }
+      }
+      return forced(journaled).then(overflow.isEmpty() ? Mono.empty() : replayed().then(super.storeTokens(overflow)));
+    });
+  }
+
+  @Override
+  public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
+    return Mono.defer(() -> {
+      String value = token.getValue();
+      long mark = journalRemoval(REMOVE_ACCESS_TOKEN, () -> unpend(pendingByAccessToken.get(value)), value);
+      return forced(mark).then(replaying);
+    }).then(super.removeAccessToken(token));
+  }
+
+  @Override
+  public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
+    return Mono.defer(() -> {
+      String value = token.getValue();
+      long mark = journalRemoval(REMOVE_REFRESH_TOKEN, () -> dropRefreshToken(value), value);
+      return forced(mark).then(replaying);
+    }).then(super.removeRefreshToken(token));
+  }
+
+  @Override
+  public Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+    return Mono.defer(() -> {
+      String value = refreshToken.getValue();
+      long mark = journalRemoval(REMOVE_ACCESS_TOKEN_USING_REFRESH_TOKEN, () -> unpend(pendingByRefreshToken.get(value)), value);
+      return forced(mark).then(replaying);
+    }).then(super.removeAccessTokenUsingRefreshToken(refreshToken));
+  }
+
+  /**
+   * The delegate has to find the presented refresh token, so wait for it to be replayed first.
+   */
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    return Flux.interval(Duration.ZERO, replayInterval)
+        .filter(tick -> !pendingByRefreshToken.containsKey(previousRefreshToken.getValue()))
+        .next()
+        .timeout(REPLAY_TIMEOUT)
+        .then(super.refreshTokens(previousRefreshToken, accessToken, authentication));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return revoking(clientId, userName, super.revokeAllForUser(clientId, userName));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return revoking(clientId, null, super.revokeAllForClient(clientId));
+  }
+
+  private Mono<Long> revoking(String clientId, String userName, Mono<Long> revocation) {
+    return Mono.defer(() -> {
+      long[] revoked = new long[1];
+      long mark = journalRemoval(REVOKE, () -> {
+        revoked[0] = revokePending(clientId, userName);
+        return revoked[0] > 0;
+      }, clientId, userName);
+      return forced(mark).then(replaying).then(revocation).map(count -> count + revoked[0]);
+    });
+  }
+
+  /**
+   * Completes once everything journaled so far has been replayed.
+   */
+  private Mono<Void> replayed() {
+    return Mono.defer(() -> {
+      long mark = journaledMark;
+      return Flux.interval(Duration.ZERO, replayInterval)
+          .filter(tick -> replayedMark >= mark)
+          .next()
+          .timeout(REPLAY_TIMEOUT)
+          .then();
+    });
+  }
+
+  /**
+   * Completes once the record ending at {@code mark} is on disk, if writes are forced.
+   */
+  private Mono<Void> forced(long mark) {
+    if (!force || mark <= 0) {
+      return Mono.empty();
+    }
+    return Mono.<Void>fromRunnable(() -> force(mark)).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private void force(long mark) {
+    synchronized (forceLock) {
+      if (forcedMark >= mark) {
+        return;
+      }
+      // whatever was journaled while the previous flush ran is flushed at once
+      long journaled = journaledMark;
+      journal.force();
+      forcedMark = journaled;
+    }
+  }
+
+  /**
+   * @return the journal mark of the write, or -1 if the journal is full
+   */
+  private long journal(TokenWrite write) {
+    byte[] accessToken = tokenCodec.encodeAccessToken(write.getAccessToken());
+    byte[] refreshToken = write.getRefreshToken() != null ? tokenCodec.encodeRefreshToken(write.getRefreshToken()) : null;
+    byte[] authentication = tokenCodec.encodeAuthentication(write.getAuthentication());
+    Pending pending = new Pending(write, authenticationKeyGenerator.extractKey(write.getAuthentication()));
+    synchronized (this) {
+      long mark = journal.append(WRITE, REMOVAL_RESERVE, accessToken, refreshToken, authentication);
+      if (mark < 0) {
+        LOG.warn("Token journal is full, writing through");
+        return -1;
+      }
+      pend(pending);
+      entries.add(new Entry(write.getAccessToken().getValue(), mark));
+      journaledMark = mark;
+      return mark;
+    }
+  }
+
+  /**
+   * Apply a removal to the pending writes, and journal it if it changed any.
+   *
+   * @param removal returns whether any pending write was changed
+   * @return the journal mark of the removal, or 0 if it was not journaled
+   */
+  private long journalRemoval(byte type, BooleanSupplier removal, String... fields) {
+    byte[][] encoded = new byte[fields.length][];
+    for (int i = 0; i < fields.length; i++) {
+      encoded[i] = fields[i] != null ? fields[i].getBytes(StandardCharsets.UTF_8) : null;
+    }
+    synchronized (this) {
+      if (!removal.getAsBoolean()) {
+        return 0;
+      }
+      long mark = journal.append(type, 0, encoded);
+      if (mark < 0) {
+        LOG.error("Token journal is full, a removal of pending tokens is not journaled and would be lost on a crash");
+        return 0;
+      }
+      entries.add(new Entry(null, mark));
+      journaledMark = mark;
+      return mark;
+    }
+  }
+
+  private void recover() {
+    List<Record> records = journal.recover();
+    for (Record record : records) {
+      String access = null;
+      switch (record.type) {
+        case WRITE:
+          TokenWrite write;
+          try {
+            write = new TokenWrite(tokenCodec.decodeAccessToken(ByteBuffer.wrap(record.fields.get(0))),
+                record.fields.get(1) != null ? tokenCodec.decodeRefreshToken(ByteBuffer.wrap(record.fields.get(1))) : null,
+                tokenCodec.decodeAuthentication(ByteBuffer.wrap(record.fields.get(2))));
+          } catch (IllegalArgumentException e) {
+            LOG.error("Failed to decode a journaled token write, it is lost", e);
+            break;
+          }
+          pend(new Pending(write, authenticationKeyGenerator.extractKey(write.getAuthentication())));
+          access = write.getAccessToken().getValue();
+          break;
+        case REMOVE_ACCESS_TOKEN:
+          unpend(pendingByAccessToken.get(string(record.fields.get(0))));
+          break;
+        case REMOVE_REFRESH_TOKEN:
+          dropRefreshToken(string(record.fields.get(0)));
+          break;
+        case REMOVE_ACCESS_TOKEN_USING_REFRESH_TOKEN:
+          unpend(pendingByRefreshToken.get(string(record.fields.get(0))));
+          break;
+        case REVOKE:
+          revokePending(string(record.fields.get(0)), record.fields.get(1) != null ? string(record.fields.get(1)) : null);
+          break;
+        default:
+          throw new IllegalStateException("Unknown token journal record " + record.type);
+      }
+      entries.add(new Entry(access, record.end));
+      journaledMark = record.end;
+    }
+    if (!records.isEmpty() && LOG.isInfoEnabled()) {
+      LOG.info("Recovered " + pendingByAccessToken.size() + " token writes to replay from the token journal");
+    }
+  }
+
+  /**
+   * Replay batches until everything journaled so far is written.
+   */
+  private Mono<Void> replay() {
+    return Mono.defer(this::replayBatch)
+        .repeat(() -> !entries.isEmpty())
+        .then();
+  }
+
+  private Mono<Void> replayBatch() {
+    if (entries.isEmpty()) {
+      return Mono.empty();
+    }
+    Sinks.Empty<Void> replayed = Sinks.empty();
+    // set before looking up the pending writes, so that a removal either drops a write from the batch or waits for it
+    replaying = replayed.asMono();
+    List<Entry> batch = new ArrayList<>(batchSize);
+    Map<String, Pending> writes = new LinkedHashMap<>();
+    for (Iterator<Entry> it = entries.iterator(); it.hasNext() && batch.size() < batchSize; ) {
+      Entry entry = it.next();
+      batch.add(entry);
+      Pending pending = entry.accessToken != null ? pendingByAccessToken.get(entry.accessToken) : null;
+      if (pending != null) {
+        writes.put(entry.accessToken, pending);
+      }
+    }
+    List<TokenWrite> tokenWrites = new ArrayList<>(writes.size());
+    writes.values().forEach(pending -> tokenWrites.add(pending.write));
+    return (tokenWrites.isEmpty() ? Mono.<Void>empty() : getDelegate().storeTokens(tokenWrites))
+        .then(Mono.fromRunnable(() -> {
+          writes.values().forEach(this::unpendReplayed);
+          for (int i = 0; i < batch.size(); i++) {
+            entries.poll();
+          }
+          long mark = batch.get(batch.size() - 1).end;
+          journal.checkpoint(mark);
+          if (force) {
+            // the ring reuses the space before the checkpoint, which has to be on disk first
+            journal.force();
+          }
+          replayedMark = mark;
+        }).subscribeOn(force ? Schedulers.boundedElastic() : Schedulers.immediate()))
+        .doFinally(signal -> replayed.tryEmitEmpty())
+        .then();
+  }
+
+  private void pend(Pending pending) {
+    TokenWrite write = pending.write;
+    pendingByAccessToken.put(write.getAccessToken().getValue(), pending);
+    if (write.getRefreshToken() != null) {
+      pendingByRefreshToken.put(write.getRefreshToken().getValue(), pending);
+    }
+    pendingByAuthentication.put(pending.authenticationKey, pending);
+  }
+
+  private boolean unpend(Pending pending) {
+    if (pending == null || !remove(pendingByAccessToken, pending.write.getAccessToken().getValue(), pending)) {
+      return false;
+    }
+    unpendReplayed(pending);
+    return true;
+  }
+
+  private void unpendReplayed(Pending pending) {
+    TokenWrite write = pending.write;
+    remove(pendingByAccessToken, write.getAccessToken().getValue(), pending);
+    if (write.getRefreshToken() != null) {
+      remove(pendingByRefreshToken, write.getRefreshToken().getValue(), pending);
+    }
+    remove(pendingByAuthentication, pending.authenticationKey, pending);
+  }
+
+  /**
+   * Remove the pending write under {@code key} if it is the same write as {@code pending}, even if its refresh token was dropped since.
+   */
+  private static boolean remove(ConcurrentMap<String, Pending> pendings, String key, Pending pending) {
+    boolean[] removed = new boolean[1];
+    pendings.computeIfPresent(key, (k, current) -> {
+      removed[0] = current.journaled == pending.journaled;
+      return removed[0] ? null : current;
+    });
+    return removed[0];
+  }
+
+  /**
+   * Keep the pending access token, without the refresh token.
+   */
+  private boolean dropRefreshToken(String refreshToken) {
+    Pending pending = pendingByRefreshToken.remove(refreshToken);
+    if (pending == null) {
+      return false;
+    }
+    TokenWrite write = pending.write;
+    Pending replacement = new Pending(new TokenWrite(write.getAccessToken(), null, write.getAuthentication()), pending.authenticationKey, pending.journaled);
+    pendingByAccessToken.replace(write.getAccessToken().getValue(), pending, replacement);
+    pendingByAuthentication.replace(pending.authenticationKey, pending, replacement);
+    return true;
+  }
+
+  private long revokePending(String clientId, String userName) {
+    Predicate<OAuth2Authentication> matches = authentication -> clientId.equals(authentication.getOAuth2Request().getClientId())
+        && (userName == null || !authentication.isClientOnly() && userName.equals(authentication.getName()));
+    long revoked = 0;
+    for (Pending pending : pendingByAccessToken.values()) {
+      if (matches.test(pending.write.getAuthentication()) && unpend(pending)) {
+        revoked++;
+      }
+    }
+    return revoked;
+  }
+
+  private static String string(byte[] bytes) {
+    return new String(Objects.requireNonNull(bytes), StandardCharsets.UTF_8);
+  }
+
+  private static final class Pending {
+
+    private final TokenWrite write;
+    private final String authenticationKey;
+    // the write as journaled, shared with the copies left when its refresh token is dropped
+    private final TokenWrite journaled;
+
+    private Pending(TokenWrite write, String authenticationKey) {
+      this(write, authenticationKey, write);
+    }
+
+    private Pending(TokenWrite write, String authenticationKey, TokenWrite journaled) {
+      this.write = write;
+      this.authenticationKey = authenticationKey;
+      this.journaled = journaled;
+    }
+  }
+
+  private static final class Entry {
+
+    private final String accessToken;
+    private final long end;
+
+    private Entry(String accessToken, long end) {
+      this.accessToken = accessToken;
+      this.end = end;
+    }
+  }
+}
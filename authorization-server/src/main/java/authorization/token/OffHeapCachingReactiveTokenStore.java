@@ -0,0 +1,413 @@
+package authorization.token;
+
+import authorization.token.SlabSegment.Record;
+import authorization.token.codec.CompactTokenCodec;
+import authorization.token.codec.TokenCodec;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import lombok.Setter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache in front of any {@link ReactiveTokenStore} that keeps access tokens and their authentication encoded in off-heap slabs, so heap usage
+ * stays flat however many tokens are cached. Records are decoded with the {@link TokenCodec} on every hit.
+ * <p>
+ * The space is split into lock-striped {@link SlabSegment}s of fixed size slots, indexed by the 128-bit MD5 key of the token and evicted with the clock
+ * algorithm. Records bigger than a slot are not cached.
+ * <p>
+ * Removing a token invalidates it directly. Removals by refresh token, user or client cannot find their records, so they leave a revocation marker instead:
+ * a record cached before a marker on its refresh token, user or client is treated as a miss. Records are kept for {@code maximumTimeToLive} at most, so
+ * markers older than that are pruned; only if {@code maximumMarkers} younger ones pile up is the whole cache dropped. Invalidations received from other
+ * nodes through an {@link authorization.r2dbc.InvalidationBus} are applied the same way.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class OffHeapCachingReactiveTokenStore extends DelegatingReactiveTokenStore implements TokenInvalidationListener, MeterBinder {
+
+  private static final Log LOG = LogFactory.getLog(OffHeapCachingReactiveTokenStore.class);
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 1_000_000;
+
+  public static final int DEFAULT_SLOT_SIZE = 512;
+
+  public static final int DEFAULT_MAXIMUM_MARKERS = 1_000_000;
+
+  // the access token validity of DefaultTokenServices
+  public static final Duration DEFAULT_MAXIMUM_TIME_TO_LIVE = Duration.ofHours(12);
+
+  private static final int MINIMUM_PRUNE_SIZE = 1024;
+
+  private static final int SEGMENTS = 64;
+
+  private static final int REFRESH_TOKEN = 1;
+
+  private static final int CLIENT = 2;
+
+  private static final int USER = 3;
+
+  private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 algorithm not available.  Fatal (should be in the JDK).");
+    }
+  });
+
+  private final SlabSegment[] segments = new SlabSegment[SEGMENTS];
+
+  private final int slotSize;
+
+  // bumped by every revocation marker, a record cached before a marker on its refresh token, client or user is revoked
+  private final AtomicLong revocations = new AtomicLong();
+
+  // bumped when the whole cache is dropped, a record read from the delegate is only cached if that did not happen meanwhile
+  private final AtomicLong clears = new AtomicLong();
+
+  // hash of a refresh token, client or user -> its latest revocation
+  private final ConcurrentMap<Long, Marker> revocationMarkers = new ConcurrentHashMap<>();
+
+  // marker count at which old markers are pruned next
+  private volatile int pruneAt = MINIMUM_PRUNE_SIZE;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  @Setter
+  private TokenCodec tokenCodec = new CompactTokenCodec();
+
+  @Setter
+  private int maximumMarkers = DEFAULT_MAXIMUM_MARKERS;
+
+  /**
+   * Longest access token validity of any client. Records are not kept longer, whatever the expiration of their token.
+   */
+  @Setter
+  private Duration maximumTimeToLive = DEFAULT_MAXIMUM_TIME_TO_LIVE;
+
+  public OffHeapCachingReactiveTokenStore(ReactiveTokenStore delegate) {
+    this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_SLOT_SIZE);
+  }
+
+  public OffHeapCachingReactiveTokenStore(ReactiveTokenStore delegate, int maximumSize, int slotSize) {
+    super(delegate);
+    Assert.isTrue(maximumSize >= SEGMENTS, "Maximum size must be at least " + SEGMENTS);
+    Assert.isTrue(slotSize > SlabSegment.HEADER_SIZE, "Slot size must be more than " + SlabSegment.HEADER_SIZE);
+    this.slotSize = slotSize;
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new SlabSegment(maximumSize / SEGMENTS, slotSize);
+    }
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return readAuthentication(token.getValue());
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    return get(token).map(AccessTokenAuthentication::getAuthentication);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    return get(tokenValue).map(AccessTokenAuthentication::getAccessToken);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return get(tokenValue);
+  }
+
+  /**
+   * Cached tokens are complete, so introspection goes through the cache too.
+   */
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return readAccessTokenAndAuthentication(tokenValue);
+  }
+
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return invalidating(token.getValue(), super.storeAccessToken(token, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return invalidating(accessToken.getValue(), super.storeTokens(accessToken, refreshToken, authentication));
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Mono.fromRunnable(() -> writes.forEach(write -> invalidate(write.getAccessToken().getValue())))
+        .then(super.storeTokens(writes))
+        .doOnTerminate(() -> writes.forEach(write -> invalidate(write.getAccessToken().getValue())));
+  }
+
+  @Override
+  public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
+    return invalidating(token.getValue(), super.removeAccessToken(token));
+  }
+
+  /**
+   * The delegate may rewrite the authentication stored with the token it returns, so the cached one is dropped.
+   */
+  @Override
+  public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+    return super.getAccessToken(authentication).doOnNext(token -> invalidate(token.getValue()));
+  }
+
+  @Override
+  public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
+    return revoking(hash(REFRESH_TOKEN, token.getValue()), super.removeRefreshToken(token));
+  }
+
+  @Override
+  public Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+    return revoking(hash(REFRESH_TOKEN, refreshToken.getValue()), super.removeAccessTokenUsingRefreshToken(refreshToken));
+  }
+
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    return revoking(hash(REFRESH_TOKEN, previousRefreshToken.getValue()), super.refreshTokens(previousRefreshToken, accessToken, authentication));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return revoking(hash(USER, clientId + '\u0000' + userName), super.revokeAllForUser(clientId, userName));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return revoking(hash(CLIENT, clientId), super.revokeAllForClient(clientId));
+  }
+
+  @Override
+  public void invalidateAccessToken(String tokenValue) {
+    invalidate(tokenValue);
+  }
+
+  @Override
+  public void invalidateRefreshToken(String refreshTokenValue) {
+    revoke(hash(REFRESH_TOKEN, refreshTokenValue));
+  }
+
+  @Override
+  public void invalidateUser(String clientId, String userName) {
+    revoke(hash(USER, clientId + '\u0000' + userName));
+  }
+
+  @Override
+  public void invalidateClient(String clientId) {
+    revoke(hash(CLIENT, clientId));
+  }
+
+  /**
+   * Drop every cached token, e.g. when invalidations may have been missed.
+   */
+  @Override
+  public void invalidateAll() {
+    clears.incrementAndGet();
+    for (SlabSegment segment : segments) {
+      segment.clear();
+    }
+    // only once no record cached before them is left
+    revocationMarkers.clear();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("oauth.tokens.cache.requests", hits, AtomicLong::doubleValue).tag("result", "hit").register(registry);
+    FunctionCounter.builder("oauth.tokens.cache.requests", misses, AtomicLong::doubleValue).tag("result", "miss").register(registry);
+    FunctionCounter.builder("oauth.tokens.cache.evictions", this, store -> store.sum(SlabSegment::getEvictions)).register(registry);
+    Gauge.builder("oauth.tokens.cache.size", this, store -> store.sum(SlabSegment::getEntries)).register(registry);
+    Gauge.builder("oauth.tokens.cache.off.heap.used", this, store -> store.sum(SlabSegment::getBytesInUse)).baseUnit("bytes").register(registry);
+    Gauge.builder("oauth.tokens.cache.off.heap.capacity", this, store -> store.sum(SlabSegment::getCapacityBytes)).baseUnit("bytes").register(registry);
+  }
+
+  private Mono<AccessTokenAuthentication> get(String tokenValue) {
+    return Mono.defer(() -> {
+      ByteBuffer key = key(tokenValue);
+      long high = key.getLong(0);
+      long low = key.getLong(8);
+      SlabSegment segment = segment(high);
+      Record record = segment.get(high, low, System.currentTimeMillis());
+      if (record != null) {
+        AccessTokenAuthentication value = revoked(record) ? null : decode(record);
+        if (value != null) {
+          hits.incrementAndGet();
+          return Mono.just(value);
+        }
+        segment.remove(high, low);
+      }
+      misses.incrementAndGet();
+      Load load = new Load(segment.version(low), revocations.get(), clears.get(), System.currentTimeMillis());
+      return getDelegate().readAccessTokenAndAuthentication(tokenValue)
+          .doOnNext(value -> put(segment, high, low, value, load));
+    });
+  }
+
+  private void put(SlabSegment segment, long high, long low, AccessTokenAuthentication value, Load load) {
+    OAuth2AccessToken accessToken = value.getAccessToken();
+    OAuth2Authentication authentication = value.getAuthentication();
+    // from the start of the load, which is before any marker the record is checked against
+    long expiresAt = load.startedAt + maximumTimeToLive.toMillis();
+    if (accessToken.getExpiration() != null) {
+      expiresAt = Math.min(expiresAt, accessToken.getExpiration().getTime());
+    }
+    if (expiresAt <= System.currentTimeMillis()) {
+      return;
+    }
+    byte[] token = tokenCodec.encodeAccessToken(accessToken);
+    byte[] encodedAuthentication = tokenCodec.encodeAuthentication(authentication);
+    if (SlabSegment.HEADER_SIZE + token.length + encodedAuthentication.length > slotSize) {
+      return;
+    }
+    String clientId = authentication.getOAuth2Request().getClientId();
+    long refreshTokenHash = accessToken.getRefreshToken() != null ? hash(REFRESH_TOKEN, accessToken.getRefreshToken().getValue()) : 0;
+    long userHash = authentication.isClientOnly() ? 0 : hash(USER, clientId + '\u0000' + authentication.getName());
+    segment.put(high, low, load.version, expiresAt, load.revocations, refreshTokenHash, hash(CLIENT, clientId), userHash, token, encodedAuthentication, clears,
+        load.clears);
+  }
+
+  private AccessTokenAuthentication decode(Record record) {
+    try {
+      ByteBuffer data = ByteBuffer.wrap(record.data);
+      data.limit(record.tokenLength);
+      OAuth2AccessToken accessToken = tokenCodec.decodeAccessToken(data);
+      data.limit(record.data.length).position(record.tokenLength);
+      return new AccessTokenAuthentication(accessToken, tokenCodec.decodeAuthentication(data));
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to decode cached token", e);
+      return null;
+    }
+  }
+
+  private boolean revoked(Record record) {
+    return revokedSince(record.refreshTokenHash, record.cachedAt) || revokedSince(record.clientHash, record.cachedAt)
+        || revokedSince(record.userHash, record.cachedAt);
+  }
+
+  private boolean revokedSince(long hash, long cachedAt) {
+    if (hash == 0) {
+      return false;
+    }
+    Marker marker = revocationMarkers.get(hash);
+    return marker != null && marker.revocation > cachedAt;
+  }
+
+  private Mono<Void> invalidating(String tokenValue, Mono<Void> operation) {
+    return Mono.fromRunnable(() -> invalidate(tokenValue))
+        .then(operation)
+        .doOnTerminate(() -> invalidate(tokenValue));
+  }
+
+  private <T> Mono<T> revoking(long hash, Mono<T> operation) {
+    return Mono.fromRunnable(() -> revoke(hash))
+        .then(operation)
+        .doOnTerminate(() -> revoke(hash));
+  }
+
+  private void invalidate(String tokenValue) {
+    ByteBuffer key = key(tokenValue);
+    long high = key.getLong(0);
+    segment(high).invalidate(high, key.getLong(8));
+  }
+
+  private void revoke(long hash) {
+    long now = System.currentTimeMillis();
+    revocationMarkers.put(hash, new Marker(revocations.incrementAndGet(), now));
+    if (revocationMarkers.size() > pruneAt) {
+      pruneMarkers(now);
+    }
+  }
+
+  /**
+   * Records are cached for {@code maximumTimeToLive} at most, so no record cached before an older marker is left. The next prune waits until the markers
+   * have doubled.
+   */
+  private synchronized void pruneMarkers(long now) {
+    if (revocationMarkers.size() <= pruneAt) {
+      return;
+    }
+    long prunedBefore = now - maximumTimeToLive.toMillis();
+    revocationMarkers.values().removeIf(marker -> marker.revokedAt < prunedBefore);
+    if (revocationMarkers.size() > maximumMarkers) {
+      invalidateAll();
+    }
+    pruneAt = Math.max(MINIMUM_PRUNE_SIZE, Math.min(revocationMarkers.size() * 2, maximumMarkers));
+  }
+
+  private SlabSegment segment(long high) {
+    return segments[(int) (high >>> 32) & (SEGMENTS - 1)];
+  }
+
+  private long sum(ToLongFunction<SlabSegment> metric) {
+    long sum = 0;
+    for (SlabSegment segment : segments) {
+      sum += metric.applyAsLong(segment);
+    }
+    return sum;
+  }
+
+  private static ByteBuffer key(String tokenValue) {
+    return ByteBuffer.wrap(MD5.get().digest(tokenValue.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * 64-bit FNV-1a. A collision only costs a needless miss.
+   */
+  private static long hash(int kind, String value) {
+    long hash = 0xcbf29ce484222325L ^ kind;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash != 0 ? hash : 1;
+  }
+
+  private static final class Load {
+
+    private final long version;
+    private final long revocations;
+    private final long clears;
+    private final long startedAt;
+
+    private Load(long version, long revocations, long clears, long startedAt) {
+      this.version = version;
+      this.revocations = revocations;
+      this.clears = clears;
+      this.startedAt = startedAt;
+    }
+  }
+
+  private static final class Marker {
+
+    private final long revocation;
+    private final long revokedAt;
+
+    private Marker(long revocation, long revokedAt) {
+      this.revocation = revocation;
+      this.revokedAt = revokedAt;
+    }
+  }
+}
@@ -1,21 +1,55 @@
 package authorization.token;
 
+import authorization.r2dbc.Bindings;
+import authorization.r2dbc.InvalidationBus;
+import authorization.r2dbc.ReadRouting;
+import authorization.token.codec.CompactTokenCodec;
+import authorization.token.codec.TokenCodec;
+import authorization.token.key.Md5TokenKeyGenerator;
+import authorization.token.key.TokenKeyGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.r2dbc.spi.ConnectionFactory;
-import java.math.BigInteger;
+import io.r2dbc.spi.Row;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Objects;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.Setter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2RefreshToken;
-import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.common.util.OAuth2Utils;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
 import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
 import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
 import org.springframework.util.Assert;
@@ -26,41 +60,216 @@ import reactor.core.publisher.Mono;
  * @author VuDo
  * @since 2/12/2021
  */
-public class R2dbcTokenStore implements ReactiveTokenStore {
+public class R2dbcTokenStore implements ReactiveTokenStore, MeterBinder {
 
   private static final Log LOG = LogFactory.getLog(R2dbcTokenStore.class);
 
-  private static final String DEFAULT_ACCESS_TOKEN_INSERT_STATEMENT = "insert into oauth_access_token (token_id, token, authentication_id, user_name, client_id, authentication, refresh_token) values (:tokenId, :token, :authenticationId, :username, :clientId, :authentication, :refreshToken)";
+  private static final String ACCESS_TOKEN_INSERT = "insert into oauth_access_token (token_id, token, authentication_id, user_name, client_id, authentication, "
+      + "authentication_fingerprint, refresh_token, expiration%s) values ";
 
-  private static final String DEFAULT_ACCESS_TOKEN_SELECT_STATEMENT = "select token_id, token from oauth_access_token where token_id = :tokenId";
+  // the other columns follow from the token and the authentication, so a row re-stored as it is keeps its current version rather than writing a new one
+  private static final String ACCESS_TOKEN_CHANGED = " where (oauth_access_token.token, oauth_access_token.authentication_fingerprint) "
+      + "is distinct from (excluded.token, excluded.authentication_fingerprint)";
 
-  private static final String DEFAULT_ACCESS_TOKEN_AUTHENTICATION_SELECT_STATEMENT = "select token_id, authentication from oauth_access_token where token_id = :tokenId";
+  private static final String ACCESS_TOKEN_ON_CONFLICT = " on conflict (token_id) do update set token = excluded.token, authentication_id = excluded.authentication_id, "
+      + "user_name = excluded.user_name, client_id = excluded.client_id, authentication = excluded.authentication, "
+      + "authentication_fingerprint = excluded.authentication_fingerprint, refresh_token = excluded.refresh_token, expiration = excluded.expiration%s"
+      + ACCESS_TOKEN_CHANGED;
 
-  private static final String DEFAULT_ACCESS_TOKEN_FROM_AUTHENTICATION_SELECT_STATEMENT = "select token_id, token from oauth_access_token where authentication_id = :authenticationId";
+  // a partitioned table can only enforce uniqueness together with the partition key, which is then never updated
+  private static final String PARTITIONED_ACCESS_TOKEN_ON_CONFLICT = " on conflict (token_id, expiration) do update set token = excluded.token, "
+      + "authentication_id = excluded.authentication_id, user_name = excluded.user_name, client_id = excluded.client_id, authentication = excluded.authentication, "
+      + "authentication_fingerprint = excluded.authentication_fingerprint, refresh_token = excluded.refresh_token%s" + ACCESS_TOKEN_CHANGED;
 
-  private static final String DEFAULT_ACCESS_TOKENS_FROM_USERNAME_AND_CLIENT_SELECT_STATEMENT = "select token_id, token from oauth_access_token where user_name = :username and client_id = :clientId";
+  private static final String ACCESS_TOKEN_VALUES = "(:tokenId%1$s, :token%1$s, :authenticationId%1$s, :username%1$s, :clientId%1$s, :authentication%1$s, "
+      + ":authenticationFingerprint%1$s, :refreshToken%1$s, :expiration%1$s%2$s)";
 
-  private static final String DEFAULT_ACCESS_TOKENS_FROM_CLIENTID_SELECT_STATEMENT = "select token_id, token from oauth_access_token where client_id = :clientId";
+  // tokens that never expire go to the default partition
+  private static final String PARTITIONED_ACCESS_TOKEN_VALUES = "(:tokenId%1$s, :token%1$s, :authenticationId%1$s, :username%1$s, :clientId%1$s, "
+      + ":authentication%1$s, :authenticationFingerprint%1$s, :refreshToken%1$s, coalesce(:expiration%1$s, 'infinity')%2$s)";
 
-  private static final String DEFAULT_ACCESS_TOKEN_DELETE_STATEMENT = "delete from oauth_access_token where token_id = :tokenId";
+  private static final String INTROSPECTION_COLUMNS = ", scope, authorities, resource_ids, grant_type, additional_information";
 
-  private static final String DEFAULT_ACCESS_TOKEN_DELETE_FROM_REFRESH_TOKEN_STATEMENT = "delete from oauth_access_token where refresh_token = :refreshToken";
+  private static final String INTROSPECTION_VALUES = ", :scope%1$s, :authorities%1$s, :resourceIds%1$s, :grantType%1$s, :additionalInformation%1$s";
 
-  private static final String DEFAULT_REFRESH_TOKEN_INSERT_STATEMENT = "insert into oauth_refresh_token (token_id, token, authentication) values (:tokenId, :token, :authentication)";
+  private static final String INTROSPECTION_UPDATE = ", scope = excluded.scope, authorities = excluded.authorities, resource_ids = excluded.resource_ids, "
+      + "grant_type = excluded.grant_type, additional_information = excluded.additional_information";
 
-  private static final String DEFAULT_REFRESH_TOKEN_SELECT_STATEMENT = "select token_id, token from oauth_refresh_token where token_id = :tokenId";
+  // a row written before the introspection columns were added is filled in when its token is stored again
+  private static final String INTROSPECTION_MISSING = " or oauth_access_token.authorities is null";
 
-  private static final String DEFAULT_REFRESH_TOKEN_AUTHENTICATION_SELECT_STATEMENT = "select token_id, authentication from oauth_refresh_token where token_id = :tokenId";
+  private static final String REFRESH_TOKEN_INSERT = "insert into oauth_refresh_token (token_id, token, authentication, client_id, user_name, expiration) values ";
 
-  private static final String DEFAULT_REFRESH_TOKEN_DELETE_STATEMENT = "delete from oauth_refresh_token where token_id = :tokenId";
+  private static final String REFRESH_TOKEN_ON_CONFLICT = " on conflict (token_id) do update set token = excluded.token, authentication = excluded.authentication, "
+      + "client_id = excluded.client_id, user_name = excluded.user_name, expiration = excluded.expiration";
+
+  private static final String REFRESH_TOKEN_WITH = "with refresh_token as (" + REFRESH_TOKEN_INSERT
+      + "(:refreshTokenId, :refreshTokenValue, :refreshAuthentication, :clientId, :username, :refreshExpiration)" + REFRESH_TOKEN_ON_CONFLICT + ") ";
+
+  private static final String DEFAULT_ACCESS_TOKEN_SELECT_STATEMENT = "select token_id, token from oauth_access_token where token_id in (:tokenIds)";
+
+  private static final String DEFAULT_ACCESS_TOKEN_AND_AUTHENTICATION_SELECT_STATEMENT = "select token_id, token, authentication from oauth_access_token where token_id in (:tokenIds)";
+
+  // rows written before the introspection columns were added, and not backfilled yet, have null authorities
+  private static final String DEFAULT_ACCESS_TOKEN_INTROSPECTION_SELECT_STATEMENT = "select token_id, client_id, user_name, nullif(expiration, 'infinity'), scope, "
+      + "authorities, resource_ids, grant_type, additional_information from oauth_access_token where token_id in (:tokenIds)";
+
+  private static final String DEFAULT_INTROSPECTION_BACKFILL_SELECT_STATEMENT = "select token_id, token, authentication from oauth_access_token "
+      + "where token_id > :after and authorities is null order by token_id limit :limit";
+
+  private static final String INTROSPECTION_BACKFILL_UPDATE = "update oauth_access_token as t set scope = v.scope, authorities = v.authorities, "
+      + "resource_ids = v.resource_ids, grant_type = v.grant_type, additional_information = v.additional_information from (values ";
+
+  private static final String INTROSPECTION_BACKFILL_VALUES = "(:tokenId%1$d, :scope%1$d, :authorities%1$d, :resourceIds%1$d, :grantType%1$d, :additionalInformation%1$d)";
+
+  // a token stored again in the meantime already has its columns
+  private static final String INTROSPECTION_BACKFILL_WHERE = ") as v (token_id, scope, authorities, resource_ids, grant_type, additional_information) "
+      + "where t.token_id = v.token_id and t.authorities is null";
+
+  private static final String DEFAULT_ACCESS_TOKEN_AUTHENTICATION_SELECT_STATEMENT = "select token_id, authentication from oauth_access_token where token_id in (:tokenIds)";
+
+  private static final String DEFAULT_ACCESS_TOKEN_FROM_AUTHENTICATION_SELECT_STATEMENT = "select token_id, token, authentication_fingerprint from oauth_access_token "
+      + "where authentication_id = :authenticationId";
+
+  private static final String DEFAULT_ACCESS_TOKENS_FROM_USERNAME_AND_CLIENT_SELECT_STATEMENT = "select token_id, token from oauth_access_token where user_name = :username and client_id = :clientId "
+      + "and token_id > :after order by token_id limit :limit";
+
+  private static final String DEFAULT_ACCESS_TOKENS_FROM_CLIENTID_SELECT_STATEMENT = "select token_id, token from oauth_access_token where client_id = :clientId "
+      + "and token_id > :after order by token_id limit :limit";
+
+  private static final String DEFAULT_ACCESS_TOKEN_KEYS_SELECT_STATEMENT = "select token_id from oauth_access_token where token_id > :after "
+      + "and (expiration is null or expiration > now()) order by token_id limit :limit";
+
+  private static final String DEFAULT_ACCESS_TOKEN_DELETE_STATEMENT = "delete from oauth_access_token where token_id in (:tokenIds)";
+
+  private static final String DEFAULT_ACCESS_TOKEN_DELETE_FROM_REFRESH_TOKEN_STATEMENT = "delete from oauth_access_token where refresh_token in (:refreshTokens)";
+
+  private static final String DEFAULT_REFRESH_TOKEN_UPSERT_STATEMENT = REFRESH_TOKEN_INSERT + "(:tokenId, :token, :authentication, :clientId, :username, :expiration)" + REFRESH_TOKEN_ON_CONFLICT;
+
+  // refresh tokens are deleted by owner, also when their access token is already gone; rows from before the owner columns only through their access token.
+  // Every deleted key is returned, so that it is read from the primary for the replica lag window.
+  private static final String REVOKED_TOKENS_SELECT = "legacy_refresh_token as (delete from oauth_refresh_token where token_id in (select refresh_token from access_token) "
+      + "and client_id is null returning token_id) select true as access, token_id from access_token union all select false, token_id from refresh_token "
+      + "union all select false, token_id from legacy_refresh_token";
+
+  private static final String DEFAULT_ACCESS_TOKENS_FROM_USERNAME_AND_CLIENT_REVOKE_STATEMENT = "with access_token as (delete from oauth_access_token where client_id = :clientId and user_name = :username returning token_id, refresh_token), "
+      + "refresh_token as (delete from oauth_refresh_token where client_id = :clientId and user_name = :username returning token_id), " + REVOKED_TOKENS_SELECT;
+
+  private static final String DEFAULT_ACCESS_TOKENS_FROM_CLIENTID_REVOKE_STATEMENT = "with access_token as (delete from oauth_access_token where client_id = :clientId returning token_id, refresh_token), "
+      + "refresh_token as (delete from oauth_refresh_token where client_id = :clientId returning token_id), " + REVOKED_TOKENS_SELECT;
+
+  private static final String DEFAULT_REFRESH_TOKEN_SELECT_STATEMENT = "select token_id, token from oauth_refresh_token where token_id in (:tokenIds)";
+
+  private static final String DEFAULT_REFRESH_TOKEN_AUTHENTICATION_SELECT_STATEMENT = "select token_id, authentication from oauth_refresh_token where token_id in (:tokenIds)";
+
+  private static final String DEFAULT_REFRESH_TOKEN_AND_AUTHENTICATION_SELECT_STATEMENT = "select token_id, token, authentication from oauth_refresh_token where token_id in (:tokenIds)";
+
+  // a refresh only goes through while the presented refresh token is still stored, so of concurrent refreshes with one token only the first rotates it
+  private static final String PREVIOUS_ACCESS_TOKEN_WITH = "previous_access_token as (delete from oauth_access_token where refresh_token in (:previousRefreshTokenIds) "
+      + "and exists (select 1 from previous)) ";
+
+  private static final String REUSED_REFRESH_TOKEN_WITH = "with previous as (select token_id from oauth_refresh_token where token_id in (:previousRefreshTokenIds)), "
+      + PREVIOUS_ACCESS_TOKEN_WITH;
+
+  private static final String ROTATED_REFRESH_TOKEN_WITH = "with previous as (delete from oauth_refresh_token where token_id in (:previousRefreshTokenIds) returning token_id), "
+      + "refresh_token as (insert into oauth_refresh_token (token_id, token, authentication, client_id, user_name, expiration) "
+      + "select :refreshTokenId, :refreshTokenValue, :refreshAuthentication, :clientId, :username, :refreshExpiration where exists (select 1 from previous)" + REFRESH_TOKEN_ON_CONFLICT + "), "
+      + PREVIOUS_ACCESS_TOKEN_WITH;
+
+  private static final String REFRESHED_ACCESS_TOKEN_INSERT = ACCESS_TOKEN_INSERT.replace(" values ", " select * from (values ");
+
+  private static final String REFRESHED_ACCESS_TOKEN_WHERE = ") as refreshed where exists (select 1 from previous)";
+
+  private static final String DEFAULT_REFRESH_TOKEN_DELETE_STATEMENT = "delete from oauth_refresh_token where token_id in (:tokenIds)";
+
+  // a statement takes at most 65535 bind parameters, a write binds up to 14 for its access token and 6 for its refresh token
+  private static final int MAXIMUM_BATCH_SIZE = 65535 / 20;
+
+  // by layout: plain, partitioned, plain with introspection columns, partitioned with introspection columns
+  private static final AccessTokenStatements[] ACCESS_TOKEN_STATEMENTS = {new AccessTokenStatements(false, false), new AccessTokenStatements(true, false),
+      new AccessTokenStatements(false, true), new AccessTokenStatements(true, true)};
+
+  private static final String FINGERPRINT_ALGORITHM = "SHA-256";
 
   private final R2dbcEntityTemplate template;
 
+  /**
+   * Routing of reads to the read replica.
+   */
+  @Getter
+  private final ReadRouting readRouting;
+
   private final AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
 
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final ThreadLocal<MessageDigest> fingerprintDigest = ThreadLocal.withInitial(R2dbcTokenStore::newFingerprintDigest);
+
+  @Setter
+  private TokenCodec tokenCodec = new CompactTokenCodec();
+
+  @Getter
+  @Setter
+  private TokenKeyGenerator tokenKeyGenerator = new Md5TokenKeyGenerator();
+
+  /**
+   * Page size used by {@link #findTokensByClientId(String)} and {@link #findTokensByClientIdAndUserName(String, String)}.
+   */
+  @Setter
+  private int defaultPageSize = 500;
+
+  /**
+   * Whether {@code oauth_access_token} is partitioned by expiration, see {@code db/migration/optional/partition_access_token_by_expiration.sql} and
+   * {@link TokenPartitionManager}.
+   */
+  @Setter
+  private boolean partitioned;
+
+  /**
+   * Bus that removals and revocations are published on, for the {@link TokenInvalidationListener} caches of other nodes.
+   */
+  @Setter
+  private InvalidationBus invalidationBus;
+
+  /**
+   * Whether {@code oauth_access_token} has the introspection columns of {@code db/migration/optional/access_token_introspection_columns.sql}. They are then
+   * written with every access token, and {@link #readAccessTokenForIntrospection(String)} builds the token and authentication from them instead of
+   * deserializing both. Only what a {@link org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter} with its default user converter
+   * reads is there, see {@link ReactiveTokenStore#readAccessTokenForIntrospection(String)}.
+   */
+  @Setter
+  private boolean introspectionColumns;
+
   public R2dbcTokenStore(ConnectionFactory connectionFactory) {
+    this(connectionFactory, connectionFactory);
+  }
+
+  /**
+   * @param readConnectionFactory read replica that token lookups and listings go to, see {@link ReadRouting}
+   */
+  public R2dbcTokenStore(ConnectionFactory connectionFactory, ConnectionFactory readConnectionFactory) {
     Assert.notNull(connectionFactory, "Connection Factory required");
     template = new R2dbcEntityTemplate(connectionFactory);
+    readRouting = new ReadRouting("tokens", connectionFactory, readConnectionFactory);
+  }
+
+  /**
+   * How long after being written or removed here a token is still read from the primary rather than the read replica.
+   */
+  public void setReplicaLagWindow(Duration lagWindow) {
+    readRouting.setLagWindow(lagWindow);
+  }
+
+  /**
+   * Whether a token not found on the read replica is looked up again on the primary, for tokens issued by other nodes within the lag window.
+   */
+  public void setReplicaFallbackOnMiss(boolean fallbackOnMiss) {
+    readRouting.setFallbackOnMiss(fallbackOnMiss);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    readRouting.bindTo(registry);
   }
 
   @Override
@@ -84,10 +293,32 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
 
   @Override
   public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
-    String refreshToken = token.getRefreshToken() != null ? token.getRefreshToken().getValue() : null;
-    return Mono.just(token)
-        .flatMap(this::removeAccessTokenIfExist)
-        .flatMap(tk -> insertAccessTokenSql(tk, authentication, refreshToken));
+    return upsertAccessTokenSql(token, authentication);
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    if (refreshToken == null) {
+      return upsertAccessTokenSql(accessToken, authentication);
+    }
+    return upsertTokensSql(accessToken, refreshToken, authentication);
+  }
+
+  /**
+   * Writes the whole batch with one multi-row upsert, or one per 3276 writes to stay within the bind parameters of a statement. Tokens
+   * repeated within a statement are written once, last write wins, since Postgres does not allow one statement to update the same row twice.
+   */
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    if (writes.isEmpty()) {
+      return Mono.empty();
+    }
+    if (writes.size() > MAXIMUM_BATCH_SIZE) {
+      return Flux.range(0, (writes.size() + MAXIMUM_BATCH_SIZE - 1) / MAXIMUM_BATCH_SIZE)
+          .concatMap(chunk -> storeTokens(writes.subList(chunk * MAXIMUM_BATCH_SIZE, Math.min(writes.size(), (chunk + 1) * MAXIMUM_BATCH_SIZE))))
+          .then();
+    }
+    return Mono.defer(() -> upsertTokensSql(writes));
   }
 
   public Mono<OAuth2AccessToken> removeAccessTokenIfExist(OAuth2AccessToken token) {
@@ -113,6 +344,33 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
         });
   }
 
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return selectAccessTokenAndAuthenticationSql(tokenValue)
+        .doOnError(EmptyResultDataAccessException.class, e -> {
+          if (LOG.isInfoEnabled()) {
+            LOG.info("Failed to find access token");
+          }
+        })
+        .doOnError(IllegalArgumentException.class, e -> {
+          LOG.warn("Failed to deserialize access token", e);
+          removeAccessToken(tokenValue).subscribe();
+        });
+  }
+
+  /**
+   * Without introspection columns, or for a row that does not have them filled in yet, the same as {@link #readAccessTokenAndAuthentication(String)}.
+   */
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    if (!introspectionColumns) {
+      return readAccessTokenAndAuthentication(tokenValue);
+    }
+    return selectAccessTokenIntrospectionSql(tokenValue)
+        .flatMap(introspection -> introspection.map(Mono::just).orElseGet(() -> readAccessTokenAndAuthentication(tokenValue)))
+        .doOnError(IllegalArgumentException.class, e -> LOG.warn("Failed to read introspection columns", e));
+  }
+
   @Override
   public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
     return removeAccessToken(token.getValue());
@@ -120,13 +378,14 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
 
   public Mono<Void> removeAccessToken(String tokenValue) {
     return Mono.just(tokenValue)
-        .map(this::extractTokenKey)
-        .flatMap(this::deleteAccessTokenSql);
+        .map(this::extractTokenKeys)
+        .flatMap(this::deleteAccessTokenSql)
+        .doOnSuccess(v -> publish(TokenInvalidationListener.ACCESS_TOKEN, tokenValue));
   }
 
   @Override
   public Mono<Void> storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
-    return insertRefreshTokenSql(refreshToken, authentication);
+    return upsertRefreshTokenSql(refreshToken, authentication);
   }
 
   @Override
@@ -161,13 +420,37 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
         });
   }
 
+  @Override
+  public Mono<RefreshTokenAuthentication> readRefreshTokenAndAuthentication(String tokenValue) {
+    return selectRefreshTokenAndAuthenticationSql(tokenValue)
+        .onErrorResume(IllegalArgumentException.class, e -> {
+          LOG.warn("Failed to deserialize refresh token", e);
+          return removeRefreshToken(tokenValue).then(Mono.empty());
+        });
+  }
+
+  /**
+   * One statement, so one round trip and one transaction. The presented refresh token is deleted when it is rotated, or only checked when it is reused.
+   */
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    return Mono.defer(() -> refreshTokensSql(previousRefreshToken, accessToken, authentication))
+        .map(count -> count > 0)
+        .doOnNext(refreshed -> {
+          if (refreshed) {
+            publish(TokenInvalidationListener.REFRESH_TOKEN, previousRefreshToken.getValue());
+          }
+        });
+  }
+
   @Override
   public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
     return removeRefreshToken(token.getValue());
   }
 
   public Mono<Void> removeRefreshToken(String token) {
-    return deleteRefreshTokenSql(token);
+    return deleteRefreshTokenSql(token)
+        .doOnSuccess(v -> publish(TokenInvalidationListener.REFRESH_TOKEN, token));
   }
 
   @Override
@@ -176,27 +459,38 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
   }
 
   public Mono<Void> removeAccessTokenUsingRefreshToken(String refreshToken) {
-    return deleteAccessTokenFromRefreshTokenSql(refreshToken);
+    return deleteAccessTokenFromRefreshTokenSql(refreshToken)
+        .doOnSuccess(v -> publish(TokenInvalidationListener.REFRESH_TOKEN, refreshToken));
   }
 
+  /**
+   * The authentication stored with the token is only rewritten when its fingerprint differs, e.g. the same user with new details. The token is then
+   * invalidated on other nodes.
+   */
   @Override
   public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
-    String key = authenticationKeyGenerator.extractKey(authentication);
-    return Mono.just(key)
-        .switchIfEmpty(Mono.error(new IllegalArgumentException("Can't extract token key")))
-        .flatMap(this::selectAccessTokenFromAuthenticationSql)
+    return Mono.justOrEmpty(authenticationKeyGenerator.extractKey(authentication))
+        .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Can't extract token key")))
+        .flatMap(this::selectAccessTokensFromAuthenticationSql)
+        .filter(stored -> !stored.isEmpty())
+        .flatMap(stored -> reloadToken(stored, authentication))
         .doOnError(EmptyResultDataAccessException.class, e -> {
           if (LOG.isDebugEnabled()) {
             LOG.debug("Failed to find access token for authentication " + authentication);
           }
         })
-        .doOnError(IllegalArgumentException.class, e -> LOG.error("Could not extract access token for authentication " + authentication, e))
-        .doOnNext(accessToken -> reloadToken(accessToken, authentication, key));
+        .doOnError(IllegalArgumentException.class, e -> LOG.error("Could not extract access token for authentication " + authentication, e));
   }
 
   @Override
   public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String username) {
-    return selectAccessTokensFromUserNameAndClientIdSql(username, clientId)
+    return findTokensByClientIdAndUserName(clientId, username, defaultPageSize);
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String username, int pageSize) {
+    Assert.isTrue(pageSize > 0, "Page size must be positive");
+    return paged(after -> selectAccessTokensFromUserNameAndClientIdSql(username, clientId, after, pageSize), pageSize)
         .doOnError(EmptyResultDataAccessException.class, e -> {
           if (LOG.isInfoEnabled()) {
             LOG.info("Failed to find access token for clientId " + clientId + " and userName " + username);
@@ -206,7 +500,13 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
 
   @Override
   public Flux<OAuth2AccessToken> findTokensByClientId(String clientId) {
-    return selectAccessTokensFromClientIdSql(clientId)
+    return findTokensByClientId(clientId, defaultPageSize);
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId, int pageSize) {
+    Assert.isTrue(pageSize > 0, "Page size must be positive");
+    return paged(after -> selectAccessTokensFromClientIdSql(clientId, after, pageSize), pageSize)
         .doOnError(EmptyResultDataAccessException.class, e -> {
           if (LOG.isInfoEnabled()) {
             LOG.info("Failed to find access token for clientId " + clientId);
@@ -214,184 +514,597 @@ public class R2dbcTokenStore implements ReactiveTokenStore {
         });
   }
 
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return revokeSql(template.getDatabaseClient()
+        .sql(DEFAULT_ACCESS_TOKENS_FROM_USERNAME_AND_CLIENT_REVOKE_STATEMENT)
+        .bind("clientId", clientId)
+        .bind("username", userName))
+        .doOnSuccess(count -> publish(TokenInvalidationListener.USER, TokenInvalidationListener.userKey(clientId, userName)));
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return revokeSql(template.getDatabaseClient()
+        .sql(DEFAULT_ACCESS_TOKENS_FROM_CLIENTID_REVOKE_STATEMENT)
+        .bind("clientId", clientId))
+        .doOnSuccess(count -> publish(TokenInvalidationListener.CLIENT, clientId));
+  }
 
-  private void reloadToken(OAuth2AccessToken accessToken, OAuth2Authentication authentication, String key) {
-    Mono.just(accessToken)
-        .switchIfEmpty(Mono.error(new IllegalArgumentException("Can't find access token")))
-        .map(OAuth2AccessToken::getValue)
-        .flatMap(this::readAuthentication)
-        .map(authenticationKeyGenerator::extractKey)
-        .filter(key::equals)
-        .doOnNext(k -> removeAccessToken(k).subscribe())
-        .doOnNext(k -> storeAccessToken(accessToken, authentication).subscribe())
-        .subscribe();
+  /**
+   * Keys of every access token that has not expired, read one page at a time.
+   */
+  public Flux<String> findAccessTokenKeys(int pageSize) {
+    Assert.isTrue(pageSize > 0, "Page size must be positive");
+    return selectAccessTokenKeysSql("", pageSize)
+        .expand(keys -> keys.size() < pageSize ? Mono.empty() : selectAccessTokenKeysSql(keys.get(keys.size() - 1), pageSize))
+        .flatMapIterable(keys -> keys, 1);
   }
 
-  private Flux<OAuth2AccessToken> selectAccessTokensFromUserNameAndClientIdSql(String username, String clientId) {
-    return template.getDatabaseClient()
+  /**
+   * Fill in the introspection columns of the rows written before they were added, one page of {@code batchSize} rows and one update statement at a time. Rows
+   * that cannot be deserialized are skipped and left to the lookups that remove them. Safe to run while tokens are being issued, and to run again.
+   *
+   * @return the number of rows filled in
+   */
+  public Mono<Long> backfillIntrospectionColumns(int batchSize) {
+    Assert.isTrue(batchSize > 0, "Batch size must be positive");
+    Assert.state(introspectionColumns, "Introspection columns are not enabled");
+    return selectIntrospectionBackfillSql("", batchSize)
+        .expand(tokens -> tokens.size() < batchSize ? Mono.empty() : selectIntrospectionBackfillSql(tokens.get(tokens.size() - 1).tokenId, batchSize))
+        .concatMap(this::updateIntrospectionSql, 1)
+        .reduce(0L, (total, updated) -> {
+          if (LOG.isInfoEnabled()) {
+            LOG.info("Filled in introspection columns of " + (total + updated) + " access tokens");
+          }
+          return total + updated;
+        });
+  }
+
+  /**
+   * Walks a keyset ordered by token_id one page at a time. The next page is only queried once downstream has requested past the current one.
+   */
+  private Flux<OAuth2AccessToken> paged(Function<String, Mono<List<StoredToken>>> page, int pageSize) {
+    return page.apply("")
+        .expand(tokens -> tokens.size() < pageSize ? Mono.empty() : page.apply(tokens.get(tokens.size() - 1).tokenId))
+        .flatMapIterable(tokens -> tokens, 1)
+        .concatMap(this::deserializeOrRemove);
+  }
+
+  private Mono<OAuth2AccessToken> deserializeOrRemove(StoredToken token) {
+    try {
+      return Mono.just(deserializeAccessToken(token.token));
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to deserialize access token", e);
+      return deleteAccessTokenSql(Collections.singletonList(token.tokenId)).then(Mono.empty());
+    }
+  }
+
+  /**
+   * While keys are migrated the token may be stored under both its legacy and its current key. The row under the current key wins, and once the token is
+   * stored under it the legacy rows are removed.
+   */
+  private Mono<OAuth2AccessToken> reloadToken(List<StoredToken> rows, OAuth2Authentication authentication) {
+    StoredToken stored = rows.get(0);
+    OAuth2AccessToken accessToken = deserializeAccessToken(stored.token);
+    String currentKey = extractTokenKey(accessToken.getValue());
+    for (int i = 1; i < rows.size() && !stored.tokenId.equals(currentKey); i++) {
+      OAuth2AccessToken candidate = deserializeAccessToken(rows.get(i).token);
+      String candidateKey = extractTokenKey(candidate.getValue());
+      if (rows.get(i).tokenId.equals(candidateKey)) {
+        stored = rows.get(i);
+        accessToken = candidate;
+        currentKey = candidateKey;
+      }
+    }
+    List<String> legacyKeys = new ArrayList<>(extractTokenKeys(accessToken.getValue()));
+    legacyKeys.remove(currentKey);
+    List<String> staleKeys = new ArrayList<>();
+    for (StoredToken row : rows) {
+      if (legacyKeys.contains(row.tokenId)) {
+        staleKeys.add(row.tokenId);
+      }
+    }
+    Mono<Void> removeStale = staleKeys.isEmpty() ? Mono.empty() : deleteAccessTokenSql(staleKeys);
+    byte[] serializedAuthentication = serializeAuthentication(authentication);
+    byte[] fingerprint = fingerprintAuthentication(serializedAuthentication);
+    if (stored.tokenId.equals(currentKey) && stored.authenticationFingerprint != null
+        && stored.authenticationFingerprint.equals(ByteBuffer.wrap(fingerprint))) {
+      return removeStale.thenReturn(accessToken);
+    }
+    String tokenValue = accessToken.getValue();
+    return upsertAccessTokenSql(accessToken, authentication, serializedAuthentication)
+        .doOnSuccess(v -> publish(TokenInvalidationListener.ACCESS_TOKEN, tokenValue))
+        .then(removeStale)
+        .thenReturn(accessToken);
+  }
+
+  private Mono<List<StoredToken>> selectAccessTokensFromUserNameAndClientIdSql(String username, String clientId, String after, int limit) {
+    return readRouting.readAll(client -> client
         .sql(DEFAULT_ACCESS_TOKENS_FROM_USERNAME_AND_CLIENT_SELECT_STATEMENT)
         .bind("username", username)
         .bind("clientId", clientId)
-        .map((row, metadata) -> {
-          try {
-            return deserializeAccessToken(row.get(1));
-          } catch (IllegalArgumentException e) {
-            deleteAccessTokenSql(row.get(0, String.class));
-            return null;
-          }
-        })
-        .all()
-        .filter(Objects::nonNull);
+        .bind("after", after)
+        .bind("limit", limit)
+        .map((row, metadata) -> new StoredToken(row.get(0, String.class), row.get(1)))
+        .all())
+        .collectList();
   }
 
-  private Flux<OAuth2AccessToken> selectAccessTokensFromClientIdSql(String key) {
+  private Mono<List<String>> selectAccessTokenKeysSql(String after, int limit) {
     return template.getDatabaseClient()
+        .sql(DEFAULT_ACCESS_TOKEN_KEYS_SELECT_STATEMENT)
+        .bind("after", after)
+        .bind("limit", limit)
+        .map((row, metadata) -> row.get(0, String.class))
+        .all()
+        .collectList();
+  }
+
+  private Mono<List<StoredToken>> selectAccessTokensFromClientIdSql(String key, String after, int limit) {
+    return readRouting.readAll(client -> client
         .sql(DEFAULT_ACCESS_TOKENS_FROM_CLIENTID_SELECT_STATEMENT)
         .bind("clientId", key)
-        .map((row, metadata) -> {
-          try {
-            return deserializeAccessToken(row.get(1));
-          } catch (IllegalArgumentException e) {
-            deleteAccessTokenSql(row.get(0, String.class));
-            return null;
-          }
-        })
-        .all()
-        .filter(Objects::nonNull);
+        .bind("after", after)
+        .bind("limit", limit)
+        .map((row, metadata) -> new StoredToken(row.get(0, String.class), row.get(1)))
+        .all())
+        .collectList();
   }
 
-  private Mono<OAuth2AccessToken> selectAccessTokenFromAuthenticationSql(String key) {
+  private Mono<List<StoredToken>> selectAccessTokensFromAuthenticationSql(String key) {
     return template.getDatabaseClient()
         .sql(DEFAULT_ACCESS_TOKEN_FROM_AUTHENTICATION_SELECT_STATEMENT)
         .bind("authenticationId", key)
-        .map((row, metadata) -> deserializeAccessToken(row.get(1)))
-        .one();
+        .map((row, metadata) -> new StoredToken(row.get(0, String.class), row.get(1), null, row.get(2, ByteBuffer.class)))
+        .all()
+        .collectList();
   }
 
-  private Mono<OAuth2Authentication> selectAccessTokenAuthenticationSql(String key) {
+  private Mono<AccessTokenAuthentication> selectAccessTokenAndAuthenticationSql(String token) {
+    List<String> keys = extractTokenKeys(token);
+    return readRouting.read(keys.get(0), client -> client
+        .sql(DEFAULT_ACCESS_TOKEN_AND_AUTHENTICATION_SELECT_STATEMENT)
+        .bind("tokenIds", keys)
+        .map((row, metadata) -> new AccessTokenAuthentication(deserializeAccessToken(row.get(1)), deserializeAuthentication(row.get(2))))
+        .first());
+  }
+
+  private Mono<Optional<AccessTokenAuthentication>> selectAccessTokenIntrospectionSql(String token) {
+    List<String> keys = extractTokenKeys(token);
+    return readRouting.read(keys.get(0), client -> client
+        .sql(DEFAULT_ACCESS_TOKEN_INTROSPECTION_SELECT_STATEMENT)
+        .bind("tokenIds", keys)
+        .map((row, metadata) -> introspection(token, row))
+        .first());
+  }
+
+  private Mono<List<StoredToken>> selectIntrospectionBackfillSql(String after, int limit) {
     return template.getDatabaseClient()
+        .sql(DEFAULT_INTROSPECTION_BACKFILL_SELECT_STATEMENT)
+        .bind("after", after)
+        .bind("limit", limit)
+        .map((row, metadata) -> new StoredToken(row.get(0, String.class), row.get(1), row.get(2), null))
+        .all()
+        .collectList();
+  }
+
+  private Mono<Integer> updateIntrospectionSql(List<StoredToken> tokens) {
+    Map<String, AccessTokenAuthentication> readable = new LinkedHashMap<>();
+    for (StoredToken stored : tokens) {
+      try {
+        readable.put(stored.tokenId, new AccessTokenAuthentication(deserializeAccessToken(stored.token), deserializeAuthentication(stored.authentication)));
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Failed to deserialize access token, leaving its introspection columns empty", e);
+      }
+    }
+    if (readable.isEmpty()) {
+      return Mono.just(0);
+    }
+    StringBuilder statement = new StringBuilder(INTROSPECTION_BACKFILL_UPDATE);
+    for (int i = 0; i < readable.size(); i++) {
+      statement.append(i == 0 ? "" : ", ").append(String.format(INTROSPECTION_BACKFILL_VALUES, i));
+    }
+    statement.append(INTROSPECTION_BACKFILL_WHERE);
+    Bindings sql = new Bindings();
+    int i = 0;
+    for (Map.Entry<String, AccessTokenAuthentication> entry : readable.entrySet()) {
+      AccessTokenAuthentication value = entry.getValue();
+      bindIntrospection(sql.bind("tokenId" + i, entry.getKey()), String.valueOf(i), value.getAccessToken(), value.getAuthentication());
+      i++;
+    }
+    return sql.positional(template.getDatabaseClient(), statement.toString()).fetch().rowsUpdated();
+  }
+
+  private Mono<OAuth2Authentication> selectAccessTokenAuthenticationSql(String key) {
+    List<String> keys = extractTokenKeys(key);
+    return readRouting.read(keys.get(0), client -> client
         .sql(DEFAULT_ACCESS_TOKEN_AUTHENTICATION_SELECT_STATEMENT)
-        .bind("tokenId", extractTokenKey(key))
+        .bind("tokenIds", keys)
         .map((row, metadata) -> deserializeAuthentication(row.get(1)))
-        .one();
+        .first());
   }
 
   private Mono<OAuth2RefreshToken> selectRefreshTokenSql(String token) {
-    return template.getDatabaseClient()
+    List<String> keys = extractTokenKeys(token);
+    return readRouting.read(keys.get(0), client -> client
         .sql(DEFAULT_REFRESH_TOKEN_SELECT_STATEMENT)
-        .bind("tokenId", extractTokenKey(token))
+        .bind("tokenIds", keys)
         .map((row, metadata) -> deserializeRefreshToken(row.get(1)))
-        .one();
+        .first());
   }
 
   private Mono<OAuth2Authentication> selectRefreshTokenAuthenticationSql(String token) {
-    return template.getDatabaseClient()
+    List<String> keys = extractTokenKeys(token);
+    return readRouting.read(keys.get(0), client -> client
         .sql(DEFAULT_REFRESH_TOKEN_AUTHENTICATION_SELECT_STATEMENT)
-        .bind("tokenId", extractTokenKey(token))
+        .bind("tokenIds", keys)
         .map((row, metadata) -> deserializeAuthentication(row.get(1)))
-        .one();
+        .first());
+  }
+
+  private Mono<RefreshTokenAuthentication> selectRefreshTokenAndAuthenticationSql(String token) {
+    List<String> keys = extractTokenKeys(token);
+    return readRouting.read(keys.get(0), client -> client
+        .sql(DEFAULT_REFRESH_TOKEN_AND_AUTHENTICATION_SELECT_STATEMENT)
+        .bind("tokenIds", keys)
+        .map((row, metadata) -> new RefreshTokenAuthentication(deserializeRefreshToken(row.get(1)), deserializeAuthentication(row.get(2))))
+        .first());
   }
 
   private Mono<OAuth2AccessToken> selectAccessTokenSql(String token) {
-    return template.getDatabaseClient()
+    List<String> keys = extractTokenKeys(token);
+    return readRouting.read(keys.get(0), client -> client
         .sql(DEFAULT_ACCESS_TOKEN_SELECT_STATEMENT)
-        .bind("tokenId", extractTokenKey(token))
+        .bind("tokenIds", keys)
         .map((row, metadata) -> deserializeAccessToken(row.get(1)))
-        .one();
+        .first());
   }
 
-  private Mono<Void> deleteAccessTokenSql(String key) {
+  private Mono<Void> deleteAccessTokenSql(List<String> keys) {
+    keys.forEach(readRouting::written);
     return template.getDatabaseClient()
         .sql(DEFAULT_ACCESS_TOKEN_DELETE_STATEMENT)
-        .bind("tokenId", key)
+        .bind("tokenIds", keys)
         .then();
   }
 
-  private Mono<Void> insertRefreshTokenSql(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
-    return template.getDatabaseClient()
-        .sql(DEFAULT_REFRESH_TOKEN_INSERT_STATEMENT)
-        .bind("tokenId", extractTokenKey(refreshToken.getValue()))
+  private Mono<Void> upsertRefreshTokenSql(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    String tokenId = extractTokenKey(refreshToken.getValue());
+    readRouting.written(tokenId);
+    Bindings sql = new Bindings()
+        .bind("tokenId", tokenId)
         .bind("token", serializeRefreshToken(refreshToken))
-        .bind("authentication", serializeAuthentication(authentication))
-        .then();
+        .bind("authentication", serializeAuthentication(authentication));
+    bindOwner(sql, "clientId", "username", authentication);
+    bindExpiration(sql, "expiration", expirationOf(refreshToken));
+    return sql.named(template.getDatabaseClient(), DEFAULT_REFRESH_TOKEN_UPSERT_STATEMENT).then();
+  }
+
+  private Mono<Void> upsertAccessTokenSql(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return upsertAccessTokenSql(token, authentication, serializeAuthentication(authentication));
+  }
+
+  private Mono<Void> upsertAccessTokenSql(OAuth2AccessToken token, OAuth2Authentication authentication, byte[] serializedAuthentication) {
+    Bindings sql = bindAccessToken(new Bindings(), token, authentication, serializedAuthentication);
+    return sql.named(template.getDatabaseClient(), accessTokenStatements().upsert).then();
+  }
+
+  private Mono<Void> upsertTokensSql(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    byte[] serializedAuthentication = serializeAuthentication(authentication);
+    String refreshTokenId = extractTokenKey(refreshToken.getValue());
+    readRouting.written(refreshTokenId);
+    Bindings sql = new Bindings()
+        .bind("refreshTokenId", refreshTokenId)
+        .bind("refreshTokenValue", serializeRefreshToken(refreshToken))
+        .bind("refreshAuthentication", serializedAuthentication);
+    bindExpiration(sql, "refreshExpiration", expirationOf(refreshToken));
+    bindAccessToken(sql, accessToken, authentication, serializedAuthentication);
+    return sql.named(template.getDatabaseClient(), accessTokenStatements().tokensUpsert).then();
+  }
+
+  private Mono<Integer> refreshTokensSql(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    OAuth2RefreshToken refreshToken = accessToken.getRefreshToken();
+    boolean rotated = refreshToken != null && !refreshToken.getValue().equals(previousRefreshToken.getValue());
+    List<String> previousRefreshTokenIds = extractTokenKeys(previousRefreshToken.getValue());
+    previousRefreshTokenIds.forEach(readRouting::written);
+    byte[] serializedAuthentication = serializeAuthentication(authentication);
+    AccessTokenStatements statements = accessTokenStatements();
+    Bindings sql = new Bindings()
+        .bind("previousRefreshTokenIds", previousRefreshTokenIds);
+    if (rotated) {
+      String refreshTokenId = extractTokenKey(refreshToken.getValue());
+      readRouting.written(refreshTokenId);
+      sql.bind("refreshTokenId", refreshTokenId)
+          .bind("refreshTokenValue", serializeRefreshToken(refreshToken))
+          .bind("refreshAuthentication", serializedAuthentication);
+      bindExpiration(sql, "refreshExpiration", expirationOf(refreshToken));
+    }
+    return bindAccessToken(sql, accessToken, authentication, serializedAuthentication)
+        .named(template.getDatabaseClient(), rotated ? statements.tokensRotate : statements.tokensRefresh)
+        .fetch()
+        .rowsUpdated();
   }
 
-  private Mono<Void> insertAccessTokenSql(OAuth2AccessToken token, OAuth2Authentication authentication, String refreshToken) {
-    GenericExecuteSpec sql = template.getDatabaseClient()
-        .sql(DEFAULT_ACCESS_TOKEN_INSERT_STATEMENT)
-        .bind("tokenId", extractTokenKey(token.getValue()))
-        .bind("token", serializeAccessToken(token))
-        .bind("authenticationId", authenticationKeyGenerator.extractKey(authentication))
-        .bind("clientId", authentication.getOAuth2Request().getClientId())
-        .bind("authentication", serializeAuthentication(authentication))
-        .bind("refreshToken", extractTokenKey(refreshToken));
-    if (authentication.isClientOnly()) {
-      sql = sql.bindNull("username", String.class);
-    } else {
-      sql = sql.bind("username", authentication.getName());
+  private Mono<Void> upsertTokensSql(List<TokenWrite> writes) {
+    Map<String, TokenWrite> accessTokens = new LinkedHashMap<>();
+    Map<String, TokenWrite> refreshTokens = new LinkedHashMap<>();
+    for (TokenWrite write : writes) {
+      accessTokens.put(extractTokenKey(write.getAccessToken().getValue()), write);
+      if (write.getRefreshToken() != null) {
+        refreshTokens.put(extractTokenKey(write.getRefreshToken().getValue()), write);
+      }
     }
-    return sql.then();
+
+    StringBuilder statement = new StringBuilder();
+    if (!refreshTokens.isEmpty()) {
+      statement.append("with refresh_token as (").append(REFRESH_TOKEN_INSERT);
+      for (int i = 0; i < refreshTokens.size(); i++) {
+        statement.append(i == 0 ? "" : ", ").append(String.format("(:refreshTokenId%1$d, :refreshTokenValue%1$d, :refreshAuthentication%1$d, :refreshClientId%1$d, :refreshUsername%1$d, "
+            + ":refreshExpiration%1$d)", i));
+      }
+      statement.append(REFRESH_TOKEN_ON_CONFLICT).append(") ");
+    }
+    AccessTokenStatements statements = accessTokenStatements();
+    statement.append(statements.insert);
+    for (int i = 0; i < accessTokens.size(); i++) {
+      statement.append(i == 0 ? "" : ", ").append(String.format(statements.values, i));
+    }
+    statement.append(statements.onConflict);
+
+    Map<TokenWrite, byte[]> serializedAuthentications = new IdentityHashMap<>();
+    Bindings sql = new Bindings();
+    int i = 0;
+    for (Map.Entry<String, TokenWrite> entry : refreshTokens.entrySet()) {
+      TokenWrite write = entry.getValue();
+      readRouting.written(entry.getKey());
+      sql.bind("refreshTokenId" + i, entry.getKey())
+          .bind("refreshTokenValue" + i, serializeRefreshToken(write.getRefreshToken()))
+          .bind("refreshAuthentication" + i, serializedAuthentications.computeIfAbsent(write, w -> serializeAuthentication(w.getAuthentication())));
+      bindOwner(sql, "refreshClientId" + i, "refreshUsername" + i, write.getAuthentication());
+      bindExpiration(sql, "refreshExpiration" + i, expirationOf(write.getRefreshToken()));
+      i++;
+    }
+    i = 0;
+    for (Map.Entry<String, TokenWrite> entry : accessTokens.entrySet()) {
+      TokenWrite write = entry.getValue();
+      byte[] serializedAuthentication = serializedAuthentications.computeIfAbsent(write, w -> serializeAuthentication(w.getAuthentication()));
+      bindAccessToken(sql, String.valueOf(i), entry.getKey(), write.getAccessToken(), write.getAuthentication(), serializedAuthentication);
+      i++;
+    }
+    return sql.positional(template.getDatabaseClient(), statement.toString()).then();
+  }
+
+  private Bindings bindAccessToken(Bindings sql, OAuth2AccessToken token, OAuth2Authentication authentication,
+      byte[] serializedAuthentication) {
+    return bindAccessToken(sql, "", extractTokenKey(token.getValue()), token, authentication, serializedAuthentication);
+  }
+
+  private Bindings bindAccessToken(Bindings sql, String suffix, String tokenId, OAuth2AccessToken token, OAuth2Authentication authentication,
+      byte[] serializedAuthentication) {
+    String refreshToken = token.getRefreshToken() != null ? extractTokenKey(token.getRefreshToken().getValue()) : null;
+    readRouting.written(tokenId);
+    sql.bind("tokenId" + suffix, tokenId)
+        .bind("token" + suffix, serializeAccessToken(token))
+        .bind("authenticationId" + suffix, authenticationKeyGenerator.extractKey(authentication))
+        .bind("authentication" + suffix, serializedAuthentication)
+        .bind("authenticationFingerprint" + suffix, fingerprintAuthentication(serializedAuthentication))
+        .bindNullable("refreshToken" + suffix, refreshToken, String.class);
+    bindExpiration(sql, "expiration" + suffix, token.getExpiration());
+    bindOwner(sql, "clientId" + suffix, "username" + suffix, authentication);
+    return introspectionColumns ? bindIntrospection(sql, suffix, token, authentication) : sql;
+  }
+
+  private Bindings bindOwner(Bindings sql, String clientIdName, String usernameName, OAuth2Authentication authentication) {
+    return sql.bind(clientIdName, authentication.getOAuth2Request().getClientId())
+        .bindNullable(usernameName, authentication.isClientOnly() ? null : authentication.getName(), String.class);
+  }
+
+  private Bindings bindIntrospection(Bindings sql, String suffix, OAuth2AccessToken token, OAuth2Authentication authentication) {
+    OAuth2Request request = authentication.getOAuth2Request();
+    return sql.bind("scope" + suffix, toArray(token.getScope()))
+        .bind("authorities" + suffix, toArray(AuthorityUtils.authorityListToSet(authentication.getAuthorities())))
+        .bind("resourceIds" + suffix, toArray(request.getResourceIds()))
+        .bindNullable("grantType" + suffix, request.getGrantType(), String.class)
+        .bindNullable("additionalInformation" + suffix, serializeAdditionalInformation(token.getAdditionalInformation()), String.class);
+  }
+
+  private AccessTokenStatements accessTokenStatements() {
+    return ACCESS_TOKEN_STATEMENTS[(partitioned ? 1 : 0) + (introspectionColumns ? 2 : 0)];
+  }
+
+  private Bindings bindExpiration(Bindings sql, String name, Date expiration) {
+    return sql.bindNullable(name, expiration != null ? expiration.toInstant() : null, Instant.class);
+  }
+
+  private Date expirationOf(OAuth2RefreshToken refreshToken) {
+    return refreshToken instanceof ExpiringOAuth2RefreshToken ? ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration() : null;
   }
 
   private Mono<Void> deleteRefreshTokenSql(String token) {
+    readRouting.written(extractTokenKey(token));
     return template.getDatabaseClient()
         .sql(DEFAULT_REFRESH_TOKEN_DELETE_STATEMENT)
-        .bind("tokenId", extractTokenKey(token))
+        .bind("tokenIds", extractTokenKeys(token))
         .then();
   }
 
+  private Mono<Long> revokeSql(GenericExecuteSpec sql) {
+    return sql.map((row, metadata) -> {
+          readRouting.written(row.get("token_id", String.class));
+          return row.get("access", Boolean.class);
+        })
+        .all()
+        .filter(Boolean::booleanValue)
+        .count();
+  }
+
   private Mono<Void> deleteAccessTokenFromRefreshTokenSql(String token) {
     return template.getDatabaseClient()
         .sql(DEFAULT_ACCESS_TOKEN_DELETE_FROM_REFRESH_TOKEN_STATEMENT)
-        .bind("refreshToken", extractTokenKey(token))
+        .bind("refreshTokens", extractTokenKeys(token))
         .then();
   }
 
-  protected String extractTokenKey(String value) {
-    if (value == null) {
-      return null;
-    }
-    MessageDigest digest;
-    try {
-      digest = MessageDigest.getInstance("MD5");
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalStateException("MD5 algorithm not available.  Fatal (should be in the JDK).");
+  private void publish(String type, String key) {
+    if (invalidationBus != null) {
+      invalidationBus.publish(type, key);
     }
+  }
+
+  protected String extractTokenKey(String value) {
+    return tokenKeyGenerator.extractKey(value);
+  }
 
-    byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
-    return String.format("%032x", new BigInteger(1, bytes));
+  /**
+   * The current key first, which lookups route by.
+   */
+  protected List<String> extractTokenKeys(String value) {
+    return tokenKeyGenerator.extractLookupKeys(value);
   }
 
   protected byte[] serializeAccessToken(OAuth2AccessToken token) {
-    return SerializationUtils.serialize(token);
+    return tokenCodec.encodeAccessToken(token);
   }
 
   protected OAuth2AccessToken deserializeAccessToken(Object token) {
-    ByteBuffer buffer = (ByteBuffer) token;
-    byte[] bytea = new byte[buffer.remaining()];
-    buffer.get(bytea);
-    return SerializationUtils.deserialize(bytea);
+    return tokenCodec.decodeAccessToken((ByteBuffer) token);
   }
 
   protected OAuth2RefreshToken deserializeRefreshToken(Object token) {
-    ByteBuffer buffer = (ByteBuffer) token;
-    byte[] bytea = new byte[buffer.remaining()];
-    buffer.get(bytea);
-    return SerializationUtils.deserialize(bytea);
+    return tokenCodec.decodeRefreshToken((ByteBuffer) token);
   }
 
   protected OAuth2Authentication deserializeAuthentication(Object authentication) {
-    ByteBuffer buffer = (ByteBuffer) authentication;
-    byte[] bytea = new byte[buffer.remaining()];
-    buffer.get(bytea);
-    return SerializationUtils.deserialize(bytea);
+    return tokenCodec.decodeAuthentication((ByteBuffer) authentication);
   }
 
   protected byte[] serializeAuthentication(OAuth2Authentication authentication) {
-    return SerializationUtils.serialize(authentication);
+    return tokenCodec.encodeAuthentication(authentication);
   }
 
   protected byte[] serializeRefreshToken(OAuth2RefreshToken token) {
-    return SerializationUtils.serialize(token);
+    return tokenCodec.encodeRefreshToken(token);
+  }
+
+  /**
+   * The token and authentication as far as the introspection columns have them, or nothing if the row has not been filled in yet.
+   */
+  private Optional<AccessTokenAuthentication> introspection(String tokenValue, Row row) {
+    String[] authorities = row.get(5, String[].class);
+    if (authorities == null) {
+      return Optional.empty();
+    }
+    Set<String> scope = toSet(row.get(4, String[].class));
+    DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(tokenValue);
+    Instant expiration = row.get(3, Instant.class);
+    token.setExpiration(expiration != null ? Date.from(expiration) : null);
+    token.setScope(scope);
+    token.setAdditionalInformation(deserializeAdditionalInformation(row.get(8, String.class)));
+
+    String grantType = row.get(7, String.class);
+    Map<String, String> parameters = grantType != null ? Collections.singletonMap(OAuth2Utils.GRANT_TYPE, grantType) : Collections.emptyMap();
+    List<GrantedAuthority> grantedAuthorities = AuthorityUtils.createAuthorityList(authorities);
+    OAuth2Request request = new OAuth2Request(parameters, row.get(1, String.class), grantedAuthorities, true, scope, toSet(row.get(6, String[].class)),
+        null, null, null);
+    String userName = row.get(2, String.class);
+    Authentication userAuthentication = userName != null ? new UsernamePasswordAuthenticationToken(userName, null, grantedAuthorities) : null;
+    return Optional.of(new AccessTokenAuthentication(token, new OAuth2Authentication(request, userAuthentication)));
+  }
+
+  private String serializeAdditionalInformation(Map<String, Object> additionalInformation) {
+    if (additionalInformation == null || additionalInformation.isEmpty()) {
+      return null;
+    }
+    try {
+      return mapper.writeValueAsString(additionalInformation);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Could not serialize additional information", e);
+    }
+  }
+
+  private Map<String, Object> deserializeAdditionalInformation(String json) {
+    if (json == null) {
+      return Collections.emptyMap();
+    }
+    try {
+      return mapper.readValue(json, new TypeReference<Map<String, Object>>() {
+      });
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Could not decode JSON for additional information", e);
+    }
+  }
+
+  private static String[] toArray(Collection<String> values) {
+    return values != null ? values.toArray(new String[0]) : new String[0];
+  }
+
+  private static Set<String> toSet(String[] values) {
+    return values != null ? new LinkedHashSet<>(Arrays.asList(values)) : Collections.emptySet();
+  }
+
+  /**
+   * Only compared for equality, a serialization that is not canonical costs a rewrite now and then, never a missed one.
+   */
+  protected byte[] fingerprintAuthentication(byte[] serializedAuthentication) {
+    return fingerprintDigest.get().digest(serializedAuthentication);
+  }
+
+  private static MessageDigest newFingerprintDigest() {
+    try {
+      return MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(FINGERPRINT_ALGORITHM + " algorithm not available.  Fatal (should be in the JDK).");
+    }
+  }
+
+  /**
+   * A token row as read, deserialized only once it is emitted.
+   */
+  private static final class StoredToken {
+
+    private final String tokenId;
+    private final Object token;
+    private final Object authentication;
+    private final ByteBuffer authenticationFingerprint;
+
+    private StoredToken(String tokenId, Object token) {
+      this(tokenId, token, null, null);
+    }
+
+    private StoredToken(String tokenId, Object token, Object authentication, ByteBuffer authenticationFingerprint) {
+      this.tokenId = tokenId;
+      this.token = token;
+      this.authentication = authentication;
+      this.authenticationFingerprint = authenticationFingerprint;
+    }
+  }
+
+  /**
+   * The access token statements for one layout of {@code oauth_access_token}.
+   */
+  private static final class AccessTokenStatements {
+
+    private final String insert;
+    // a template on the bind marker suffix
+    private final String values;
+    private final String onConflict;
+    private final String upsert;
+    private final String tokensUpsert;
+    private final String tokensRefresh;
+    private final String tokensRotate;
+
+    private AccessTokenStatements(boolean partitioned, boolean introspectionColumns) {
+      String columns = introspectionColumns ? INTROSPECTION_COLUMNS : "";
+      insert = String.format(ACCESS_TOKEN_INSERT, columns);
+      values = String.format(partitioned ? PARTITIONED_ACCESS_TOKEN_VALUES : ACCESS_TOKEN_VALUES, "%1$s", introspectionColumns ? INTROSPECTION_VALUES : "");
+      onConflict = String.format(partitioned ? PARTITIONED_ACCESS_TOKEN_ON_CONFLICT : ACCESS_TOKEN_ON_CONFLICT, introspectionColumns ? INTROSPECTION_UPDATE : "")
+          + (introspectionColumns ? INTROSPECTION_MISSING : "");
+      upsert = insert + String.format(values, "") + onConflict;
+      tokensUpsert = REFRESH_TOKEN_WITH + upsert;
+      String refreshed = String.format(REFRESHED_ACCESS_TOKEN_INSERT, columns) + String.format(values, "") + REFRESHED_ACCESS_TOKEN_WHERE + onConflict;
+      tokensRefresh = REUSED_REFRESH_TOKEN_WITH + refreshed;
+      tokensRotate = ROTATED_REFRESH_TOKEN_WITH + refreshed;
+    }
   }
 }
@@ -0,0 +1,406 @@
+package authorization.token;
+
+import authorization.token.key.Md5TokenKeyGenerator;
+import authorization.token.key.TokenKeyGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.r2dbc.spi.ConnectionFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import lombok.Setter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveTokenStore} for signed JWTs issued through a {@link JwtAccessTokenConverter}. Tokens carry everything needed to read them, so nothing is
+ * stored and reading a token only verifies its signature, in memory. Verified tokens are kept in a bounded cache until they expire.
+ * <p>
+ * Explicit revocations are the exception: they go to {@code oauth_revoked_token}, which every node polls into an in-memory set that reads are checked
+ * against. Each poll reads the revocations made since the latest one seen, less {@code pollOverlap}, so that one committed after a later one is still picked
+ * up (see {@code db/migration/008_revoked_token_time.sql}). A revocation expires with the token it revokes, or after {@code maximumAccessTokenValidity} or
+ * {@code maximumRefreshTokenValidity} when that expiration is not known, and is then deleted by {@link ExpiredTokenReaper}. Without a connection factory
+ * revocations only apply to this node. Tokens cannot be listed, so finding tokens by client or user returns nothing and bulk revocation by client or user is
+ * not supported: such tokens stay valid until they expire.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class ReactiveJwtTokenStore implements ReactiveTokenStore, DisposableBean {
+
+  private static final Log LOG = LogFactory.getLog(ReactiveJwtTokenStore.class);
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+
+  public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(5);
+
+  public static final Duration DEFAULT_POLL_OVERLAP = Duration.ofMinutes(1);
+
+  // the defaults of DefaultTokenServices
+  public static final Duration DEFAULT_MAXIMUM_ACCESS_TOKEN_VALIDITY = Duration.ofHours(12);
+
+  public static final Duration DEFAULT_MAXIMUM_REFRESH_TOKEN_VALIDITY = Duration.ofDays(30);
+
+  private static final String DEFAULT_REVOKED_TOKEN_INSERT_STATEMENT = "insert into oauth_revoked_token (token_id, expiration) values (:tokenId, :expiration) on conflict (token_id) do nothing";
+
+  private static final String DEFAULT_REVOKED_TOKENS_SELECT_STATEMENT = "select token_id, expiration, revoked_at from oauth_revoked_token where revoked_at > :after "
+      + "and (expiration is null or expiration > now())";
+
+  private final JwtAccessTokenConverter jwtTokenEnhancer;
+
+  // verifies signatures
+  private final JwtTokenStore jwtTokenStore;
+
+  private final JsonParser jsonParser = JsonParserFactory.create();
+
+  private final R2dbcEntityTemplate template;
+
+  private final Cache<String, AccessTokenAuthentication> verifiedTokens;
+
+  // revoked token id -> expiry in millis, after which the token is rejected anyway
+  private final ConcurrentMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+  private final Disposable poller;
+
+  // only touched by the poller
+  private Instant lastRevokedAt = Instant.EPOCH;
+
+  /**
+   * How far back before the latest revocation seen the next poll reads again. Revocations committed later than that after their time are missed.
+   */
+  @Setter
+  private Duration pollOverlap = DEFAULT_POLL_OVERLAP;
+
+  /**
+   * Longest access token validity of any client, how long the revocation of an access token whose expiration is not known is kept.
+   */
+  @Setter
+  private Duration maximumAccessTokenValidity = DEFAULT_MAXIMUM_ACCESS_TOKEN_VALIDITY;
+
+  /**
+   * Longest refresh token validity of any client, how long the revocation of a refresh token without an expiration is kept.
+   */
+  @Setter
+  private Duration maximumRefreshTokenValidity = DEFAULT_MAXIMUM_REFRESH_TOKEN_VALIDITY;
+
+  @Setter
+  private TokenKeyGenerator tokenKeyGenerator = new Md5TokenKeyGenerator();
+
+  /**
+   * A store whose revocations only apply to this node.
+   */
+  public ReactiveJwtTokenStore(JwtAccessTokenConverter jwtTokenEnhancer) {
+    this(jwtTokenEnhancer, null, DEFAULT_POLL_INTERVAL);
+  }
+
+  public ReactiveJwtTokenStore(JwtAccessTokenConverter jwtTokenEnhancer, ConnectionFactory connectionFactory) {
+    this(jwtTokenEnhancer, connectionFactory, DEFAULT_POLL_INTERVAL);
+  }
+
+  public ReactiveJwtTokenStore(JwtAccessTokenConverter jwtTokenEnhancer, ConnectionFactory connectionFactory, Duration pollInterval) {
+    Assert.notNull(jwtTokenEnhancer, "JwtAccessTokenConverter required");
+    this.jwtTokenEnhancer = jwtTokenEnhancer;
+    this.jwtTokenStore = new JwtTokenStore(jwtTokenEnhancer);
+    this.verifiedTokens = Caffeine.newBuilder()
+        .maximumSize(DEFAULT_MAXIMUM_SIZE)
+        .expireAfter(new TokenExpiry())
+        .build();
+    if (connectionFactory != null) {
+      this.template = new R2dbcEntityTemplate(connectionFactory);
+      this.poller = Flux.interval(Duration.ZERO, pollInterval)
+          .onBackpressureDrop()
+          .concatMap(tick -> pollRevocations()
+              .onErrorResume(e -> {
+                LOG.warn("Failed to poll revoked tokens", e);
+                return Mono.empty();
+              }))
+          .subscribe();
+    } else {
+      this.template = null;
+      this.poller = Flux.interval(pollInterval, pollInterval)
+          .onBackpressureDrop()
+          .subscribe(tick -> removeExpiredRevocations());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (poller != null) {
+      poller.dispose();
+    }
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(OAuth2AccessToken token) {
+    return readAuthentication(token.getValue());
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthentication(String token) {
+    return readAccessTokenAndAuthentication(token).map(AccessTokenAuthentication::getAuthentication);
+  }
+
+  @Override
+  public Mono<OAuth2AccessToken> readAccessToken(String tokenValue) {
+    return readAccessTokenAndAuthentication(tokenValue).map(AccessTokenAuthentication::getAccessToken);
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return Mono.fromCallable(() -> {
+      AccessTokenAuthentication value = verifiedTokens.get(tokenValue, this::decodeAccessToken);
+      return isRevoked(value.getAccessToken().getAdditionalInformation(), tokenValue) ? null : value;
+    });
+  }
+
+  @Override
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return readAccessTokenAndAuthentication(tokenValue);
+  }
+
+  /**
+   * Nothing to store, the token is self-contained.
+   */
+  @Override
+  public Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<Void> storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Mono<Void> removeAccessToken(OAuth2AccessToken token) {
+    return revoke(tokenId(token.getAdditionalInformation(), token.getValue()), expirationOr(token.getExpiration(), maximumAccessTokenValidity));
+  }
+
+  @Override
+  public Mono<OAuth2RefreshToken> readRefreshToken(String tokenValue) {
+    return Mono.fromCallable(() -> {
+      OAuth2RefreshToken refreshToken = jwtTokenStore.readRefreshToken(tokenValue);
+      return refreshToken == null || isRevoked(claims(tokenValue), tokenValue) ? null : refreshToken;
+    });
+  }
+
+  @Override
+  public Mono<OAuth2Authentication> readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+    return Mono.fromCallable(() -> jwtTokenStore.readAuthenticationForRefreshToken(token));
+  }
+
+  @Override
+  public Mono<RefreshTokenAuthentication> readRefreshTokenAndAuthentication(String tokenValue) {
+    return readRefreshToken(tokenValue)
+        .map(refreshToken -> new RefreshTokenAuthentication(refreshToken, jwtTokenStore.readAuthenticationForRefreshToken(refreshToken)));
+  }
+
+  /**
+   * Nothing is stored, so this only revokes the previous access token, and the previous refresh token when it is rotated. Concurrent refreshes with the same
+   * refresh token all succeed.
+   */
+  @Override
+  public Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    OAuth2RefreshToken refreshToken = accessToken.getRefreshToken();
+    Mono<Void> revocation = removeAccessTokenUsingRefreshToken(previousRefreshToken);
+    if (refreshToken != null && !refreshToken.getValue().equals(previousRefreshToken.getValue())) {
+      revocation = revocation.then(removeRefreshToken(previousRefreshToken));
+    }
+    return revocation.thenReturn(true);
+  }
+
+  @Override
+  public Mono<Void> removeRefreshToken(OAuth2RefreshToken token) {
+    return Mono.defer(() -> {
+      Map<String, Object> claims = claims(token.getValue());
+      return revoke(tokenId(claims, token.getValue()), expirationOr(expirationOf(claims), maximumRefreshTokenValidity));
+    });
+  }
+
+  /**
+   * The refresh token carries the id of the access token it was issued with, which is revoked. That token was issued before now, so it has expired once the
+   * longest access token validity has passed.
+   */
+  @Override
+  public Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+    return Mono.defer(() -> {
+      Object accessTokenId = claims(refreshToken.getValue()).get(JwtAccessTokenConverter.ACCESS_TOKEN_ID);
+      return accessTokenId != null ? revoke(accessTokenId.toString(), expirationOr(null, maximumAccessTokenValidity)) : Mono.empty();
+    });
+  }
+
+  /**
+   * A new token is issued every time.
+   */
+  @Override
+  public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+    return Mono.empty();
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+    return Flux.empty();
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId) {
+    return Flux.empty();
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName, int pageSize) {
+    return Flux.empty();
+  }
+
+  @Override
+  public Flux<OAuth2AccessToken> findTokensByClientId(String clientId, int pageSize) {
+    return Flux.empty();
+  }
+
+  @Override
+  public Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return Mono.just(0L);
+  }
+
+  @Override
+  public Mono<Long> revokeAllForClient(String clientId) {
+    return Mono.just(0L);
+  }
+
+  /**
+   * Verify the token once, its claims are then read without verifying it again.
+   */
+  private AccessTokenAuthentication decodeAccessToken(String tokenValue) {
+    OAuth2AccessToken accessToken = jwtTokenStore.readAccessToken(tokenValue);
+    return new AccessTokenAuthentication(accessToken, jwtTokenEnhancer.extractAuthentication(claims(tokenValue)));
+  }
+
+  /**
+   * Claims of a token, without verifying its signature.
+   */
+  private Map<String, Object> claims(String tokenValue) {
+    int start = tokenValue.indexOf('.');
+    int end = tokenValue.indexOf('.', start + 1);
+    if (start < 0 || end < 0) {
+      throw new InvalidTokenException("Cannot convert access token to JSON");
+    }
+    try {
+      byte[] payload = Base64.getUrlDecoder().decode(tokenValue.substring(start + 1, end));
+      return jsonParser.parseMap(new String(payload, StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidTokenException("Cannot convert access token to JSON", e);
+    }
+  }
+
+  private static Date expirationOf(Map<String, Object> claims) {
+    Object exp = claims.get(AccessTokenConverter.EXP);
+    return exp instanceof Number ? new Date(((Number) exp).longValue() * 1000L) : null;
+  }
+
+  private static Date expirationOr(Date expiration, Duration validity) {
+    return expiration != null ? expiration : new Date(System.currentTimeMillis() + validity.toMillis());
+  }
+
+  private boolean isRevoked(Map<String, Object> additionalInformation, String tokenValue) {
+    return !revokedTokens.isEmpty() && revokedTokens.containsKey(tokenId(additionalInformation, tokenValue));
+  }
+
+  private String tokenId(Map<String, Object> additionalInformation, String tokenValue) {
+    Object jti = additionalInformation.get(AccessTokenConverter.JTI);
+    return jti != null ? jti.toString() : tokenKeyGenerator.extractKey(tokenValue);
+  }
+
+  private Mono<Void> revoke(String tokenId, Date expiration) {
+    return Mono.defer(() -> {
+      revokedTokens.put(tokenId, expiration.getTime());
+      if (template == null) {
+        return Mono.empty();
+      }
+      return template.getDatabaseClient()
+          .sql(DEFAULT_REVOKED_TOKEN_INSERT_STATEMENT)
+          .bind("tokenId", tokenId)
+          .bind("expiration", expiration.toInstant())
+          .then();
+    });
+  }
+
+  private void removeExpiredRevocations() {
+    long now = System.currentTimeMillis();
+    revokedTokens.values().removeIf(expiration -> expiration <= now);
+  }
+
+  private Mono<Void> pollRevocations() {
+    removeExpiredRevocations();
+    return template.getDatabaseClient()
+        .sql(DEFAULT_REVOKED_TOKENS_SELECT_STATEMENT)
+        .bind("after", lastRevokedAt.minus(pollOverlap))
+        .map((row, metadata) -> {
+          Instant expiration = row.get(1, Instant.class);
+          revokedTokens.put(row.get(0, String.class), expiration != null ? expiration.toEpochMilli() : Long.MAX_VALUE);
+          return row.get(2, Instant.class);
+        })
+        .all()
+        .doOnNext(revokedAt -> {
+          if (revokedAt.isAfter(lastRevokedAt)) {
+            lastRevokedAt = revokedAt;
+          }
+        })
+        .then();
+  }
+
+  private static final class TokenExpiry implements Expiry<String, AccessTokenAuthentication> {
+
+    @Override
+    public long expireAfterCreate(String key, AccessTokenAuthentication value, long currentTime) {
+      Date expiration = value.getAccessToken().getExpiration();
+      if (expiration == null) {
+        return Long.MAX_VALUE;
+      }
+      long millis = expiration.getTime() - System.currentTimeMillis();
+      return millis > 0 ? TimeUnit.MILLISECONDS.toNanos(millis) : 0;
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, AccessTokenAuthentication value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, AccessTokenAuthentication value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -30,4 +30,21 @@ public interface ReactiveResourceServerTokenServices {
    * @return the full access token with client id etc.
    */
   Mono<OAuth2AccessToken> readAccessToken(String accessToken);
+
+  /**
+   * Retrieve the full access token details together with the authentication it was issued for, in a single lookup.
+   *
+   * @param accessToken the token value
+   * @return the access token and its authentication
+   */
+  Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String accessToken);
+
+  /**
+   * Retrieve the access token and its authentication as far as a token introspection response needs them, see
+   * {@link ReactiveTokenStore#readAccessTokenForIntrospection(String)}.
+   *
+   * @param accessToken the token value
+   * @return the access token and its authentication
+   */
+  Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String accessToken);
 }
@@ -1,12 +1,15 @@
 package authorization.token;
 
+import authorization.client.ClientDetailsContext;
 import authorization.client.ReactiveClientDetailsService;
 import java.util.Date;
+import java.util.Set;
 import java.util.UUID;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
 import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
@@ -15,13 +18,19 @@ import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2RefreshToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.common.exceptions.InvalidRequestException;
+import org.springframework.security.oauth2.common.exceptions.InvalidScopeException;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.ClientDetails;
 import org.springframework.security.oauth2.provider.ClientRegistrationException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
 import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
 
 /**
@@ -46,6 +55,8 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
 
   private ReactiveAuthenticationManager authenticationManager;
 
+  private TokenEnhancer accessTokenEnhancer;
+
   //  @Transactional
   public Mono<OAuth2AccessToken> createAccessToken(OAuth2Authentication authentication) throws AuthenticationException {
     return Mono.just(new Container(authentication))
@@ -53,29 +64,60 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
         .flatMap(this::createAccessTokenIfNotExist);
   }
 
+  /**
+   * Reads the refresh token with its authentication in one lookup, then removes the previous access token, rotates the refresh token unless it is reused and
+   * stores the new access token in a single {@link ReactiveTokenStore#refreshTokens} operation.
+   */
   @Transactional(noRollbackFor = {InvalidTokenException.class, InvalidGrantException.class})
-  public Mono<OAuth2AccessToken> refreshAccessToken(String refreshToken, TokenRequest tokenRequest) throws AuthenticationException {
-    return null;
+  public Mono<OAuth2AccessToken> refreshAccessToken(String refreshTokenValue, TokenRequest tokenRequest) throws AuthenticationException {
+    if (!StringUtils.hasText(refreshTokenValue)) {
+      return Mono.error(() -> new InvalidRequestException("Missing refresh token"));
+    }
+    if (!supportRefreshToken) {
+      return Mono.error(() -> new InvalidGrantException("Invalid refresh token: " + refreshTokenValue));
+    }
+    return tokenStore.readRefreshTokenAndAuthentication(refreshTokenValue)
+        .switchIfEmpty(Mono.error(() -> new InvalidGrantException("Invalid refresh token: " + refreshTokenValue)))
+        .flatMap(stored -> reauthenticate(stored.getAuthentication())
+            .flatMap(authentication -> {
+              String clientId = authentication.getOAuth2Request().getClientId();
+              if (clientId == null || !clientId.equals(tokenRequest.getClientId())) {
+                return Mono.error(new InvalidGrantException("Wrong client for this refresh token: " + refreshTokenValue));
+              }
+              OAuth2RefreshToken refreshToken = stored.getRefreshToken();
+              if (isExpired(refreshToken)) {
+                return tokenStore.removeAccessTokenUsingRefreshToken(refreshToken)
+                    .then(tokenStore.removeRefreshToken(refreshToken))
+                    .then(Mono.error(new InvalidTokenException("Invalid refresh token (expired): " + refreshToken)));
+              }
+              Container container = new Container(createRefreshedAuthentication(authentication, tokenRequest));
+              container.setRefreshToken(refreshToken);
+              return loadClientDetails(container)
+                  .flatMap(this::rotateRefreshToken)
+                  .map(this::createAccessToken)
+                  .flatMap(ctn -> tokenStore.refreshTokens(refreshToken, ctn.accessToken, ctn.authentication))
+                  .flatMap(refreshed -> refreshed ? Mono.just(container.accessToken)
+                      : Mono.error(new InvalidGrantException("Invalid refresh token: " + refreshTokenValue)));
+            }));
   }
 
   private Mono<Container> getExistingAccessToken(Container container) {
     return tokenStore.getAccessToken(container.authentication)
-        .map(existingAccessToken -> {
+        .flatMap(existingAccessToken -> {
           if (existingAccessToken.isExpired()) {
+            Mono<Void> removal = tokenStore.removeAccessToken(existingAccessToken);
             if (existingAccessToken.getRefreshToken() != null) {
               container.refreshToken = existingAccessToken.getRefreshToken();
               // The token store could remove the refresh token when the
               // access token is removed, but we want to
               // be sure...
-              tokenStore.removeRefreshToken(container.refreshToken);
+              removal = tokenStore.removeRefreshToken(container.refreshToken).then(removal);
             }
-            tokenStore.removeAccessToken(existingAccessToken);
-          } else {
-            // Re-store the access token in case the authentication has changed
-            tokenStore.storeAccessToken(existingAccessToken, container.authentication);
-            container.accessToken = existingAccessToken;
+            return removal.thenReturn(container);
           }
-          return container;
+          // The token store has already re-stored the access token if the authentication has changed
+          container.accessToken = existingAccessToken;
+          return Mono.just(container);
         })
         .switchIfEmpty(Mono.just(container));
   }
@@ -87,8 +129,7 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
     return Mono.just(container)
         .flatMap(this::getRefreshToken)
         .map(this::createAccessToken)
-        .doOnNext(ctn -> tokenStore.storeAccessToken(ctn.accessToken, ctn.authentication).subscribe())
-        .doOnNext(ctn -> tokenStore.storeRefreshToken(ctn.refreshToken, ctn.authentication).subscribe())
+        .flatMap(ctn -> tokenStore.storeTokens(ctn.accessToken, ctn.refreshToken, ctn.authentication).thenReturn(ctn))
         .map(Container::getAccessToken);
   }
 
@@ -111,6 +152,62 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
     return Mono.just(container);
   }
 
+  /**
+   * The user authentication might be old now, so give it a chance to re-authenticate.
+   */
+  private Mono<OAuth2Authentication> reauthenticate(OAuth2Authentication authentication) {
+    if (authenticationManager == null || authentication.isClientOnly()) {
+      return Mono.just(authentication);
+    }
+    Authentication user = new PreAuthenticatedAuthenticationToken(authentication.getUserAuthentication(), "", authentication.getAuthorities());
+    return authenticationManager.authenticate(user)
+        .map(authenticated -> {
+          OAuth2Authentication reauthenticated = new OAuth2Authentication(authentication.getOAuth2Request(), authenticated);
+          reauthenticated.setDetails(authentication.getDetails());
+          return reauthenticated;
+        });
+  }
+
+  private Mono<Container> loadClientDetails(Container container) {
+    if (clientDetailsService == null) {
+      return Mono.just(container);
+    }
+    return ClientDetailsContext.loadClient(clientDetailsService, container.authentication.getOAuth2Request().getClientId())
+        .map(container::setClientDetails);
+  }
+
+  private Mono<Container> rotateRefreshToken(Container container) {
+    if (reuseRefreshToken) {
+      return Mono.just(container);
+    }
+    getRefreshTokenValiditySeconds(container);
+    return Mono.just(container.createRefreshToken());
+  }
+
+  /**
+   * Create a refreshed authentication, narrowed to the requested scope if any.
+   */
+  private OAuth2Authentication createRefreshedAuthentication(OAuth2Authentication authentication, TokenRequest request) {
+    Set<String> scope = request.getScope();
+    OAuth2Request clientAuth = authentication.getOAuth2Request().refresh(request);
+    if (scope != null && !scope.isEmpty()) {
+      Set<String> originalScope = clientAuth.getScope();
+      if (originalScope == null || !originalScope.containsAll(scope)) {
+        throw new InvalidScopeException("Unable to narrow the scope of the client authentication to " + scope + ".", originalScope);
+      }
+      clientAuth = clientAuth.narrowScope(scope);
+    }
+    return new OAuth2Authentication(clientAuth, authentication.getUserAuthentication());
+  }
+
+  private boolean isExpired(OAuth2RefreshToken refreshToken) {
+    if (refreshToken instanceof ExpiringOAuth2RefreshToken) {
+      ExpiringOAuth2RefreshToken expiringToken = (ExpiringOAuth2RefreshToken) refreshToken;
+      return expiringToken.getExpiration() == null || System.currentTimeMillis() > expiringToken.getExpiration().getTime();
+    }
+    return false;
+  }
+
   public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
     return tokenStore.getAccessToken(authentication);
   }
@@ -128,16 +225,16 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
   }
 
   public Mono<OAuth2Authentication> loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
-    return Mono.just(accessToken)
-        .flatMap(tokenStore::readAccessToken)
-        .switchIfEmpty(Mono.error(new InvalidTokenException("Invalid access token: " + accessToken)))
-        .doOnNext(token -> {
+    return tokenStore.readAccessTokenAndAuthentication(accessToken)
+        .switchIfEmpty(Mono.error(() -> new InvalidTokenException("Invalid access token: " + accessToken)))
+        .flatMap(tokenAuthentication -> {
+          OAuth2AccessToken token = tokenAuthentication.getAccessToken();
           if (token.isExpired()) {
-            tokenStore.removeAccessToken(token);
-            throw new InvalidTokenException("Access token expired: " + accessToken);
+            return tokenStore.removeAccessToken(token)
+                .then(Mono.error(new InvalidTokenException("Access token expired: " + accessToken)));
           }
-        }).flatMap(tokenStore::readAuthentication)
-        .switchIfEmpty(Mono.error(new InvalidTokenException("Invalid access token: " + accessToken)))
+          return Mono.just(tokenAuthentication.getAuthentication());
+        })
         .doOnNext(authentication -> {
           if (clientDetailsService != null) {
             String clientId = authentication.getOAuth2Request().getClientId();
@@ -154,6 +251,14 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
     return tokenStore.readAccessToken(accessToken);
   }
 
+  public Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String accessToken) {
+    return tokenStore.readAccessTokenAndAuthentication(accessToken);
+  }
+
+  public Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String accessToken) {
+    return tokenStore.readAccessTokenForIntrospection(accessToken);
+  }
+
   public void afterPropertiesSet() {
     Assert.notNull(tokenStore, "tokenStore must be set");
   }
@@ -165,7 +270,8 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
    * @return the access token validity period in seconds
    */
   protected int getAccessTokenValiditySeconds(Container container) {
-    return container.clientDetails != null ? container.clientDetails.getAccessTokenValiditySeconds() : accessTokenValiditySeconds;
+    Integer validity = container.clientDetails != null ? container.clientDetails.getAccessTokenValiditySeconds() : null;
+    return validity != null ? validity : accessTokenValiditySeconds;
 
   }
 
@@ -178,8 +284,8 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
    * The refresh token validity period in seconds
    */
   protected void getRefreshTokenValiditySeconds(Container container) {
-    container.refreshTokenValiditySeconds = container.clientDetails != null ?
-        container.clientDetails.getRefreshTokenValiditySeconds() : refreshTokenValiditySeconds;
+    Integer validity = container.clientDetails != null ? container.clientDetails.getRefreshTokenValiditySeconds() : null;
+    container.refreshTokenValiditySeconds = validity != null ? validity : refreshTokenValiditySeconds;
   }
 
 
@@ -191,7 +297,16 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
     }
     token.setRefreshToken(container.refreshToken);
     token.setScope(container.authentication.getOAuth2Request().getScope());
-    container.setAccessToken(token);
+    if (accessTokenEnhancer == null) {
+      container.setAccessToken(token);
+      return container;
+    }
+    // an encoding enhancer such as a JwtAccessTokenConverter also replaces the refresh token
+    OAuth2AccessToken enhanced = accessTokenEnhancer.enhance(token, container.authentication);
+    container.setAccessToken(enhanced);
+    if (enhanced.getRefreshToken() != null) {
+      container.setRefreshToken(enhanced.getRefreshToken());
+    }
     return container;
   }
 
@@ -199,7 +314,7 @@ public class ReactiveTokenServices implements ReactiveAuthorizationServerTokenSe
     if (clientDetailsService == null || !supportRefreshToken) {
       return Mono.just(container);
     }
-    return clientDetailsService.loadClientByClientId(container.authentication.getOAuth2Request().getClientId())
+    return ClientDetailsContext.loadClient(clientDetailsService, container.authentication.getOAuth2Request().getClientId())
         .map(container::setClientDetails)
         .doOnNext(this::isSupportRefreshToken)
         .doOnNext(this::getRefreshTokenValiditySeconds)
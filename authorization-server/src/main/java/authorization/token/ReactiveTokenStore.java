@@ -1,5 +1,6 @@
 package authorization.token;
 
+import java.util.List;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2RefreshToken;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -37,6 +38,29 @@ public interface ReactiveTokenStore {
    */
   Mono<Void> storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication);
 
+  /**
+   * Store a newly issued access token together with its refresh token. The returned Mono completes only once both are persisted.
+   *
+   * @param accessToken    The access token to store.
+   * @param refreshToken   The refresh token issued with it, or null if there is none.
+   * @param authentication The authentication associated with both tokens.
+   */
+  default Mono<Void> storeTokens(OAuth2AccessToken accessToken, OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+    Mono<Void> storeRefreshToken = refreshToken != null ? storeRefreshToken(refreshToken, authentication) : Mono.empty();
+    return storeRefreshToken.then(storeAccessToken(accessToken, authentication));
+  }
+
+  /**
+   * Store several issued tokens at once. The returned Mono completes only once every write is persisted.
+   *
+   * @param writes The tokens to store.
+   */
+  default Mono<Void> storeTokens(List<TokenWrite> writes) {
+    return Flux.fromIterable(writes)
+        .concatMap(write -> storeTokens(write.getAccessToken(), write.getRefreshToken(), write.getAuthentication()))
+        .then();
+  }
+
   /**
    * Read an access token from the store.
    *
@@ -45,6 +69,29 @@ public interface ReactiveTokenStore {
    */
   Mono<OAuth2AccessToken> readAccessToken(String tokenValue);
 
+  /**
+   * Read an access token and the authentication stored under it in a single lookup.
+   *
+   * @param tokenValue The token value.
+   * @return The access token and its authentication, or empty if none.
+   */
+  default Mono<AccessTokenAuthentication> readAccessTokenAndAuthentication(String tokenValue) {
+    return readAccessToken(tokenValue)
+        .flatMap(token -> readAuthentication(token).map(authentication -> new AccessTokenAuthentication(token, authentication)));
+  }
+
+  /**
+   * Read an access token and its authentication for a token introspection response, such as that of the check token endpoint. A store may leave out what a
+   * {@link org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter} does not read: only the scope, expiration and additional
+   * information of the token, and the client id, resource ids, grant type, user name and authorities of the authentication are to be relied on.
+   *
+   * @param tokenValue The token value.
+   * @return The access token and its authentication, or empty if none.
+   */
+  default Mono<AccessTokenAuthentication> readAccessTokenForIntrospection(String tokenValue) {
+    return readAccessTokenAndAuthentication(tokenValue);
+  }
+
   /**
    * Remove an access token from the store.
    *
@@ -74,6 +121,41 @@ public interface ReactiveTokenStore {
    */
   Mono<OAuth2Authentication> readAuthenticationForRefreshToken(OAuth2RefreshToken token);
 
+  /**
+   * Read a refresh token and the authentication it was granted for in a single lookup.
+   *
+   * @param tokenValue The value of the token to read.
+   * @return The refresh token and its authentication, or empty if none.
+   */
+  default Mono<RefreshTokenAuthentication> readRefreshTokenAndAuthentication(String tokenValue) {
+    return readRefreshToken(tokenValue)
+        .flatMap(token -> readAuthenticationForRefreshToken(token).map(authentication -> new RefreshTokenAuthentication(token, authentication)));
+  }
+
+  /**
+   * Renew the tokens of a refresh token as one atomic operation: remove the access tokens issued with {@code previousRefreshToken}, replace it by the
+   * refresh token of {@code accessToken} if that is a different one, and store {@code accessToken}. Nothing is changed if {@code previousRefreshToken} is
+   * not in the store anymore, e.g. because a concurrent refresh already replaced it.
+   * <p>
+   * By default this is a sequence of single operations, so concurrent refreshes with one refresh token may all go through. Stores that can should override it
+   * with an atomic one.
+   *
+   * @param previousRefreshToken The refresh token presented by the client.
+   * @param accessToken          The new access token, with the refresh token to keep.
+   * @param authentication       The authentication associated with both tokens.
+   * @return whether the tokens were renewed
+   */
+  default Mono<Boolean> refreshTokens(OAuth2RefreshToken previousRefreshToken, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+    OAuth2RefreshToken refreshToken = accessToken.getRefreshToken();
+    boolean rotated = refreshToken != null && !refreshToken.getValue().equals(previousRefreshToken.getValue());
+    return readRefreshToken(previousRefreshToken.getValue())
+        .flatMap(previous -> removeAccessTokenUsingRefreshToken(previous)
+            .then(rotated ? removeRefreshToken(previous).then(storeRefreshToken(refreshToken, authentication)) : Mono.empty())
+            .then(storeAccessToken(accessToken, authentication))
+            .thenReturn(true))
+        .defaultIfEmpty(false);
+  }
+
   /**
    * Remove a refresh token from the store.
    *
@@ -90,7 +172,8 @@ public interface ReactiveTokenStore {
   Mono<Void> removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken);
 
   /**
-   * Retrieve an access token stored against the provided authentication key, if it exists.
+   * Retrieve an access token stored against the provided authentication key, if it exists. If the authentication has changed since, e.g. the same user with
+   * new details, it is stored with the token again.
    *
    * @param authentication the authentication key for the access token
    * @return the access token or null if there was none
@@ -109,4 +192,61 @@ public interface ReactiveTokenStore {
    * @return a collection of access tokens
    */
   Flux<OAuth2AccessToken> findTokensByClientId(String clientId);
+
+  /**
+   * Same as {@link #findTokensByClientIdAndUserName(String, String)}, but fetches at most {@code pageSize} tokens at a time and only when downstream asks for
+   * more, so arbitrarily many tokens can be walked in constant memory. By default the page size is ignored.
+   *
+   * @param clientId the client id to search
+   * @param userName the user name to search
+   * @param pageSize the number of tokens fetched per query
+   * @return a collection of access tokens
+   */
+  default Flux<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName, int pageSize) {
+    return findTokensByClientIdAndUserName(clientId, userName);
+  }
+
+  /**
+   * Same as {@link #findTokensByClientId(String)}, but fetches at most {@code pageSize} tokens at a time and only when downstream asks for more. By default
+   * the page size is ignored.
+   *
+   * @param clientId the client id to search
+   * @param pageSize the number of tokens fetched per query
+   * @return a collection of access tokens
+   */
+  default Flux<OAuth2AccessToken> findTokensByClientId(String clientId, int pageSize) {
+    return findTokensByClientId(clientId);
+  }
+
+  /**
+   * Revoke every access token, and the refresh tokens issued with them, of a user of a client in one operation. By default the tokens are found and removed
+   * one by one.
+   *
+   * @param clientId the client id
+   * @param userName the user name
+   * @return the number of access tokens revoked
+   */
+  default Mono<Long> revokeAllForUser(String clientId, String userName) {
+    return findTokensByClientIdAndUserName(clientId, userName)
+        .concatMap(token -> {
+          Mono<Void> removeRefreshToken = token.getRefreshToken() != null ? removeRefreshToken(token.getRefreshToken()) : Mono.empty();
+          return removeRefreshToken.then(removeAccessToken(token)).thenReturn(token);
+        })
+        .count();
+  }
+
+  /**
+   * Revoke every access token, and the refresh tokens issued with them, of a client in one operation. By default the tokens are found and removed one by one.
+   *
+   * @param clientId the client id
+   * @return the number of access tokens revoked
+   */
+  default Mono<Long> revokeAllForClient(String clientId) {
+    return findTokensByClientId(clientId)
+        .concatMap(token -> {
+          Mono<Void> removeRefreshToken = token.getRefreshToken() != null ? removeRefreshToken(token.getRefreshToken()) : Mono.empty();
+          return removeRefreshToken.then(removeAccessToken(token)).thenReturn(token);
+        })
+        .count();
+  }
 }
@@ -0,0 +1,19 @@
+package authorization.token;
+
+import lombok.Value;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * A refresh token together with the authentication it was granted for, as read from a token store in one lookup.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@Value
+public class RefreshTokenAuthentication {
+
+  OAuth2RefreshToken refreshToken;
+
+  OAuth2Authentication authentication;
+}
@@ -0,0 +1,303 @@
+package authorization.token;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One lock stripe of {@link OffHeapCachingReactiveTokenStore}. Records live in fixed size slots of a direct buffer and are found through an open addressing
+ * index, also off-heap, keyed by the 128-bit token key. The only heap this takes is a fixed free-slot stack and version table, whatever the number of
+ * records.
+ * <p>
+ * Invalidating a key bumps the version of its stripe of keys, and a record read from the delegate is only stored if the version of its stripe has not moved
+ * since, so a load racing with a write or removal of the same token never caches the old record. Other tokens of the segment are not affected.
+ * <p>
+ * Full segments evict with the clock algorithm: every read sets the slot's reference bit and the hand clears bits until it finds a slot without one.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+class SlabSegment {
+
+  // slot layout
+  static final int HEADER_SIZE = 72;
+  private static final int USED = 0;
+  private static final int REFERENCED = 1;
+  private static final int TOKEN_LENGTH = 4;
+  private static final int AUTHENTICATION_LENGTH = 8;
+  private static final int KEY_HIGH = 16;
+  private static final int KEY_LOW = 24;
+  private static final int EXPIRES_AT = 32;
+  private static final int CACHED_AT = 40;
+  private static final int REFRESH_TOKEN_HASH = 48;
+  private static final int CLIENT_HASH = 56;
+  private static final int USER_HASH = 64;
+
+  // index entry layout, slot is stored plus one so that zero means empty
+  private static final int INDEX_ENTRY_SIZE = 24;
+  private static final int INDEX_SLOT = 16;
+
+  private static final int VERSION_STRIPES = 256;
+
+  private final int slotSize;
+
+  private final int slotCount;
+
+  private final ByteBuffer slab;
+
+  private final ByteBuffer index;
+
+  private final int indexMask;
+
+  private final int[] freeSlots;
+
+  private int freeCount;
+
+  // slots never used yet start at this one
+  private int nextUnused;
+
+  private int clockHand;
+
+  private final long[] versions = new long[VERSION_STRIPES];
+
+  private long versionClock;
+
+  private volatile long entries;
+
+  private volatile long bytesInUse;
+
+  private volatile long evictions;
+
+  SlabSegment(int slotCount, int slotSize) {
+    this.slotSize = slotSize;
+    this.slotCount = slotCount;
+    this.slab = ByteBuffer.allocateDirect(Math.multiplyExact(slotCount, slotSize));
+    int indexCapacity = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 2;
+    this.index = ByteBuffer.allocateDirect(Math.multiplyExact(indexCapacity, INDEX_ENTRY_SIZE));
+    this.indexMask = indexCapacity - 1;
+    this.freeSlots = new int[slotCount];
+  }
+
+  synchronized Record get(long high, long low, long now) {
+    int position = find(high, low);
+    if (position < 0) {
+      return null;
+    }
+    int slot = slotAt(position);
+    int base = slot * slotSize;
+    if (slab.getLong(base + EXPIRES_AT) <= now) {
+      removeAt(position, slot);
+      return null;
+    }
+    slab.put(base + REFERENCED, (byte) 1);
+    int tokenLength = slab.getInt(base + TOKEN_LENGTH);
+    int authenticationLength = slab.getInt(base + AUTHENTICATION_LENGTH);
+    byte[] data = new byte[tokenLength + authenticationLength];
+    ByteBuffer source = slab.duplicate();
+    source.position(base + HEADER_SIZE);
+    source.get(data);
+    return new Record(tokenLength, data, slab.getLong(base + CACHED_AT), slab.getLong(base + REFRESH_TOKEN_HASH), slab.getLong(base + CLIENT_HASH),
+        slab.getLong(base + USER_HASH));
+  }
+
+  /**
+   * The version to pass to {@link #put} for a record read from the delegate from now on.
+   */
+  synchronized long version(long low) {
+    return versions[stripe(low)];
+  }
+
+  /**
+   * Store a record, unless its key was invalidated since {@code version} was taken or the whole cache was dropped since {@code clears} was at
+   * {@code clearsAt}.
+   */
+  synchronized void put(long high, long low, long version, long expiresAt, long cachedAt, long refreshTokenHash, long clientHash, long userHash,
+      byte[] token, byte[] authentication, AtomicLong clears, long clearsAt) {
+    if (versions[stripe(low)] != version || clears.get() != clearsAt) {
+      return;
+    }
+    int position = find(high, low);
+    int slot;
+    if (position >= 0) {
+      slot = slotAt(position);
+      bytesInUse -= recordLength(slot);
+    } else {
+      slot = allocate();
+      // eviction may have shifted the index
+      position = find(high, low);
+      position = -1 - position;
+      int base = position * INDEX_ENTRY_SIZE;
+      index.putLong(base, high);
+      index.putLong(base + 8, low);
+      index.putInt(base + INDEX_SLOT, slot + 1);
+      entries++;
+    }
+    int base = slot * slotSize;
+    slab.put(base + USED, (byte) 1);
+    slab.put(base + REFERENCED, (byte) 0);
+    slab.putInt(base + TOKEN_LENGTH, token.length);
+    slab.putInt(base + AUTHENTICATION_LENGTH, authentication.length);
+    slab.putLong(base + KEY_HIGH, high);
+    slab.putLong(base + KEY_LOW, low);
+    slab.putLong(base + EXPIRES_AT, expiresAt);
+    slab.putLong(base + CACHED_AT, cachedAt);
+    slab.putLong(base + REFRESH_TOKEN_HASH, refreshTokenHash);
+    slab.putLong(base + CLIENT_HASH, clientHash);
+    slab.putLong(base + USER_HASH, userHash);
+    ByteBuffer target = slab.duplicate();
+    target.position(base + HEADER_SIZE);
+    target.put(token);
+    target.put(authentication);
+    bytesInUse += recordLength(slot);
+  }
+
+  synchronized void remove(long high, long low) {
+    int position = find(high, low);
+    if (position >= 0) {
+      removeAt(position, slotAt(position));
+    }
+  }
+
+  /**
+   * Remove the record and keep loads of its key in flight from storing it again.
+   */
+  synchronized void invalidate(long high, long low) {
+    versions[stripe(low)] = ++versionClock;
+    remove(high, low);
+  }
+
+  synchronized void clear() {
+    for (int i = 0; i <= indexMask; i++) {
+      index.putInt(i * INDEX_ENTRY_SIZE + INDEX_SLOT, 0);
+    }
+    for (int slot = 0; slot < nextUnused; slot++) {
+      slab.put(slot * slotSize + USED, (byte) 0);
+    }
+    freeCount = 0;
+    nextUnused = 0;
+    clockHand = 0;
+    entries = 0;
+    bytesInUse = 0;
+  }
+
+  long getEntries() {
+    return entries;
+  }
+
+  long getBytesInUse() {
+    return bytesInUse;
+  }
+
+  long getEvictions() {
+    return evictions;
+  }
+
+  long getCapacityBytes() {
+    return (long) slab.capacity() + index.capacity();
+  }
+
+  private int allocate() {
+    if (freeCount > 0) {
+      return freeSlots[--freeCount];
+    }
+    if (nextUnused < slotCount) {
+      return nextUnused++;
+    }
+    while (true) {
+      int slot = clockHand;
+      clockHand = clockHand + 1 == slotCount ? 0 : clockHand + 1;
+      int base = slot * slotSize;
+      if (slab.get(base + USED) == 0) {
+        continue;
+      }
+      if (slab.get(base + REFERENCED) != 0) {
+        slab.put(base + REFERENCED, (byte) 0);
+        continue;
+      }
+      removeAt(find(slab.getLong(base + KEY_HIGH), slab.getLong(base + KEY_LOW)), slot);
+      evictions++;
+      return freeSlots[--freeCount];
+    }
+  }
+
+  private void removeAt(int position, int slot) {
+    deleteIndexEntry(position);
+    slab.put(slot * slotSize + USED, (byte) 0);
+    bytesInUse -= recordLength(slot);
+    entries--;
+    freeSlots[freeCount++] = slot;
+  }
+
+  /**
+   * @return the index position of the key, or {@code -1 - position} of the empty entry where it would go.
+   */
+  private int find(long high, long low) {
+    int position = (int) low & indexMask;
+    while (true) {
+      int base = position * INDEX_ENTRY_SIZE;
+      if (index.getInt(base + INDEX_SLOT) == 0) {
+        return -1 - position;
+      }
+      if (index.getLong(base) == high && index.getLong(base + 8) == low) {
+        return position;
+      }
+      position = (position + 1) & indexMask;
+    }
+  }
+
+  /**
+   * Backward shift deletion, so that lookups never need tombstones.
+   */
+  private void deleteIndexEntry(int position) {
+    int hole = position;
+    int next = (position + 1) & indexMask;
+    while (index.getInt(next * INDEX_ENTRY_SIZE + INDEX_SLOT) != 0) {
+      int ideal = (int) index.getLong(next * INDEX_ENTRY_SIZE + 8) & indexMask;
+      if (((next - ideal) & indexMask) >= ((next - hole) & indexMask)) {
+        int from = next * INDEX_ENTRY_SIZE;
+        int to = hole * INDEX_ENTRY_SIZE;
+        index.putLong(to, index.getLong(from));
+        index.putLong(to + 8, index.getLong(from + 8));
+        index.putInt(to + INDEX_SLOT, index.getInt(from + INDEX_SLOT));
+        hole = next;
+      }
+      next = (next + 1) & indexMask;
+    }
+    index.putInt(hole * INDEX_ENTRY_SIZE + INDEX_SLOT, 0);
+  }
+
+  // the index position comes from the low bits and the segment from the high ones
+  private static int stripe(long low) {
+    return (int) (low >>> 32) & (VERSION_STRIPES - 1);
+  }
+
+  private int slotAt(int position) {
+    return index.getInt(position * INDEX_ENTRY_SIZE + INDEX_SLOT) - 1;
+  }
+
+  private int recordLength(int slot) {
+    int base = slot * slotSize;
+    return HEADER_SIZE + slab.getInt(base + TOKEN_LENGTH) + slab.getInt(base + AUTHENTICATION_LENGTH);
+  }
+
+  /**
+   * Heap copy of a record, decoded outside the segment lock.
+   */
+  static final class Record {
+
+    final int tokenLength;
+    final byte[] data;
+    final long cachedAt;
+    final long refreshTokenHash;
+    final long clientHash;
+    final long userHash;
+
+    private Record(int tokenLength, byte[] data, long cachedAt, long refreshTokenHash, long clientHash, long userHash) {
+      this.tokenLength = tokenLength;
+      this.data = data;
+      this.cachedAt = cachedAt;
+      this.refreshTokenHash = refreshTokenHash;
+      this.clientHash = clientHash;
+      this.userHash = userHash;
+    }
+  }
+}
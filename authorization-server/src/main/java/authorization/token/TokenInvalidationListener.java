@@ -0,0 +1,60 @@
+package authorization.token;
+
+import authorization.r2dbc.InvalidationListener;
+
+/**
+ * A token cache that can be told about tokens removed or revoked on other nodes, by a {@link R2dbcTokenStore} publishing on an
+ * {@link authorization.r2dbc.InvalidationBus}.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public interface TokenInvalidationListener extends InvalidationListener {
+
+  String ACCESS_TOKEN = "at";
+
+  String REFRESH_TOKEN = "rt";
+
+  String USER = "ut";
+
+  String CLIENT = "ct";
+
+  char USER_SEPARATOR = '\u001f';
+
+  void invalidateAccessToken(String tokenValue);
+
+  /**
+   * Invalidate the access tokens issued with a refresh token.
+   */
+  void invalidateRefreshToken(String refreshTokenValue);
+
+  void invalidateUser(String clientId, String userName);
+
+  void invalidateClient(String clientId);
+
+  @Override
+  default void invalidate(String type, String key) {
+    switch (type) {
+      case ACCESS_TOKEN:
+        invalidateAccessToken(key);
+        break;
+      case REFRESH_TOKEN:
+        invalidateRefreshToken(key);
+        break;
+      case USER:
+        int separator = key.indexOf(USER_SEPARATOR);
+        if (separator >= 0) {
+          invalidateUser(key.substring(0, separator), key.substring(separator + 1));
+        }
+        break;
+      case CLIENT:
+        invalidateClient(key);
+        break;
+      default:
+    }
+  }
+
+  static String userKey(String clientId, String userName) {
+    return clientId + USER_SEPARATOR + userName;
+  }
+}
@@ -0,0 +1,228 @@
+package authorization.token;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Journal in a memory-mapped file used as a ring, for {@link JournalingReactiveTokenStore}. A record is a type and a few byte array fields, framed by its
+ * length, the generation it was written in and a CRC32, so that a torn write at the tail is detected on recovery.
+ * <p>
+ * The header holds the checkpoint: records before it have been replayed, and the space they take is written again once the ring has come around to it. A
+ * record that does not fit before the end of the file goes to the beginning, in the next generation, so that records left over from an earlier lap no longer
+ * match. Once everything is replayed the journal starts over from the beginning as well.
+ * <p>
+ * Positions handed out are marks: the generation in the high and the offset in the low half, so that a later record always has a greater mark.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+class TokenJournal implements Closeable {
+
+  private static final int MAGIC = 0x4f4a524e;
+
+  // header: magic, generation and offset of the checkpoint
+  private static final int HEADER_SIZE = 16;
+  private static final int GENERATION = 4;
+  private static final int CHECKPOINT = 8;
+
+  // record: payload length, generation, crc, then the payload
+  private static final int RECORD_HEADER_SIZE = 12;
+
+  // length of the record ending a lap early, the next one is at the beginning
+  private static final int WRAP = -1;
+
+  private final FileChannel channel;
+
+  private final MappedByteBuffer buffer;
+
+  private int checkpointGeneration;
+
+  private int checkpointPosition;
+
+  private int generation;
+
+  private int writePosition;
+
+  TokenJournal(Path path, int capacity) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+    if (buffer.getInt(0) != MAGIC) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(GENERATION, 0);
+      buffer.putInt(CHECKPOINT, HEADER_SIZE);
+    }
+    this.checkpointGeneration = buffer.getInt(GENERATION);
+    this.checkpointPosition = buffer.getInt(CHECKPOINT);
+    this.generation = checkpointGeneration;
+    this.writePosition = checkpointPosition;
+  }
+
+  /**
+   * Read the records written since the checkpoint, up to the first one that is torn or from an older generation, and continue appending after them.
+   */
+  synchronized List<Record> recover() {
+    List<Record> records = new ArrayList<>();
+    int generation = checkpointGeneration;
+    int position = checkpointPosition;
+    while (true) {
+      if (position + RECORD_HEADER_SIZE > buffer.capacity()
+          || buffer.getInt(position) == WRAP && buffer.getInt(position + 4) == generation) {
+        if (generation != checkpointGeneration) {
+          break;
+        }
+        generation++;
+        position = HEADER_SIZE;
+        continue;
+      }
+      int length = buffer.getInt(position);
+      if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity() || buffer.getInt(position + 4) != generation) {
+        break;
+      }
+      ByteBuffer payload = slice(position + RECORD_HEADER_SIZE, length);
+      if (buffer.getInt(position + 8) != crc(generation, payload.duplicate())) {
+        break;
+      }
+      position += RECORD_HEADER_SIZE + length;
+      records.add(decode(payload, mark(generation, position)));
+    }
+    this.generation = generation;
+    this.writePosition = position;
+    return records;
+  }
+
+  /**
+   * @param reserve space to leave free after the record, so that more important records still fit
+   * @return the mark after the record, or -1 if the journal is full
+   */
+  synchronized long append(byte type, int reserve, byte[]... fields) {
+    int length = 1;
+    for (byte[] field : fields) {
+      length += 4 + (field != null ? field.length : 0);
+    }
+    int size = RECORD_HEADER_SIZE + length;
+    if (generation == checkpointGeneration) {
+      // free are the end of the file and the beginning up to the checkpoint
+      int tail = buffer.capacity() - writePosition;
+      int head = checkpointPosition - HEADER_SIZE;
+      if (size > tail || tail - size + head < reserve) {
+        if (size + reserve > head) {
+          return -1;
+        }
+        wrap();
+      }
+    } else if (size + reserve > checkpointPosition - writePosition) {
+      return -1;
+    }
+    ByteBuffer payload = slice(writePosition + RECORD_HEADER_SIZE, length);
+    payload.put(type);
+    for (byte[] field : fields) {
+      if (field != null) {
+        payload.putInt(field.length).put(field);
+      } else {
+        payload.putInt(-1);
+      }
+    }
+    payload.flip();
+    buffer.putInt(writePosition + 4, generation);
+    buffer.putInt(writePosition + 8, crc(generation, payload));
+    // the length goes last, a record is not there until it is
+    buffer.putInt(writePosition, length);
+    writePosition += size;
+    return mark(generation, writePosition);
+  }
+
+  /**
+   * Mark every record before {@code mark} as replayed, and free the space they take.
+   */
+  synchronized void checkpoint(long mark) {
+    if (mark == mark(generation, writePosition)) {
+      generation++;
+      writePosition = HEADER_SIZE;
+      checkpointGeneration = generation;
+      checkpointPosition = HEADER_SIZE;
+    } else {
+      checkpointGeneration = (int) (mark >>> 32);
+      checkpointPosition = (int) mark;
+    }
+    buffer.putInt(GENERATION, checkpointGeneration);
+    buffer.putInt(CHECKPOINT, checkpointPosition);
+  }
+
+  /**
+   * Flush everything appended and checkpointed so far to disk. Not synchronized, so appends go on meanwhile.
+   */
+  void force() {
+    buffer.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    buffer.force();
+    channel.close();
+  }
+
+  private void wrap() {
+    if (writePosition + RECORD_HEADER_SIZE <= buffer.capacity()) {
+      buffer.putInt(writePosition + 4, generation);
+      buffer.putInt(writePosition, WRAP);
+    }
+    generation++;
+    writePosition = HEADER_SIZE;
+  }
+
+  private static long mark(int generation, int position) {
+    return (long) generation << 32 | position;
+  }
+
+  private ByteBuffer slice(int position, int length) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(position);
+    slice.limit(position + length);
+    return slice.slice();
+  }
+
+  private static int crc(int generation, ByteBuffer payload) {
+    CRC32 crc = new CRC32();
+    crc.update(new byte[]{(byte) (generation >>> 24), (byte) (generation >>> 16), (byte) (generation >>> 8), (byte) generation});
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private static Record decode(ByteBuffer payload, long end) {
+    byte type = payload.get();
+    List<byte[]> fields = new ArrayList<>(3);
+    while (payload.hasRemaining()) {
+      int length = payload.getInt();
+      if (length < 0) {
+        fields.add(null);
+      } else {
+        byte[] field = new byte[length];
+        payload.get(field);
+        fields.add(field);
+      }
+    }
+    return new Record(type, fields, end);
+  }
+
+  static final class Record {
+
+    final byte type;
+    final List<byte[]> fields;
+    final long end;
+
+    private Record(byte type, List<byte[]> fields, long end) {
+      this.type = type;
+      this.fields = fields;
+      this.end = end;
+    }
+  }
+}
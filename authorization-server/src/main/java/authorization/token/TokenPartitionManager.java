@@ -0,0 +1,210 @@
+package authorization.token;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.Setter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maintains the daily partitions of an {@code oauth_access_token} partitioned by expiration, see
+ * {@code db/migration/optional/partition_access_token_by_expiration.sql}. Partitions are created {@code daysAhead} days ahead, and a partition is dropped
+ * whole once every token in it has expired, so expired tokens never go through row deletes and vacuum.
+ * <p>
+ * Days are UTC. A day without a partition yet goes to the default partition, and its partition can then no longer be created while those rows are there, so
+ * keep {@code daysAhead} above the longest access token validity. Only the node holding the Postgres advisory lock {@code lockKey} does the work on a given
+ * run.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class TokenPartitionManager implements SmartLifecycle, MeterBinder {
+
+  private static final Log LOG = LogFactory.getLog(TokenPartitionManager.class);
+
+  public static final long DEFAULT_LOCK_KEY = ExpiredTokenReaper.DEFAULT_LOCK_KEY + 1;
+
+  private static final String PARTITION_PREFIX = "oauth_access_token_p";
+
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+  private static final String CREATE_PARTITION_STATEMENT = "create table %s partition of oauth_access_token for values from ('%s 00:00:00+00') to ('%s 00:00:00+00')";
+
+  private static final String DROP_PARTITION_STATEMENT = "drop table %s";
+
+  private static final String PARTITIONS_SELECT_STATEMENT = "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid "
+      + "where i.inhparent = 'oauth_access_token'::regclass";
+
+  private static final String TRY_LOCK_STATEMENT = "select pg_try_advisory_lock($1)";
+
+  private static final String UNLOCK_STATEMENT = "select pg_advisory_unlock($1)";
+
+  private final ConnectionFactory connectionFactory;
+
+  @Setter
+  private int daysAhead = 7;
+
+  @Setter
+  private Duration interval = Duration.ofHours(1);
+
+  @Setter
+  private long lockKey = DEFAULT_LOCK_KEY;
+
+  @Setter
+  private Clock clock = Clock.systemUTC();
+
+  private final AtomicLong createdPartitions = new AtomicLong();
+
+  private final AtomicLong droppedPartitions = new AtomicLong();
+
+  private volatile Disposable schedule;
+
+  public TokenPartitionManager(ConnectionFactory connectionFactory) {
+    Assert.notNull(connectionFactory, "Connection Factory required");
+    this.connectionFactory = connectionFactory;
+  }
+
+  /**
+   * Create the upcoming partitions and drop the expired ones, if no other node is doing so.
+   */
+  public Mono<Void> maintain() {
+    return Mono.usingWhen(connectionFactory.create(), this::maintainIfLeader, Connection::close);
+  }
+
+  @Override
+  public void start() {
+    Assert.isTrue(daysAhead >= 0, "Days ahead must not be negative");
+    // right away, so that today's partition exists before the first token is written
+    schedule = Flux.interval(Duration.ZERO, interval)
+        .onBackpressureDrop()
+        .concatMap(tick -> maintain()
+            .onErrorResume(e -> {
+              LOG.warn("Failed to maintain token partitions", e);
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+
+  @Override
+  public void stop() {
+    Disposable current = schedule;
+    if (current != null) {
+      current.dispose();
+      schedule = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return schedule != null;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("oauth.tokens.partitions", createdPartitions, AtomicLong::doubleValue)
+        .description("Access token partitions created or dropped")
+        .tag("action", "created")
+        .register(registry);
+    FunctionCounter.builder("oauth.tokens.partitions", droppedPartitions, AtomicLong::doubleValue)
+        .description("Access token partitions created or dropped")
+        .tag("action", "dropped")
+        .register(registry);
+  }
+
+  private Mono<Void> maintainIfLeader(Connection connection) {
+    return Mono.from(connection.createStatement(TRY_LOCK_STATEMENT).bind("$1", lockKey).execute())
+        .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Boolean.class))))
+        .flatMap(locked -> {
+          if (!Boolean.TRUE.equals(locked)) {
+            return Mono.empty();
+          }
+          // the lock belongs to the session, so release it explicitly before a pooled connection is handed out again
+          return Mono.usingWhen(Mono.just(connection), this::maintainPartitions, this::unlock, (c, e) -> unlock(c), this::unlock);
+        });
+  }
+
+  private Mono<Void> maintainPartitions(Connection connection) {
+    LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+    return Flux.from(connection.createStatement(PARTITIONS_SELECT_STATEMENT).execute())
+        .flatMap(result -> result.map((row, metadata) -> row.get(0, String.class)))
+        .collect(Collectors.toSet())
+        .flatMap(partitions -> createPartitions(connection, partitions, today).then(dropExpiredPartitions(connection, partitions, today)));
+  }
+
+  private Mono<Void> createPartitions(Connection connection, Set<String> partitions, LocalDate today) {
+    return Flux.range(0, daysAhead + 1)
+        .map(today::plusDays)
+        .filter(day -> !partitions.contains(partitionName(day)))
+        .concatMap(day -> execute(connection, String.format(CREATE_PARTITION_STATEMENT, partitionName(day), day, day.plusDays(1)))
+            .doOnSuccess(v -> createdPartitions.incrementAndGet())
+            // most likely rows for that day already went to the default partition, the other days can still be created
+            .onErrorResume(e -> {
+              LOG.warn("Failed to create token partition for " + day, e);
+              return Mono.empty();
+            }))
+        .then();
+  }
+
+  /**
+   * Partitions of days before today only hold expired tokens.
+   */
+  private Mono<Void> dropExpiredPartitions(Connection connection, Set<String> partitions, LocalDate today) {
+    return Flux.fromIterable(partitions)
+        .filter(name -> {
+          LocalDate day = partitionDay(name);
+          return day != null && day.isBefore(today);
+        })
+        .concatMap(name -> execute(connection, String.format(DROP_PARTITION_STATEMENT, name))
+            .doOnSuccess(v -> {
+              droppedPartitions.incrementAndGet();
+              if (LOG.isInfoEnabled()) {
+                LOG.info("Dropped expired token partition " + name);
+              }
+            }))
+        .then();
+  }
+
+  private Mono<Void> execute(Connection connection, String sql) {
+    return Flux.from(connection.createStatement(sql).execute())
+        .flatMap(result -> result.getRowsUpdated())
+        .then();
+  }
+
+  private Mono<Void> unlock(Connection connection) {
+    return Flux.from(connection.createStatement(UNLOCK_STATEMENT).bind("$1", lockKey).execute())
+        .flatMap(result -> result.map((row, metadata) -> row.get(0)))
+        .then();
+  }
+
+  private static String partitionName(LocalDate day) {
+    return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+  }
+
+  private static LocalDate partitionDay(String partitionName) {
+    if (!partitionName.startsWith(PARTITION_PREFIX)) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
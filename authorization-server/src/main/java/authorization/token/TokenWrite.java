@@ -0,0 +1,22 @@
+package authorization.token;
+
+import lombok.Value;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * A token issuance waiting to be written: the access token, the refresh token issued with it, if any, and their authentication.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+@Value
+public class TokenWrite {
+
+  OAuth2AccessToken accessToken;
+
+  OAuth2RefreshToken refreshToken;
+
+  OAuth2Authentication authentication;
+}
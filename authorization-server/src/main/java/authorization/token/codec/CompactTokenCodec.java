@@ -0,0 +1,599 @@
+package authorization.token.codec;
+
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+/**
+ * Versioned binary {@link TokenCodec}. The framework types (default tokens, {@link OAuth2Request}, username/password user authentication, simple authorities
+ * and plain values) are written field by field with length-prefixed UTF-8 strings; anything else, such as a custom principal, is embedded as a Java serialized
+ * fragment so nothing is lost.
+ * <p>
+ * Every blob starts with a magic byte and a format version. Blobs starting with the Java serialization stream header are legacy rows and are read with {@link
+ * JdkSerializationTokenCodec}, so existing tables keep working. Note that nodes still running the Java serialization format cannot read compact rows, so every
+ * node of a cluster has to be able to decode them before this codec writes.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class CompactTokenCodec implements TokenCodec {
+
+  static final byte MAGIC = (byte) 0xC7;
+
+  static final byte VERSION = 1;
+
+  private static final byte ACCESS_TOKEN = 1;
+  private static final byte REFRESH_TOKEN = 2;
+  private static final byte AUTHENTICATION = 3;
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int INTEGER = 2;
+  private static final int LONG = 3;
+  private static final int BOOLEAN = 4;
+  private static final int DOUBLE = 5;
+  private static final int DATE = 6;
+  private static final int MAP = 7;
+  private static final int LIST = 8;
+  private static final int SERIALIZED = 9;
+
+  private static final int PLAIN_REFRESH_TOKEN = 1;
+  private static final int EXPIRING_REFRESH_TOKEN = 2;
+
+  private static final int SIMPLE_AUTHORITIES = 1;
+
+  private static final int USERNAME_PASSWORD = 1;
+
+  private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+  private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+  private final JdkSerializationTokenCodec legacy = new JdkSerializationTokenCodec();
+
+  @Override
+  public byte[] encodeAccessToken(OAuth2AccessToken token) {
+    if (token.getClass() != DefaultOAuth2AccessToken.class || !isCompact(token.getRefreshToken())) {
+      return legacy.encodeAccessToken(token);
+    }
+    Output out = output(ACCESS_TOKEN);
+    out.writeString(token.getValue());
+    out.writeDate(token.getExpiration());
+    out.writeString(token.getTokenType());
+    out.writeStrings(token.getScope());
+    writeRefreshToken(out, token.getRefreshToken());
+    out.writeMap(token.getAdditionalInformation());
+    return out.toByteArray();
+  }
+
+  @Override
+  public OAuth2AccessToken decodeAccessToken(ByteBuffer buffer) {
+    if (isLegacy(buffer)) {
+      return legacy.decodeAccessToken(buffer);
+    }
+    try {
+      Input in = input(buffer, ACCESS_TOKEN);
+      DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(in.readString());
+      token.setExpiration(in.readDate());
+      token.setTokenType(in.readString());
+      token.setScope(in.readStrings());
+      token.setRefreshToken(readRefreshToken(in));
+      token.setAdditionalInformation(in.readMap());
+      return token;
+    } catch (BufferUnderflowException | ClassCastException e) {
+      throw new IllegalArgumentException("Truncated or corrupt access token", e);
+    }
+  }
+
+  @Override
+  public byte[] encodeRefreshToken(OAuth2RefreshToken token) {
+    if (!isCompact(token)) {
+      return legacy.encodeRefreshToken(token);
+    }
+    Output out = output(REFRESH_TOKEN);
+    writeRefreshToken(out, token);
+    return out.toByteArray();
+  }
+
+  @Override
+  public OAuth2RefreshToken decodeRefreshToken(ByteBuffer buffer) {
+    if (isLegacy(buffer)) {
+      return legacy.decodeRefreshToken(buffer);
+    }
+    try {
+      return readRefreshToken(input(buffer, REFRESH_TOKEN));
+    } catch (BufferUnderflowException | ClassCastException e) {
+      throw new IllegalArgumentException("Truncated or corrupt refresh token", e);
+    }
+  }
+
+  @Override
+  public byte[] encodeAuthentication(OAuth2Authentication authentication) {
+    OAuth2Request request = authentication.getOAuth2Request();
+    if (authentication.getClass() != OAuth2Authentication.class || request.getClass() != OAuth2Request.class || request.isRefresh()) {
+      return legacy.encodeAuthentication(authentication);
+    }
+    Output out = output(AUTHENTICATION);
+    out.writeMap(request.getRequestParameters());
+    out.writeString(request.getClientId());
+    writeAuthorities(out, request.getAuthorities());
+    out.writeBoolean(request.isApproved());
+    out.writeStrings(request.getScope());
+    out.writeStrings(request.getResourceIds());
+    out.writeString(request.getRedirectUri());
+    out.writeStrings(request.getResponseTypes());
+    out.writeMap(request.getExtensions());
+    writeUserAuthentication(out, authentication.getUserAuthentication());
+    out.writeValue(authentication.getDetails());
+    return out.toByteArray();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public OAuth2Authentication decodeAuthentication(ByteBuffer buffer) {
+    if (isLegacy(buffer)) {
+      return legacy.decodeAuthentication(buffer);
+    }
+    try {
+      Input in = input(buffer, AUTHENTICATION);
+      Map<String, String> requestParameters = (Map<String, String>) (Map<String, ?>) in.readMap();
+      String clientId = in.readString();
+      Collection<? extends GrantedAuthority> authorities = readAuthorities(in);
+      boolean approved = in.readBoolean();
+      Set<String> scope = in.readStrings();
+      Set<String> resourceIds = in.readStrings();
+      String redirectUri = in.readString();
+      Set<String> responseTypes = in.readStrings();
+      Map<String, Serializable> extensions = (Map<String, Serializable>) (Map<String, ?>) in.readMap();
+      OAuth2Request request = new OAuth2Request(requestParameters, clientId, authorities, approved, scope, resourceIds, redirectUri, responseTypes,
+          extensions);
+      OAuth2Authentication authentication = new OAuth2Authentication(request, readUserAuthentication(in));
+      authentication.setDetails(in.readValue());
+      return authentication;
+    } catch (BufferUnderflowException | ClassCastException e) {
+      throw new IllegalArgumentException("Truncated or corrupt authentication", e);
+    }
+  }
+
+  private boolean isCompact(OAuth2RefreshToken token) {
+    return token == null || token.getClass() == DefaultOAuth2RefreshToken.class || token.getClass() == DefaultExpiringOAuth2RefreshToken.class;
+  }
+
+  private void writeRefreshToken(Output out, OAuth2RefreshToken token) {
+    if (token == null) {
+      out.writeVarInt(NULL);
+    } else if (token instanceof ExpiringOAuth2RefreshToken) {
+      out.writeVarInt(EXPIRING_REFRESH_TOKEN);
+      out.writeString(token.getValue());
+      out.writeDate(((ExpiringOAuth2RefreshToken) token).getExpiration());
+    } else {
+      out.writeVarInt(PLAIN_REFRESH_TOKEN);
+      out.writeString(token.getValue());
+    }
+  }
+
+  private OAuth2RefreshToken readRefreshToken(Input in) {
+    int tag = in.readVarInt();
+    switch (tag) {
+      case NULL:
+        return null;
+      case PLAIN_REFRESH_TOKEN:
+        return new DefaultOAuth2RefreshToken(in.readString());
+      case EXPIRING_REFRESH_TOKEN:
+        return new DefaultExpiringOAuth2RefreshToken(in.readString(), in.readDate());
+      default:
+        throw new IllegalArgumentException("Unknown refresh token tag " + tag);
+    }
+  }
+
+  private void writeAuthorities(Output out, Collection<? extends GrantedAuthority> authorities) {
+    if (authorities == null) {
+      out.writeVarInt(NULL);
+      return;
+    }
+    for (GrantedAuthority authority : authorities) {
+      if (authority.getClass() != SimpleGrantedAuthority.class) {
+        out.writeVarInt(SERIALIZED);
+        out.writeSerialized(new ArrayList<>(authorities));
+        return;
+      }
+    }
+    out.writeVarInt(SIMPLE_AUTHORITIES);
+    out.writeVarInt(authorities.size());
+    for (GrantedAuthority authority : authorities) {
+      out.writeString(authority.getAuthority());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Collection<? extends GrantedAuthority> readAuthorities(Input in) {
+    int tag = in.readVarInt();
+    switch (tag) {
+      case NULL:
+        return null;
+      case SIMPLE_AUTHORITIES:
+        int size = in.readVarInt();
+        List<GrantedAuthority> authorities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          authorities.add(new SimpleGrantedAuthority(in.readString()));
+        }
+        return authorities;
+      case SERIALIZED:
+        return (Collection<? extends GrantedAuthority>) in.readSerialized();
+      default:
+        throw new IllegalArgumentException("Unknown authorities tag " + tag);
+    }
+  }
+
+  private void writeUserAuthentication(Output out, Authentication authentication) {
+    if (authentication == null) {
+      out.writeVarInt(NULL);
+    } else if (authentication.getClass() == UsernamePasswordAuthenticationToken.class && authentication.isAuthenticated()
+        && authentication.getPrincipal() instanceof String) {
+      out.writeVarInt(USERNAME_PASSWORD);
+      out.writeString((String) authentication.getPrincipal());
+      out.writeValue(authentication.getCredentials());
+      writeAuthorities(out, authentication.getAuthorities());
+      out.writeValue(authentication.getDetails());
+    } else {
+      out.writeVarInt(SERIALIZED);
+      out.writeSerialized(authentication);
+    }
+  }
+
+  private Authentication readUserAuthentication(Input in) {
+    int tag = in.readVarInt();
+    switch (tag) {
+      case NULL:
+        return null;
+      case USERNAME_PASSWORD:
+        String principal = in.readString();
+        Object credentials = in.readValue();
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(principal, credentials, readAuthorities(in));
+        authentication.setDetails(in.readValue());
+        return authentication;
+      case SERIALIZED:
+        return (Authentication) in.readSerialized();
+      default:
+        throw new IllegalArgumentException("Unknown user authentication tag " + tag);
+    }
+  }
+
+  private static Output output(byte type) {
+    Output out = OUTPUT.get();
+    out.reset();
+    out.writeByte(MAGIC);
+    out.writeByte(VERSION);
+    out.writeByte(type);
+    return out;
+  }
+
+  private static Input input(ByteBuffer buffer, byte type) {
+    if (buffer.remaining() < 3 || buffer.get() != MAGIC) {
+      throw new IllegalArgumentException("Unrecognised token encoding");
+    }
+    byte version = buffer.get();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported token encoding version " + version);
+    }
+    byte actual = buffer.get();
+    if (actual != type) {
+      throw new IllegalArgumentException("Expected token encoding type " + type + " but found " + actual);
+    }
+    return new Input(buffer);
+  }
+
+  private static boolean isLegacy(ByteBuffer buffer) {
+    int position = buffer.position();
+    return buffer.remaining() >= 2 && buffer.get(position) == (byte) 0xAC && buffer.get(position + 1) == (byte) 0xED;
+  }
+
+  /**
+   * Growable write buffer, reused per thread.
+   */
+  private static final class Output {
+
+    private byte[] bytes = new byte[512];
+
+    private int size;
+
+    private void reset() {
+      if (bytes.length > MAX_RETAINED_BUFFER) {
+        bytes = new byte[512];
+      }
+      size = 0;
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(bytes, size);
+    }
+
+    private void ensure(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+      }
+    }
+
+    private void writeByte(int value) {
+      ensure(1);
+      bytes[size++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] value) {
+      ensure(value.length);
+      System.arraycopy(value, 0, bytes, size, value.length);
+      size += value.length;
+    }
+
+    private void writeBoolean(boolean value) {
+      writeByte(value ? 1 : 0);
+    }
+
+    private void writeVarInt(int value) {
+      ensure(5);
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        bytes[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeString(String value) {
+      if (value == null) {
+        writeVarInt(0);
+        return;
+      }
+      int length = value.length();
+      for (int i = 0; i < length; i++) {
+        if (value.charAt(i) >= 0x80) {
+          byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+          writeVarInt(utf8.length + 1);
+          writeBytes(utf8);
+          return;
+        }
+      }
+      writeVarInt(length + 1);
+      ensure(length);
+      for (int i = 0; i < length; i++) {
+        bytes[size++] = (byte) value.charAt(i);
+      }
+    }
+
+    private void writeStrings(Collection<String> values) {
+      if (values == null) {
+        writeVarInt(0);
+        return;
+      }
+      writeVarInt(values.size() + 1);
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+
+    private void writeDate(Date value) {
+      writeBoolean(value != null);
+      if (value != null) {
+        writeLong(value.getTime());
+      }
+    }
+
+    private void writeMap(Map<String, ?> values) {
+      if (values == null) {
+        writeVarInt(0);
+        return;
+      }
+      writeVarInt(values.size() + 1);
+      for (Map.Entry<String, ?> entry : values.entrySet()) {
+        writeString(entry.getKey());
+        writeValue(entry.getValue());
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(Object value) {
+      if (value == null) {
+        writeVarInt(NULL);
+      } else if (value instanceof String) {
+        writeVarInt(STRING);
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        writeVarInt(INTEGER);
+        writeLong((Integer) value);
+      } else if (value instanceof Long) {
+        writeVarInt(LONG);
+        writeLong((Long) value);
+      } else if (value instanceof Boolean) {
+        writeVarInt(BOOLEAN);
+        writeBoolean((Boolean) value);
+      } else if (value instanceof Double) {
+        writeVarInt(DOUBLE);
+        writeLong(Double.doubleToLongBits((Double) value));
+      } else if (value.getClass() == Date.class) {
+        writeVarInt(DATE);
+        writeLong(((Date) value).getTime());
+      } else if ((value.getClass() == LinkedHashMap.class || value.getClass() == HashMap.class) && hasStringKeys((Map<?, ?>) value)) {
+        writeVarInt(MAP);
+        writeMap((Map<String, ?>) value);
+      } else if (value.getClass() == ArrayList.class) {
+        List<?> list = (List<?>) value;
+        writeVarInt(LIST);
+        writeVarInt(list.size());
+        for (Object element : list) {
+          writeValue(element);
+        }
+      } else {
+        writeVarInt(SERIALIZED);
+        writeSerialized(value);
+      }
+    }
+
+    private boolean hasStringKeys(Map<?, ?> map) {
+      for (Object key : map.keySet()) {
+        if (!(key instanceof String)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void writeSerialized(Object value) {
+      byte[] serialized = SerializationUtils.serialize(value);
+      writeVarInt(serialized.length);
+      writeBytes(serialized);
+    }
+  }
+
+  /**
+   * Sequential reader over the driver's buffer.
+   */
+  private static final class Input {
+
+    private final ByteBuffer buffer;
+
+    private Input(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private boolean readBoolean() {
+      return buffer.get() != 0;
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        byte b = buffer.get();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    private long readLong() {
+      return buffer.getLong();
+    }
+
+    private String readString() {
+      int length = readVarInt() - 1;
+      if (length < 0) {
+        return null;
+      }
+      if (length > buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      String value;
+      if (buffer.hasArray()) {
+        value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+      } else {
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        value = new String(utf8, StandardCharsets.UTF_8);
+      }
+      return value;
+    }
+
+    private Set<String> readStrings() {
+      int size = readVarInt() - 1;
+      if (size < 0) {
+        return null;
+      }
+      Set<String> values = new LinkedHashSet<>(size * 2);
+      for (int i = 0; i < size; i++) {
+        values.add(readString());
+      }
+      return values;
+    }
+
+    private Date readDate() {
+      return readBoolean() ? new Date(readLong()) : null;
+    }
+
+    private Map<String, Object> readMap() {
+      int size = readVarInt() - 1;
+      if (size < 0) {
+        return null;
+      }
+      Map<String, Object> values = new LinkedHashMap<>(size * 2);
+      for (int i = 0; i < size; i++) {
+        values.put(readString(), readValue());
+      }
+      return values;
+    }
+
+    private Object readValue() {
+      int tag = readVarInt();
+      switch (tag) {
+        case NULL:
+          return null;
+        case STRING:
+          return readString();
+        case INTEGER:
+          return (int) readLong();
+        case LONG:
+          return readLong();
+        case BOOLEAN:
+          return readBoolean();
+        case DOUBLE:
+          return Double.longBitsToDouble(readLong());
+        case DATE:
+          return new Date(readLong());
+        case MAP:
+          return readMap();
+        case LIST:
+          int size = readVarInt();
+          List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readValue());
+          }
+          return list;
+        case SERIALIZED:
+          return readSerialized();
+        default:
+          throw new IllegalArgumentException("Unknown value tag " + tag);
+      }
+    }
+
+    private Object readSerialized() {
+      int length = readVarInt();
+      if (length > buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      ByteBuffer fragment = buffer.duplicate();
+      fragment.limit(buffer.position() + length);
+      buffer.position(buffer.position() + length);
+      return JdkSerializationTokenCodec.deserialize(fragment);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package authorization.token.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * {@link TokenCodec} using plain Java serialization, the format written by the original JDBC token store. Decoding reads from the buffer without copying it.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class JdkSerializationTokenCodec implements TokenCodec {
+
+  @Override
+  public byte[] encodeAccessToken(OAuth2AccessToken token) {
+    return SerializationUtils.serialize(token);
+  }
+
+  @Override
+  public OAuth2AccessToken decodeAccessToken(ByteBuffer buffer) {
+    return deserialize(buffer);
+  }
+
+  @Override
+  public byte[] encodeRefreshToken(OAuth2RefreshToken token) {
+    return SerializationUtils.serialize(token);
+  }
+
+  @Override
+  public OAuth2RefreshToken decodeRefreshToken(ByteBuffer buffer) {
+    return deserialize(buffer);
+  }
+
+  @Override
+  public byte[] encodeAuthentication(OAuth2Authentication authentication) {
+    return SerializationUtils.serialize(authentication);
+  }
+
+  @Override
+  public OAuth2Authentication decodeAuthentication(ByteBuffer buffer) {
+    return deserialize(buffer);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T deserialize(ByteBuffer buffer) {
+    try (ObjectInputStream in = new ConfigurableObjectInputStream(new ByteBufferInputStream(buffer), Thread.currentThread().getContextClassLoader())) {
+      return (T) in.readObject();
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Reads the remaining bytes of a buffer, advancing its position.
+   */
+  static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package authorization.token.codec;
+
+import java.nio.ByteBuffer;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+/**
+ * Converts tokens and authentications to and from the binary form kept by a token store.
+ * <p>
+ * Decoding reads straight from the buffer handed over by the driver, starting at its current position. Implementations throw {@link IllegalArgumentException}
+ * for content they cannot read, which token stores treat as a corrupt row.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public interface TokenCodec {
+
+  byte[] encodeAccessToken(OAuth2AccessToken token);
+
+  OAuth2AccessToken decodeAccessToken(ByteBuffer buffer);
+
+  byte[] encodeRefreshToken(OAuth2RefreshToken token);
+
+  OAuth2RefreshToken decodeRefreshToken(ByteBuffer buffer);
+
+  byte[] encodeAuthentication(OAuth2Authentication authentication);
+
+  OAuth2Authentication decodeAuthentication(ByteBuffer buffer);
+}
@@ -0,0 +1,14 @@
+package authorization.token.key;
+
+/**
+ * MD5 keys, as written by the original JDBC token store.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class Md5TokenKeyGenerator extends MessageDigestTokenKeyGenerator {
+
+  public Md5TokenKeyGenerator() {
+    super("MD5");
+  }
+}
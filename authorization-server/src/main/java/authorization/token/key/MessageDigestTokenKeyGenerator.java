@@ -0,0 +1,93 @@
+package authorization.token.key;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hex encoded digest of the token value. The digest and the scratch buffers are kept per thread and reused, so the only allocation per key is the key itself.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public abstract class MessageDigestTokenKeyGenerator implements TokenKeyGenerator {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  // token values are a few dozen bytes, never keep a buffer grown by an outlier
+  private static final int MAX_RETAINED_INPUT = 1024;
+
+  private final ThreadLocal<State> state;
+
+  protected MessageDigestTokenKeyGenerator(String algorithm) {
+    MessageDigest prototype = newDigest(algorithm);
+    int length = prototype.getDigestLength();
+    state = ThreadLocal.withInitial(() -> new State(newDigest(algorithm), length));
+  }
+
+  @Override
+  public String extractKey(String value) {
+    if (value == null) {
+      return null;
+    }
+    State state = this.state.get();
+    MessageDigest digest = state.digest;
+    int length = value.length();
+    byte[] input = length <= state.input.length ? state.input : new byte[length];
+    if (encodeAscii(value, length, input)) {
+      digest.update(input, 0, length);
+      if (input.length <= MAX_RETAINED_INPUT) {
+        state.input = input;
+      }
+    } else {
+      digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    byte[] output = state.output;
+    try {
+      digest.digest(output, 0, output.length);
+    } catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+    char[] hex = state.hex;
+    for (int i = 0; i < output.length; i++) {
+      hex[2 * i] = HEX[(output[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX[output[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  private static boolean encodeAscii(String value, int length, byte[] input) {
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        return false;
+      }
+      input[i] = (byte) c;
+    }
+    return true;
+  }
+
+  private static MessageDigest newDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(algorithm + " algorithm not available.  Fatal (should be in the JDK).");
+    }
+  }
+
+  private static final class State {
+
+    private final MessageDigest digest;
+    private final byte[] output;
+    private final char[] hex;
+    private byte[] input = new byte[64];
+
+    private State(MessageDigest digest, int length) {
+      this.digest = digest;
+      this.output = new byte[length];
+      this.hex = new char[length * 2];
+    }
+  }
+}
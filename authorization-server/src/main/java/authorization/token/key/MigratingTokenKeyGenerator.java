@@ -0,0 +1,36 @@
+package authorization.token.key;
+
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.util.Assert;
+
+/**
+ * Writes keys with the current generator but looks tokens up under both the current and the legacy key, so tokens issued before a switch, e.g. from MD5 to
+ * SHA-256, stay valid until they expire.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class MigratingTokenKeyGenerator implements TokenKeyGenerator {
+
+  private final TokenKeyGenerator current;
+
+  private final TokenKeyGenerator legacy;
+
+  public MigratingTokenKeyGenerator(TokenKeyGenerator current, TokenKeyGenerator legacy) {
+    Assert.notNull(current, "Current key generator required");
+    Assert.notNull(legacy, "Legacy key generator required");
+    this.current = current;
+    this.legacy = legacy;
+  }
+
+  @Override
+  public String extractKey(String value) {
+    return current.extractKey(value);
+  }
+
+  @Override
+  public List<String> extractLookupKeys(String value) {
+    return Arrays.asList(current.extractKey(value), legacy.extractKey(value));
+  }
+}
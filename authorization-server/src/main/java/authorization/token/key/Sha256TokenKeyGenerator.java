@@ -0,0 +1,14 @@
+package authorization.token.key;
+
+/**
+ * SHA-256 keys, for new deployments. Existing MD5 keyed rows can still be read through {@link MigratingTokenKeyGenerator}.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public class Sha256TokenKeyGenerator extends MessageDigestTokenKeyGenerator {
+
+  public Sha256TokenKeyGenerator() {
+    super("SHA-256");
+  }
+}
@@ -0,0 +1,29 @@
+package authorization.token.key;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Derives the key a token is stored under from the token value, so the value itself never reaches the database.
+ *
+ * @author VuDo
+ * @since 10/17/2026
+ */
+public interface TokenKeyGenerator {
+
+  /**
+   * @param value The token value.
+   * @return the key new rows are written with, or null for a null value.
+   */
+  String extractKey(String value);
+
+  /**
+   * Keys a stored token may be found under. Same as {@link #extractKey(String)} unless keys are being migrated from one scheme to another.
+   *
+   * @param value The token value.
+   * @return the candidate keys, the current one first.
+   */
+  default List<String> extractLookupKeys(String value) {
+    return Collections.singletonList(extractKey(value));
+  }
+}
@@ -0,0 +1,12 @@
+-- Token writes are upserts on token_id, which needs a unique index on it.
+-- Tables created from the original spring-security-oauth2 schema have none, so remove duplicates and add them.
+
+delete from oauth_access_token a using oauth_access_token b where a.token_id = b.token_id and a.ctid < b.ctid;
+create unique index if not exists oauth_access_token_token_id_key on oauth_access_token (token_id);
+
+delete from oauth_refresh_token a using oauth_refresh_token b where a.token_id = b.token_id and a.ctid < b.ctid;
+create unique index if not exists oauth_refresh_token_token_id_key on oauth_refresh_token (token_id);
+
+create index if not exists oauth_access_token_authentication_id_idx on oauth_access_token (authentication_id);
+create index if not exists oauth_access_token_client_id_user_name_idx on oauth_access_token (client_id, user_name);
+create index if not exists oauth_access_token_refresh_token_idx on oauth_access_token (refresh_token);
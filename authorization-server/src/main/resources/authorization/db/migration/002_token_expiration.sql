@@ -0,0 +1,8 @@
+-- Expiry of each token, written by R2dbcTokenStore and used by ExpiredTokenReaper to find expired rows through an index.
+-- Rows written before this migration keep a null expiration and are only removed when they are read after expiring.
+
+alter table oauth_access_token add column if not exists expiration timestamp with time zone;
+alter table oauth_refresh_token add column if not exists expiration timestamp with time zone;
+
+create index if not exists oauth_access_token_expiration_idx on oauth_access_token (expiration);
+create index if not exists oauth_refresh_token_expiration_idx on oauth_refresh_token (expiration);
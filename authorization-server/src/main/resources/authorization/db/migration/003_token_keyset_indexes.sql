@@ -0,0 +1,6 @@
+-- Token listings by client, and by client and user, are paged by token_id.
+-- These indexes serve each page as a range scan that is already sorted.
+
+create index if not exists oauth_access_token_client_id_token_id_idx on oauth_access_token (client_id, token_id);
+create index if not exists oauth_access_token_client_id_user_name_token_id_idx on oauth_access_token (client_id, user_name, token_id);
+drop index if exists oauth_access_token_client_id_user_name_idx;
@@ -0,0 +1,9 @@
+-- Self-contained tokens are never stored, only their explicit revocations are.
+-- Every node polls this table by id to stay in sync.
+
+create table if not exists oauth_revoked_token
+(
+    id         bigserial primary key,
+    token_id   varchar(256) unique not null,
+    expiration timestamp with time zone
+);
@@ -0,0 +1,5 @@
+-- Digest of the serialized authentication of each access token, written by R2dbcTokenStore.
+-- A token re-stored with the same authentication, as on every repeat login, then leaves its row alone instead of writing a new version of it.
+-- Rows written before this migration have a null fingerprint and are rewritten once, on the next login.
+
+alter table oauth_access_token add column if not exists authentication_fingerprint bytea;
@@ -0,0 +1,24 @@
+-- Version of oauth_client_details, bumped by every statement that changes the table.
+-- InMemoryReactiveClientDetailsService polls it and only reloads its snapshot of the clients once it has moved.
+
+create table if not exists oauth_client_details_version
+(
+    id      boolean primary key default true check (id),
+    version bigint not null
+);
+
+insert into oauth_client_details_version (id, version) values (true, 0) on conflict do nothing;
+
+create or replace function oauth_client_details_bump_version() returns trigger
+    language plpgsql as
+$$
+begin
+    update oauth_client_details_version set version = version + 1;
+    return null;
+end
+$$;
+
+drop trigger if exists oauth_client_details_version_trigger on oauth_client_details;
+create trigger oauth_client_details_version_trigger
+    after insert or update or delete or truncate on oauth_client_details
+    for each statement execute procedure oauth_client_details_bump_version();
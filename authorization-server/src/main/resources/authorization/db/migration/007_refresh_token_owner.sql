@@ -0,0 +1,15 @@
+-- Client and user of each refresh token, written by R2dbcTokenStore.
+-- Revoking all tokens of a client or user then deletes its refresh tokens by owner, including those whose access token is already gone.
+-- Rows written before this migration are filled in from their access token where it still exists.
+
+alter table oauth_refresh_token add column if not exists client_id varchar(256);
+alter table oauth_refresh_token add column if not exists user_name varchar(256);
+
+update oauth_refresh_token
+set client_id = oauth_access_token.client_id,
+    user_name = oauth_access_token.user_name
+from oauth_access_token
+where oauth_access_token.refresh_token = oauth_refresh_token.token_id
+  and oauth_refresh_token.client_id is null;
+
+create index if not exists oauth_refresh_token_client_id_user_name_idx on oauth_refresh_token (client_id, user_name);
@@ -0,0 +1,8 @@
+-- Time of each revocation, by which ReactiveJwtTokenStore polls oauth_revoked_token with an overlap, so that a revocation committed after a later one
+-- is not skipped as it would be by id.
+-- Expired revocations are deleted by ExpiredTokenReaper through the index on expiration.
+
+alter table oauth_revoked_token add column if not exists revoked_at timestamp with time zone not null default now();
+
+create index if not exists oauth_revoked_token_revoked_at_idx on oauth_revoked_token (revoked_at);
+create index if not exists oauth_revoked_token_expiration_idx on oauth_revoked_token (expiration);
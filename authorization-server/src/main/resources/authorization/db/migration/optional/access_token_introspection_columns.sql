@@ -0,0 +1,11 @@
+-- Optional columns for R2dbcTokenStore#setIntrospectionColumns(true): what the check token endpoint answers with, written with every access token so that
+-- the token and its authentication do not have to be deserialized for it.
+-- Rows written before are filled in by R2dbcTokenStore#backfillIntrospectionColumns, and until then read from the serialized token as before.
+-- With the partitioned layout of partition_access_token_by_expiration.sql, run this one after it.
+
+alter table oauth_access_token
+    add column if not exists scope                  text[],
+    add column if not exists authorities            text[],
+    add column if not exists resource_ids           text[],
+    add column if not exists grant_type             varchar(256),
+    add column if not exists additional_information text;
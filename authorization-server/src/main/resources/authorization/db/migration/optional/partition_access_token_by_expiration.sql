@@ -0,0 +1,62 @@
+-- Optional layout: oauth_access_token range partitioned by expiration day, for R2dbcTokenStore#setPartitioned(true).
+-- TokenPartitionManager then creates daily partitions ahead of time and drops expired ones whole, instead of ExpiredTokenReaper deleting them row by row.
+-- Lookups still go through token_id, which leads the primary key of every partition.
+-- Tokens without an expiration are stored as 'infinity' and, like any day without a partition yet, land in oauth_access_token_default.
+-- Run once, after the numbered migrations and while token writes are stopped: unexpired rows are copied over and the old table is dropped.
+
+alter table oauth_access_token rename to oauth_access_token_unpartitioned;
+
+create table oauth_access_token
+(
+    token_id                   varchar(256)             not null,
+    token                      bytea,
+    authentication_id          varchar(256),
+    user_name                  varchar(256),
+    client_id                  varchar(256),
+    authentication             bytea,
+    authentication_fingerprint bytea,
+    refresh_token              varchar(256),
+    expiration                 timestamp with time zone not null,
+    primary key (token_id, expiration)
+) partition by range (expiration);
+
+create table oauth_access_token_default partition of oauth_access_token default;
+
+create index oauth_access_token_p_authentication_id_idx on oauth_access_token (authentication_id);
+create index oauth_access_token_p_client_id_token_id_idx on oauth_access_token (client_id, token_id);
+create index oauth_access_token_p_client_id_user_name_token_id_idx on oauth_access_token (client_id, user_name, token_id);
+create index oauth_access_token_p_refresh_token_idx on oauth_access_token (refresh_token);
+create index oauth_access_token_p_expiration_idx on oauth_access_token (expiration);
+
+-- partitions for the days the copied rows expire on, so they do not all land in the default partition
+do
+$$
+    declare
+        day date;
+    begin
+        for day in select distinct (expiration at time zone 'UTC')::date
+                   from oauth_access_token_unpartitioned
+                   where expiration > now()
+            loop
+                execute format('create table %I partition of oauth_access_token for values from (%L) to (%L)',
+                               'oauth_access_token_p' || to_char(day, 'YYYYMMDD'),
+                               day::timestamp at time zone 'UTC', (day + 1)::timestamp at time zone 'UTC');
+            end loop;
+    end
+$$;
+
+insert into oauth_access_token (token_id, token, authentication_id, user_name, client_id, authentication, authentication_fingerprint, refresh_token,
+                                expiration)
+select token_id, token, authentication_id, user_name, client_id, authentication, authentication_fingerprint, refresh_token, coalesce(expiration, 'infinity')
+from oauth_access_token_unpartitioned
+where expiration is null
+   or expiration > now();
+
+drop table oauth_access_token_unpartitioned;
+
+-- keep the index names of schema-postgresql.sql
+alter index oauth_access_token_p_authentication_id_idx rename to oauth_access_token_authentication_id_idx;
+alter index oauth_access_token_p_client_id_token_id_idx rename to oauth_access_token_client_id_token_id_idx;
+alter index oauth_access_token_p_client_id_user_name_token_id_idx rename to oauth_access_token_client_id_user_name_token_id_idx;
+alter index oauth_access_token_p_refresh_token_idx rename to oauth_access_token_refresh_token_idx;
+alter index oauth_access_token_p_expiration_idx rename to oauth_access_token_expiration_idx;
@@ -0,0 +1,81 @@
+-- Tables used by R2dbcClientDetailsService and R2dbcTokenStore.
+
+create table if not exists oauth_client_details
+(
+    client_id               varchar(256) primary key,
+    resource_ids            varchar(256),
+    client_secret           varchar(256),
+    scope                   varchar(256),
+    authorized_grant_types  varchar(256),
+    web_server_redirect_uri varchar(256),
+    authorities             varchar(256),
+    access_token_validity   integer,
+    refresh_token_validity  integer,
+    additional_information  varchar(4096),
+    autoapprove             varchar(256)
+);
+
+create table if not exists oauth_client_details_version
+(
+    id      boolean primary key default true check (id),
+    version bigint not null
+);
+
+insert into oauth_client_details_version (id, version) values (true, 0) on conflict do nothing;
+
+create or replace function oauth_client_details_bump_version() returns trigger
+    language plpgsql as
+$$
+begin
+    update oauth_client_details_version set version = version + 1;
+    return null;
+end
+$$;
+
+drop trigger if exists oauth_client_details_version_trigger on oauth_client_details;
+create trigger oauth_client_details_version_trigger
+    after insert or update or delete or truncate on oauth_client_details
+    for each statement execute procedure oauth_client_details_bump_version();
+
+create table if not exists oauth_access_token
+(
+    token_id                   varchar(256) primary key,
+    token                      bytea,
+    authentication_id          varchar(256),
+    user_name                  varchar(256),
+    client_id                  varchar(256),
+    authentication             bytea,
+    authentication_fingerprint bytea,
+    refresh_token              varchar(256),
+    expiration                 timestamp with time zone
+);
+
+create index if not exists oauth_access_token_authentication_id_idx on oauth_access_token (authentication_id);
+create index if not exists oauth_access_token_client_id_token_id_idx on oauth_access_token (client_id, token_id);
+create index if not exists oauth_access_token_client_id_user_name_token_id_idx on oauth_access_token (client_id, user_name, token_id);
+create index if not exists oauth_access_token_refresh_token_idx on oauth_access_token (refresh_token);
+create index if not exists oauth_access_token_expiration_idx on oauth_access_token (expiration);
+
+create table if not exists oauth_refresh_token
+(
+    token_id       varchar(256) primary key,
+    token          bytea,
+    authentication bytea,
+    client_id      varchar(256),
+    user_name      varchar(256),
+    expiration     timestamp with time zone
+);
+
+create index if not exists oauth_refresh_token_client_id_user_name_idx on oauth_refresh_token (client_id, user_name);
+create index if not exists oauth_refresh_token_expiration_idx on oauth_refresh_token (expiration);
+
+create table if not exists oauth_revoked_token
+(
+    id         bigserial primary key,
+    token_id   varchar(256) unique not null,
+    expiration timestamp with time zone,
+    revoked_at timestamp with time zone not null default now()
+);
+
+create index if not exists oauth_revoked_token_revoked_at_idx on oauth_revoked_token (revoked_at);
+create index if not exists oauth_revoked_token_expiration_idx on oauth_revoked_token (expiration);
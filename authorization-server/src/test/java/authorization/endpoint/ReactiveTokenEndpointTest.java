@@ -0,0 +1,75 @@
+package authorization.endpoint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import authorization.client.ClientDetailsContext;
+import authorization.client.ReactiveClientDetailsService;
+import authorization.token.InMemoryReactiveTokenStore;
+import authorization.token.ReactiveTokenServices;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author VuDo
+ * @since 10/17/2026
+ */
+class ReactiveTokenEndpointTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final ReactiveClientDetailsService clientDetailsService = clientId -> Mono.fromSupplier(() -> {
+    loads.incrementAndGet();
+    return new BaseClientDetails(clientId, null, "read", "password,refresh_token", "ROLE_CLIENT");
+  });
+
+  private final InMemoryReactiveTokenStore tokenStore = new InMemoryReactiveTokenStore();
+
+  private final ReactiveTokenEndpoint endpoint = new ReactiveTokenEndpoint();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ReactiveTokenServices tokenServices = new ReactiveTokenServices();
+    tokenServices.setTokenStore(tokenStore);
+    tokenServices.setClientDetailsService(clientDetailsService);
+    tokenServices.setSupportRefreshToken(true);
+    endpoint.setClientDetailsService(clientDetailsService);
+    endpoint.setTokenGranter((grantType, tokenRequest) -> ClientDetailsContext.loadClient(clientDetailsService, tokenRequest.getClientId())
+        .flatMap(client -> tokenServices.createAccessToken(new OAuth2Authentication(tokenRequest.createOAuth2Request(client), null))));
+    endpoint.afterPropertiesSet();
+  }
+
+  @AfterEach
+  void tearDown() {
+    tokenStore.destroy();
+  }
+
+  @Test
+  void tokenRequestLoadsItsClientOnce() {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("grant_type", "password");
+
+    StepVerifier.create(endpoint.postAccessToken(new UsernamePasswordAuthenticationToken("client", "secret", Collections.emptyList()), parameters))
+        .assertNext(response -> assertEquals(HttpStatus.OK, response.statusCode()))
+        .verifyComplete();
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void loadsOutsideATokenRequestAreNotMemoized() {
+    StepVerifier.create(ClientDetailsContext.loadClient(clientDetailsService, "client").then(ClientDetailsContext.loadClient(clientDetailsService, "client")))
+        .expectNextCount(1)
+        .verifyComplete();
+    assertEquals(2, loads.get());
+  }
+}
@@ -0,0 +1,79 @@
+package authorization.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author VuDo
+ * @since 10/17/2026
+ */
+class CachingReactiveTokenStoreTest {
+
+  private final InMemoryReactiveTokenStore tokenStore = new InMemoryReactiveTokenStore();
+
+  // rewrites the stored authentication without going through the cache, as R2dbcTokenStore does when its fingerprint differs
+  private final ReactiveTokenStore rewritingStore = new DelegatingReactiveTokenStore(tokenStore) {
+    @Override
+    public Mono<OAuth2AccessToken> getAccessToken(OAuth2Authentication authentication) {
+      return super.getAccessToken(authentication).flatMap(token -> getDelegate().storeAccessToken(token, authentication).thenReturn(token));
+    }
+  };
+
+  @AfterEach
+  void tearDown() {
+    tokenStore.destroy();
+  }
+
+  @Test
+  void cachingStoreDropsTokenWhoseAuthenticationIsRewritten() {
+    rewrittenAuthenticationIsRead(CachingReactiveTokenStore::new);
+  }
+
+  @Test
+  void offHeapCachingStoreDropsTokenWhoseAuthenticationIsRewritten() {
+    rewrittenAuthenticationIsRead(delegate -> new OffHeapCachingReactiveTokenStore(delegate, 1024, 1024));
+  }
+
+  private void rewrittenAuthenticationIsRead(Function<ReactiveTokenStore, ReactiveTokenStore> caching) {
+    ReactiveTokenStore cache = caching.apply(rewritingStore);
+    DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("token");
+    token.setExpiration(new Date(System.currentTimeMillis() + 3_600_000));
+    cache.storeAccessToken(token, authentication("ROLE_USER")).block();
+    StepVerifier.create(cache.readAuthentication("token"))
+        .assertNext(authentication -> assertEquals(AuthorityUtils.createAuthorityList("ROLE_USER"), authentication.getAuthorities()))
+        .verifyComplete();
+
+    OAuth2Authentication promoted = authentication("ROLE_USER", "ROLE_ADMIN");
+    StepVerifier.create(cache.getAccessToken(promoted))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    StepVerifier.create(cache.readAuthentication("token"))
+        .assertNext(authentication -> assertEquals(promoted.getAuthorities(), authentication.getAuthorities()))
+        .verifyComplete();
+  }
+
+  private static OAuth2Authentication authentication(String... authorities) {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("grant_type", "password");
+    parameters.put("username", "alice");
+    OAuth2Request request = new OAuth2Request(parameters, "web-client", AuthorityUtils.createAuthorityList("ROLE_CLIENT"), true,
+        Collections.singleton("read"), null, null, null, null);
+    return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken("alice", null, AuthorityUtils.createAuthorityList(authorities)));
+  }
+}
@@ -1,14 +1,19 @@
 package uaa.config;
 
+import authorization.client.CachingReactiveClientDetailsService;
 import authorization.client.ReactiveClientDetailsService;
 import authorization.configuration.ReactiveClientDetailsServiceConfiguration;
+import authorization.token.CachingReactiveTokenStore;
+import authorization.token.ExpiredTokenReaper;
 import authorization.token.R2dbcTokenStore;
 import authorization.token.ReactiveTokenServices;
 import authorization.token.ReactiveTokenStore;
 import io.r2dbc.spi.ConnectionFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 /**
  * @author VuDo
@@ -21,16 +26,28 @@ public class AuthenticationServiceConfig {
 
   @Bean
   public ReactiveTokenStore tokenStore(ConnectionFactory connectionFactory) {
-    return new R2dbcTokenStore(connectionFactory);
+    return new CachingReactiveTokenStore(new R2dbcTokenStore(connectionFactory));
   }
 
   @Bean
-  public ReactiveClientDetailsService clientDetailsService(ConnectionFactory connectionFactory) throws Exception {
+  public ExpiredTokenReaper expiredTokenReaper(ConnectionFactory connectionFactory) {
+    return new ExpiredTokenReaper(connectionFactory);
+  }
+
+  // a bean of its own, so that the context destroys it
+  @Bean
+  public ReactiveClientDetailsService r2dbcClientDetailsService(ConnectionFactory connectionFactory) throws Exception {
     ReactiveClientDetailsServiceConfiguration serviceConfig = new ReactiveClientDetailsServiceConfiguration();
     serviceConfig.clientDetailsServiceConfigurer().r2dbc(connectionFactory);
     return serviceConfig.clientDetailsService();
   }
 
+  @Bean
+  @Primary
+  public ReactiveClientDetailsService clientDetailsService(@Qualifier("r2dbcClientDetailsService") ReactiveClientDetailsService r2dbcClientDetailsService) {
+    return new CachingReactiveClientDetailsService(r2dbcClientDetailsService);
+  }
+
   @Bean
   public ReactiveTokenServices tokenServices(ReactiveTokenStore tokenStore, ReactiveClientDetailsService clientDetailsService) {
     final ReactiveTokenServices tokenServices = new ReactiveTokenServices();
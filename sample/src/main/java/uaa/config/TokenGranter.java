@@ -1,6 +1,7 @@
 package uaa.config;
 
 import authorization.ReactiveTokenGranter;
+import authorization.client.ClientDetailsContext;
 import authorization.client.ReactiveClientDetailsService;
 import authorization.token.ReactiveAuthorizationServerTokenServices;
 import authorization.token.ReactiveTokenStore;
@@ -18,6 +19,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidClientException;
+import org.springframework.security.oauth2.common.exceptions.InvalidRequestException;
 import org.springframework.security.oauth2.provider.ClientDetails;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.OAuth2Request;
@@ -25,6 +27,7 @@ import org.springframework.security.oauth2.provider.TokenRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import uaa.client.SocketClient;
@@ -45,6 +48,7 @@ import uaa.model.request.SocketActionRequest;
 public class TokenGranter implements ReactiveTokenGranter {
 
   private static final String CLIENT_CREDENTIALS = "client_credentials";
+  private static final String REFRESH_TOKEN = "refresh_token";
   private final ReactiveAuthenticationManager authenticationManager;
   private final ReactiveClientDetailsService clientDetailsService;
   private final ReactiveAuthorizationServerTokenServices tokenServices;
@@ -57,7 +61,10 @@ public class TokenGranter implements ReactiveTokenGranter {
   @Override
   @Transactional
   public Mono<OAuth2AccessToken> grant(String grantType, TokenRequest tokenRequest) {
-    return clientDetailsService.loadClientByClientId(tokenRequest.getClientId())
+    if (grantType.equals(REFRESH_TOKEN)) {
+      return refresh(tokenRequest);
+    }
+    return ClientDetailsContext.loadClient(clientDetailsService, tokenRequest.getClientId())
         .map(client -> new GrantContainer(grantType, tokenRequest, client))
         .doOnNext(this::validateTokenRequest)
         .flatMap(this::createAuthentication)
@@ -68,6 +75,20 @@ public class TokenGranter implements ReactiveTokenGranter {
         .flatMap(tokenServices::createAccessToken);
   }
 
+  /**
+   * No login again, and so no round trip to the profile service, the refresh token carries the authentication.
+   */
+  private Mono<OAuth2AccessToken> refresh(TokenRequest tokenRequest) {
+    String refreshToken = tokenRequest.getRequestParameters().get(REFRESH_TOKEN);
+    if (!StringUtils.hasText(refreshToken)) {
+      return Mono.error(() -> new InvalidRequestException("Missing refresh token"));
+    }
+    return ClientDetailsContext.loadClient(clientDetailsService, tokenRequest.getClientId())
+        .map(client -> new GrantContainer(REFRESH_TOKEN, tokenRequest, client))
+        .doOnNext(this::validateTokenRequest)
+        .flatMap(container -> tokenServices.refreshAccessToken(refreshToken, tokenRequest));
+  }
+
   private void validateAdditionInformation(GrantContainer container) {
     if (container.getAdditionalInformation().get("profileId") != null) {
       container.getPrincipal().setTenantProfileId(container.getClientProfileId());
@@ -78,7 +99,7 @@ public class TokenGranter implements ReactiveTokenGranter {
     return Mono.just(container)
         .flatMap(this::authenticate)
         .map(container::setOAuth2Authentication)
-        .doOnNext(o -> cleanOldAccessToken(container))
+        .flatMap(o -> cleanOldAccessToken(container).thenReturn(o))
         .subscribeOn(Schedulers.parallel());
   }
 
@@ -103,24 +124,18 @@ public class TokenGranter implements ReactiveTokenGranter {
     }
   }
 
-  private void cleanOldAccessToken(GrantContainer container) {
+  private Mono<Long> cleanOldAccessToken(GrantContainer container) {
     if (enableSingleSession == null || !enableSingleSession || AuthenticationType.toBeIgnored().contains(container.grantType)) {
-      return;
+      return Mono.just(0L);
     }
     String clientId = container.clientDetails.getClientId();
     Auth authentication = container.getAuthentication();
-    Mono.just(authentication)
-        .doOnNext(auth -> removeAccessToken(clientId, auth.getName()))
-        .map(Authentication::getPrincipal)
-        .cast(UserDetails.class)
-        .map(UserDetails::getProfileId)
-        .subscribe(this::sendForceLogoutMessageViaWs);
-  }
-
-  private void removeAccessToken(String clientId, String name) {
-    tokenStore.findTokensByClientIdAndUserName(clientId, name)
-        .doOnEach(token -> tokenStore.removeAccessToken(token.get()))
-        .subscribe();
+    return tokenStore.revokeAllForUser(clientId, authentication.getName())
+        .doOnNext(revoked -> Mono.just(authentication)
+            .map(Authentication::getPrincipal)
+            .cast(UserDetails.class)
+            .map(UserDetails::getProfileId)
+            .subscribe(this::sendForceLogoutMessageViaWs));
   }
 
   private void sendForceLogoutMessageViaWs(Long profileId) {